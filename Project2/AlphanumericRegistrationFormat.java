@@ -0,0 +1,65 @@
+/**
+ * A registration format for longer plate schemes made of up to twelve letters
+ * and digits (e.g., ABC123 or 1XYZ999). Each character is one base-37 digit,
+ * with 0 kept for padding, so any plate of up to twelve characters fits in a
+ * long without two plates sharing an encoding.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class AlphanumericRegistrationFormat implements RegistrationFormat {
+    private static final int MAX_LENGTH = 12; // 37^12 is below Long.MAX_VALUE
+    private static final int RADIX = 37;
+
+    private final int minLength;
+    private final int maxLength;
+
+    /**
+     * Constructs a format accepting plates between the given lengths.
+     *
+     * @param minLength the minimum plate length
+     * @param maxLength the maximum plate length, at most twelve
+     */
+    public AlphanumericRegistrationFormat(int minLength, int maxLength) {
+        if (minLength < 1 || maxLength > MAX_LENGTH || minLength > maxLength) {
+            throw new IllegalArgumentException("Plate lengths must be between 1 and " + MAX_LENGTH + ".");
+        }
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+    }
+
+    public long encode(CharSequence plate) {
+        if (plate == null || plate.length() < minLength || plate.length() > maxLength) {
+            return -1;
+        }
+        long code = 0;
+        for (int i = 0; i < plate.length(); i++) {
+            char c = Character.toUpperCase(plate.charAt(i));
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = 1 + (c - '0');
+            } else if (c >= 'A' && c <= 'Z') {
+                digit = 11 + (c - 'A');
+            } else {
+                return -1;
+            }
+            code = code * RADIX + digit;
+        }
+        return code;
+    }
+
+    public String decode(long code) {
+        char[] plate = new char[MAX_LENGTH];
+        int start = MAX_LENGTH;
+        while (code > 0) {
+            int digit = (int) (code % RADIX);
+            plate[--start] = digit <= 10 ? (char) ('0' + digit - 1) : (char) ('A' + digit - 11);
+            code /= RADIX;
+        }
+        return new String(plate, start, MAX_LENGTH - start);
+    }
+
+    public String example() {
+        return "ABC123";
+    }
+}
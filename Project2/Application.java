@@ -1,6 +1,12 @@
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.InputMismatchException;
+import java.util.Locale;
 import java.util.Scanner;
 
 /**
@@ -18,19 +24,33 @@ import java.util.Scanner;
  */
 
 public class Application {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+    private static final Path DATA_DIRECTORY = Paths.get("carpark-data"); // Car park saved between runs
+    private static final int CHECKPOINT_RECORDS = 1000; // Changes saved before starting a new snapshot
     private static CarPark carPark;
+    private static final Path SESSION_DIRECTORY = SessionHistory.DEFAULT_DIRECTORY; // Completed parking sessions
+    private static CarParkStorage storage; // null if changes are not being saved
+    private static SessionHistory sessionHistory; // null if sessions are not being recorded
+    private static OccupancyTimeline timeline; // null until the first question about a past time
 
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
 
-        // Prompt user for number of staff and visitor slots
-        System.out.print("Enter number of staff slots: ");
-        int staffSlots = scanner.nextInt(); // Handles integer input
-        System.out.print("Enter number of visitor slots: ");
-        int visitorSlots = scanner.nextInt(); // Handles integer input
-        scanner.nextLine(); // Consume newline
+        boolean saved = savedCarParkExists();
+        if (saved) {
+            // Restore the car park saved by the last run
+            carPark = new CarPark(0, 0);
+        } else {
+            // Prompt user for number of staff and visitor slots
+            System.out.print("Enter number of staff slots: ");
+            int staffSlots = scanner.nextInt(); // Handles integer input
+            System.out.print("Enter number of visitor slots: ");
+            int visitorSlots = scanner.nextInt(); // Handles integer input
+            scanner.nextLine(); // Consume newline
 
-        carPark = new CarPark(staffSlots, visitorSlots);
+            carPark = new CarPark(staffSlots, visitorSlots);
+        }
+        openStorage(saved);
 
         // Main menu loop
         while (true) {
@@ -69,14 +89,102 @@ public class Application {
                     removeCar(scanner);
                     break;
                 case 8:
+                    parkCarAnywhere(scanner);
+                    break;
+                case 9:
+                    importLayout(scanner);
+                    break;
+                case 10:
+                    checkPastOccupancy(scanner);
+                    break;
+                case 11:
+                    archiveSessions(scanner);
+                    break;
+                case 12:
+                    closeStorage();
                     System.out.println("Program end!");
                     return;
                 default:
                     System.out.println("Invalid choice. Please try again.");
                     break;
             }
+            checkpointIfDue();
+        }
+
+    }
+
+    /**
+     * Checks whether an earlier run saved a car park.
+     *
+     * @return true if there is a saved car park to restore, false otherwise
+     */
+    private static boolean savedCarParkExists() {
+        try {
+            return CarParkStorage.exists(DATA_DIRECTORY);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens the storage that saves every change to the car park, restoring the
+     * car park saved by earlier runs first, then starts recording completed
+     * parking sessions.
+     *
+     * @param saved true if there is a saved car park to restore
+     */
+    private static void openStorage(boolean saved) {
+        try {
+            storage = CarParkStorage.open(DATA_DIRECTORY, carPark);
+            if (saved) {
+                System.out.println("Restored " + carPark.listSlots().size() + " parking slots from " + DATA_DIRECTORY
+                        + ".");
+            }
+        } catch (IOException e) {
+            System.out.println("Could not open " + DATA_DIRECTORY + ", changes will not be saved: " + e.getMessage());
+        }
+        try {
+            sessionHistory = SessionHistory.open(SESSION_DIRECTORY);
+            sessionHistory.attach(carPark);
+        } catch (IOException e) {
+            System.out.println("Could not open " + SESSION_DIRECTORY + ", parking sessions will not be recorded: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Starts a new snapshot once enough changes have been saved since the last
+     * one, so the next start has less to replay.
+     */
+    private static void checkpointIfDue() {
+        if (storage != null) {
+            try {
+                storage.checkpointIfDue(CHECKPOINT_RECORDS);
+            } catch (IOException e) {
+                System.out.println("Could not start a new snapshot: " + e.getMessage());
+            }
         }
+    }
 
+    /**
+     * Saves a final snapshot and closes the storage and session history.
+     */
+    private static void closeStorage() {
+        if (sessionHistory != null) {
+            try {
+                sessionHistory.close();
+            } catch (IOException e) {
+                System.out.println("Could not save the latest parking sessions: " + e.getMessage());
+            }
+        }
+        if (storage != null) {
+            try {
+                storage.checkpoint();
+                storage.close();
+            } catch (IOException e) {
+                System.out.println("Could not save the latest changes: " + e.getMessage());
+            }
+        }
     }
 
     /**
@@ -91,7 +199,11 @@ public class Application {
         System.out.println("5. Park a car into a slot");
         System.out.println("6. Find a car by registration number");
         System.out.println("7. Remove a car by registration number");
-        System.out.println("8. Exit");
+        System.out.println("8. Park a car into the first free slot");
+        System.out.println("9. Import parking slots from a layout file");
+        System.out.println("10. Check occupancy at a past time");
+        System.out.println("11. Archive parking sessions");
+        System.out.println("12. Exit");
         System.out.print("Choose an option: ");
     }
 
@@ -101,12 +213,12 @@ public class Application {
      */
     private static void addParkingSlot(Scanner scanner) {
         String slotID = promptForValidSlotID(scanner); // Get valid slot ID
-        System.out.print("Enter slot type (staff/visitor): ");
-        String type = scanner.nextLine().toLowerCase();
+        System.out.print("Enter slot type (" + SlotCategory.names() + "): ");
+        SlotCategory category = SlotCategory.fromName(scanner.nextLine());
 
         // Validate slot type
-        if (!type.equals("staff") && !type.equals("visitor")) {
-            System.out.println("Invalid slot type. Must be either 'staff' or 'visitor'.");
+        if (category == null) {
+            System.out.println("Invalid slot type. Must be one of " + SlotCategory.names() + ".");
             return;
         }
 
@@ -117,7 +229,7 @@ public class Application {
         }
 
         // Add new parking slot
-        ParkingSlot slot = new ParkingSlot(slotID, type);
+        ParkingSlot slot = new ParkingSlot(slotID, category);
         carPark.addSlot(slot);
         System.out.println("Parking slot added successfully.");
     }
@@ -128,7 +240,7 @@ public class Application {
      */
     private static void deleteParkingSlot(Scanner scanner) {
         System.out.print("Enter slot ID to delete: ");
-        String slotID = scanner.nextLine().toUpperCase();
+        String slotID = scanner.nextLine().toUpperCase(Locale.ROOT);
 
         if (carPark.deleteSlot(slotID)) {
             System.out.println("Parking slot deleted successfully.");
@@ -141,29 +253,43 @@ public class Application {
      * Lists all parking slots in the car park.
      * Displays slot ID, type, and status (occupied/unoccupied).
      * If occupied, also displays parked time and parking fee.
+     * The listing is read from a snapshot, so it is consistent even if the car
+     * park changes while it is being printed.
      */
     private static void listAllSlots() {
+        OccupancyStats stats = carPark.getStats();
         System.out.println("\nListing all slots:");
-        for (ParkingSlot slot : carPark.listSlots()) {
+        for (SlotCategory category : stats.getCategories()) {
+            System.out.println("Free " + category + " slots: " + stats.getFree(category) + " of "
+                    + stats.getTotal(category));
+        }
+        for (SlotState slot : carPark.snapshot().getSlots()) {
             String status = slot.isOccupied()
-                    ? "Occupied by " + slot.getParkedCar().getRegistrationNumber() + " (Owner: "
-                            + slot.getParkedCar().getOwnerName() + ")"
+                    ? "Occupied by " + slot.getRegistrationNumber() + " (Owner: " + slot.getOwnerName() + ")"
                     : "Unoccupied";
             System.out.println("Slot ID: " + slot.getId() + ", Type: " + slot.getType() + ", Status: " + status);
 
             // Display parked time and parking fee if occupied
             if (slot.isOccupied()) {
-                Car car = slot.getParkedCar();
-                long hours = java.time.Duration.between(car.getParkedTime(), LocalDateTime.now()).toHours();
-                long minutes = java.time.Duration.between(car.getParkedTime(), LocalDateTime.now()).toMinutes() % 60;
-                long seconds = java.time.Duration.between(car.getParkedTime(), LocalDateTime.now()).toSeconds() % 60;
-                System.out.println("Parked Time: " + hours + " hours " + minutes + " minutes " + seconds + " seconds");
-                System.out.println("Parking Fee: $" + ((hours > 0 ? hours : 1) * 5)); // Charge minimum 1 hour if less
-                                                                                      // than 1 hour
+                printParkedTimeAndFee(slot.getParkedTimeMillis());
             }
         }
     }
 
+    /**
+     * Displays how long a car has been parked and its parking fee, using the car
+     * park's clock.
+     */
+    private static void printParkedTimeAndFee(long parkedTimeMillis) {
+        long parkedMillis = carPark.getClock().millis() - parkedTimeMillis;
+        long parkedSeconds = parkedMillis / 1000;
+        long hours = parkedSeconds / 3600;
+        long minutes = (parkedSeconds / 60) % 60;
+        long seconds = parkedSeconds % 60;
+        System.out.println("Parked Time: " + hours + " hours " + minutes + " minutes " + seconds + " seconds");
+        System.out.println("Parking Fee: $" + CarPark.calculateFee(parkedMillis)); // Minimum 1 hour
+    }
+
     /**
      * Deletes all unoccupied parking slots from the car park.
      */
@@ -178,7 +304,7 @@ public class Application {
      */
     private static void parkCar(Scanner scanner) {
         System.out.print("Enter slot ID to park in: ");
-        String slotID = scanner.nextLine().toUpperCase();
+        String slotID = scanner.nextLine().toUpperCase(Locale.ROOT);
 
         ParkingSlot slot = carPark.findSlotById(slotID);
         if (slot == null) {
@@ -191,30 +317,154 @@ public class Application {
             return;
         }
 
-        // Get car registration number, owner name, and staff status
+        // Get car registration number, owner name, and permit
         String registrationNumber = promptForValidRegistrationNumber(scanner);
+        if (carPark.findSlotByCar(registrationNumber) != null) {
+            System.out.println("A car with registration " + registrationNumber + " is already parked.");
+            return;
+        }
         System.out.print("Enter car owner name: ");
         String ownerName = scanner.nextLine();
 
-        System.out.print("Is the owner a staff member? (yes/no): ");
-        boolean isStaff = scanner.nextLine().trim().equalsIgnoreCase("yes");
+        SlotCategory permit = promptForPermit(scanner);
 
         // Park the car
-        Car car = new Car(registrationNumber, ownerName, isStaff);
+        Car car = new Car(registrationNumber, ownerName, permit, carPark.getClock());
 
         // Park the car and display success message with parked time
-        if (slot.parkCar(car)) {
-            LocalDateTime parkedTime = car.getParkedTime();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+        if (carPark.parkCar(slotID, car)) {
             System.out.println(
                     "Car " + registrationNumber + " parked successfully in slot " + slotID + " at "
-                            + parkedTime.format(formatter));
+                            + car.getParkedTime(carPark.getClock().getZone()).format(TIME_FORMAT));
         } else {
             System.out.println(
-                    "Failed to park the car. Ensure the slot type matches the car owner type (staff/visitor).");
+                    "Failed to park the car. A " + permit + " permit cannot be used in a " + slot.getType() + " slot.");
+        }
+    }
+
+    /**
+     * Parks a car into the first free slot its owner's permit allows with user
+     * input.
+     * The slot is chosen by the car park, so no slot ID needs to be entered.
+     */
+    private static void parkCarAnywhere(Scanner scanner) {
+        String registrationNumber = promptForValidRegistrationNumber(scanner);
+        if (carPark.findSlotByCar(registrationNumber) != null) {
+            System.out.println("A car with registration " + registrationNumber + " is already parked.");
+            return;
+        }
+        System.out.print("Enter car owner name: ");
+        String ownerName = scanner.nextLine();
+
+        SlotCategory permit = promptForPermit(scanner);
+
+        Car car = new Car(registrationNumber, ownerName, permit, carPark.getClock());
+        ParkingSlot slot = carPark.parkAnywhere(car);
+        if (slot != null) {
+            System.out.println("Car " + registrationNumber + " parked successfully in slot " + slot.getId() + " at "
+                    + car.getParkedTime(carPark.getClock().getZone()).format(TIME_FORMAT));
+        } else {
+            System.out.println("No free slot is available for a " + permit + " permit.");
+        }
+    }
+
+    /**
+     * Adds every parking slot listed in a CSV or JSON layout file named by the
+     * user.
+     * Lines that cannot be used are listed, the rest are still added.
+     */
+    private static void importLayout(Scanner scanner) {
+        System.out.print("Enter layout file path: ");
+        String path = scanner.nextLine().trim();
+        LayoutReport report;
+        try {
+            report = LayoutLoader.load(Paths.get(path), carPark);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Could not read layout file " + path + ": " + e.getMessage());
+            return;
+        }
+        System.out.println(report.getSlotsAdded() + " parking slots added in " + report.getZones().size()
+                + " zones.");
+        if (report.getProblemCount() > 0) {
+            System.out.println(report.getProblemCount() + " lines could not be used:");
+            for (String problem : report.getProblems()) {
+                System.out.println("  " + problem);
+            }
+            if (report.getProblemCount() > report.getProblems().size()) {
+                System.out.println("  ...");
+            }
+        }
+    }
+
+    /**
+     * Writes every recorded parking session to an archive file named by the user,
+     * for reports to read later with SessionArchiveReader.
+     */
+    private static void archiveSessions(Scanner scanner) {
+        System.out.print("Enter archive file path: ");
+        String path = scanner.nextLine().trim();
+        try {
+            if (sessionHistory != null) {
+                sessionHistory.flush(); // Include sessions still waiting to be written
+            }
+            long sessions = SessionArchiveWriter.archive(SESSION_DIRECTORY, Paths.get(path));
+            System.out.println(sessions + " parking sessions archived to " + path + ".");
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Could not archive parking sessions to " + path + ": " + e.getMessage());
         }
     }
 
+    /**
+     * Shows which car was parked in a slot, or how many slots of a category or of
+     * the whole car park were occupied, at a past time entered by the user.
+     * The timeline is loaded from the session history the first time it is
+     * needed and kept up to date after that.
+     */
+    private static void checkPastOccupancy(Scanner scanner) {
+        if (timeline == null) {
+            try {
+                if (sessionHistory != null) {
+                    sessionHistory.flush();
+                }
+                timeline = OccupancyTimeline.load(SESSION_DIRECTORY);
+            } catch (IOException e) {
+                System.out.println("Could not read the parking sessions: " + e.getMessage());
+                return;
+            }
+            timeline.attach(carPark);
+        }
+        System.out.print("Enter slot ID, slot category (" + SlotCategory.names() + ") or nothing for all slots: ");
+        String target = scanner.nextLine().trim();
+        System.out.print("Enter date and time (dd/MM/yyyy HH:mm:ss): ");
+        long timeMillis;
+        try {
+            timeMillis = LocalDateTime.parse(scanner.nextLine().trim(), TIME_FORMAT)
+                    .atZone(carPark.getClock().getZone()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date and time.");
+            return;
+        }
+
+        SlotCategory category = SlotCategory.fromName(target);
+        if (!target.isEmpty() && category == null) {
+            String slotID = target.toUpperCase(Locale.ROOT);
+            Car car = timeline.getCarAt(slotID, timeMillis);
+            if (car != null) {
+                System.out.println("Slot " + slotID + " was occupied by " + car.getRegistrationNumber() + " (Owner: "
+                        + car.getOwnerName() + "), parked at "
+                        + TIME_FORMAT.format(car.getParkedTime(carPark.getClock().getZone())) + ".");
+            } else {
+                System.out.println("Slot " + slotID + " was not occupied.");
+            }
+            return;
+        }
+        OccupancyStats stats = timeline.getStatsAt(timeMillis);
+        long occupied = category == null ? stats.getOccupied() : stats.getOccupied(category);
+        long total = category == null ? stats.getTotal() : stats.getTotal(category);
+        System.out.println(occupied + " of " + total + " slots were occupied: "
+                + String.join(", ", timeline.getOccupiedSlots(category, timeMillis)));
+    }
+
     /**
      * Finds a car by registration number with user input.
      * Displays the slot ID, owner name, parked time, and parking fee.
@@ -225,14 +475,7 @@ public class Application {
 
         if (slot != null) {
             System.out.println("Car found in slot: " + slot.getId() + ", Owner: " + slot.getParkedCar().getOwnerName());
-            long hours = java.time.Duration.between(slot.getParkedCar().getParkedTime(), LocalDateTime.now()).toHours();
-            long minutes = java.time.Duration.between(slot.getParkedCar().getParkedTime(), LocalDateTime.now())
-                    .toMinutes() % 60;
-            long seconds = java.time.Duration.between(slot.getParkedCar().getParkedTime(), LocalDateTime.now())
-                    .toSeconds() % 60;
-            System.out.println("Parked Time: " + hours + " hours " + minutes + " minutes " + seconds + " seconds");
-            System.out.println("Parking Fee: $" + ((hours > 0 ? hours : 1) * 5)); // Charge minimum 1 hour if less than
-                                                                                  // 1 hour
+            printParkedTimeAndFee(slot.getParkedCar().getParkedTimeMillis());
         } else {
             System.out.println("Car not found.");
         }
@@ -244,10 +487,9 @@ public class Application {
      */
     private static void removeCar(Scanner scanner) {
         String registrationNumber = promptForValidRegistrationNumber(scanner);
-        ParkingSlot slot = carPark.findSlotByCar(registrationNumber);
+        ParkingSlot slot = carPark.removeCar(registrationNumber);
 
         if (slot != null) {
-            slot.removeCar();
             System.out.println("Car removed successfully from slot " + slot.getId() + ".");
         } else {
             System.out.println("Car not found.");
@@ -261,7 +503,7 @@ public class Application {
     private static String promptForValidSlotID(Scanner scanner) {
         while (true) {
             System.out.print("Enter slot ID (e.g., S01 or V01): ");
-            String slotID = scanner.nextLine().toUpperCase();
+            String slotID = scanner.nextLine().toUpperCase(Locale.ROOT);
             if (slotID.matches("[A-Z]\\d{2}")) {
                 return slotID;
             }
@@ -276,12 +518,27 @@ public class Application {
     private static String promptForValidRegistrationNumber(Scanner scanner) {
         while (true) {
             System.out.print("Enter car registration number (e.g., T2345): ");
-            String registrationNumber = scanner.nextLine().toUpperCase();
-            if (registrationNumber.matches("[A-Z]\\d{4}")) {
+            String registrationNumber = scanner.nextLine().toUpperCase(Locale.ROOT);
+            if (Registration.isValid(registrationNumber)) {
                 return registrationNumber;
             }
             System.out.println(
                     "Invalid registration number format. Must be an uppercase letter followed by four digits.");
         }
     }
+
+    /**
+     * Prompts the user for the permit held by a car owner.
+     * Ensures the permit is one of the slot categories (e.g., staff).
+     */
+    private static SlotCategory promptForPermit(Scanner scanner) {
+        while (true) {
+            System.out.print("Enter the owner's permit (" + SlotCategory.names() + "): ");
+            SlotCategory permit = SlotCategory.fromName(scanner.nextLine());
+            if (permit != null) {
+                return permit;
+            }
+            System.out.println("Invalid permit. Must be one of " + SlotCategory.names() + ".");
+        }
+    }
 }
\ No newline at end of file
@@ -1,4 +1,7 @@
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * Represents a car with a registration number, owner, and parked time.
@@ -15,8 +18,8 @@ import java.time.LocalDateTime;
 public class Car {
     private String registrationNumber;
     private String ownerName;
-    private boolean isStaff;
-    private LocalDateTime parkedTime;
+    private SlotCategory permit; // Category of slot the owner is entitled to
+    private long parkedTimeMillis; // Epoch milliseconds, formatted only for display
 
     /**
      * Constructs a Car with the given registration number, owner name, and owner
@@ -26,14 +29,66 @@ public class Car {
      * @param ownerName          the name of the car owner
      * @param isStaff            true if the owner is a staff member, false
      *                           otherwise
-     * @param parkedTime         the time the car was parked
      */
 
     public Car(String registrationNumber, String ownerName, boolean isStaff) {
+        this(registrationNumber, ownerName, isStaff, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs a Car parked at the current time of the given clock. Passing a
+     * simulated clock lets simulations run faster than real time.
+     *
+     * @param registrationNumber the car's registration number (e.g., "T2345")
+     * @param ownerName          the name of the car owner
+     * @param isStaff            true if the owner is a staff member, false
+     *                           otherwise
+     * @param clock              the clock giving the time the car was parked
+     */
+    public Car(String registrationNumber, String ownerName, boolean isStaff, Clock clock) {
+        this(registrationNumber, ownerName, isStaff, clock.millis());
+    }
+
+    /**
+     * Constructs a Car that was parked at a known time, for example when a car
+     * is read back out of a compact slot table.
+     *
+     * @param registrationNumber the car's registration number (e.g., "T2345")
+     * @param ownerName          the name of the car owner
+     * @param isStaff            true if the owner is a staff member, false
+     *                           otherwise
+     * @param parkedTimeMillis   the time the car was parked in epoch milliseconds
+     */
+    public Car(String registrationNumber, String ownerName, boolean isStaff, long parkedTimeMillis) {
+        this(registrationNumber, ownerName, isStaff ? SlotCategory.STAFF : SlotCategory.VISITOR, parkedTimeMillis);
+    }
+
+    /**
+     * Constructs a Car holding the given permit, parked at the current time of
+     * the given clock.
+     *
+     * @param registrationNumber the car's registration number (e.g., "T2345")
+     * @param ownerName          the name of the car owner
+     * @param permit             the category of slot the owner is entitled to
+     * @param clock              the clock giving the time the car was parked
+     */
+    public Car(String registrationNumber, String ownerName, SlotCategory permit, Clock clock) {
+        this(registrationNumber, ownerName, permit, clock.millis());
+    }
+
+    /**
+     * Constructs a Car holding the given permit that was parked at a known time.
+     *
+     * @param registrationNumber the car's registration number (e.g., "T2345")
+     * @param ownerName          the name of the car owner
+     * @param permit             the category of slot the owner is entitled to
+     * @param parkedTimeMillis   the time the car was parked in epoch milliseconds
+     */
+    public Car(String registrationNumber, String ownerName, SlotCategory permit, long parkedTimeMillis) {
         this.registrationNumber = registrationNumber;
         this.ownerName = ownerName;
-        this.isStaff = isStaff;
-        this.parkedTime = LocalDateTime.now();
+        this.permit = permit;
+        this.parkedTimeMillis = parkedTimeMillis;
     }
 
     /**
@@ -60,15 +115,45 @@ public class Car {
      * @return true if the car owner is a staff member, false otherwise
      */
     public boolean isStaff() {
-        return isStaff;
+        return permit == SlotCategory.STAFF;
+    }
+
+    /**
+     * Returns the category of slot the car owner is entitled to.
+     * 
+     * @return the owner's permit
+     */
+    public SlotCategory getPermit() {
+        return permit;
+    }
+
+    /**
+     * Returns the time the car was parked in epoch milliseconds.
+     * 
+     * @return the time the car was parked in epoch milliseconds
+     */
+    public long getParkedTimeMillis() {
+        return parkedTimeMillis;
     }
 
     /**
-     * Returns the time the car was parked.
+     * Returns the time the car was parked in the system time zone, for display.
+     * Use getParkedTime(ZoneId) with the car park clock's zone when the car park
+     * runs on a clock in another zone.
      * 
      * @return the time the car was parked
      */
     public LocalDateTime getParkedTime() {
-        return parkedTime;
+        return getParkedTime(ZoneId.systemDefault());
+    }
+
+    /**
+     * Returns the time the car was parked in the given time zone, for display.
+     * 
+     * @param zone the time zone, usually the zone of the car park's clock
+     * @return the time the car was parked
+     */
+    public LocalDateTime getParkedTime(ZoneId zone) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(parkedTimeMillis), zone);
     }
 }
\ No newline at end of file
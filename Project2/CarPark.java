@@ -1,8 +1,17 @@
+import java.time.Clock;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Manages the car park, which includes staff and visitor parking slots.
+ * Manages the car park, which includes staff and visitor parking slots as well
+ * as accessible, EV, motorcycle and reserved slots.
  * Provides functionality to add, remove, and list slots, park and remove cars,
  * and find cars by their registration number. Parking fees are charged at $5
  * per hour for both staff and visitors.
@@ -12,7 +21,18 @@ import java.util.List;
  */
 
 public class CarPark {
-    private List<ParkingSlot> slots;
+    private ArrayList<ParkingSlot> slots;
+    private Map<String, ParkingSlot> slotIndex; // canonical (upper case) slot ID to slot
+    private int indexCapacity; // number of slots the index was sized for
+    private LongObjectMap<ParkingSlot> carIndex; // encoded registration number to occupied slot
+    private RegistrationFormat registrationFormat; // how registration numbers are encoded
+    private Clock clock; // time source for parked times and fees
+    private OccupancyCounters counters; // running slot and occupancy totals per category
+    private AtomicLong version; // goes up by one with every change
+    private List<ParkingSlot> slotsView; // read-only copy of slots, null after a layout change
+    private CarParkSnapshot lastSnapshot; // reused until the next change
+    private Map<SlotCategory, SlotPool> pools; // slot category to the slots of that category
+    private List<CarParkListener> listeners = new CopyOnWriteArrayList<>(); // told about every change
 
     /**
      * Constructs a CarPark with the specified number of staff and visitor slots.
@@ -21,22 +41,356 @@ public class CarPark {
      * @param visitorSlots the number of visitor slots
      */
     public CarPark(int staffSlots, int visitorSlots) {
-        slots = new ArrayList<>();
-        for (int i = 1; i <= staffSlots; i++) {
-            slots.add(new ParkingSlot("S" + String.format("%02d", i), "staff"));
+        this(staffSlots, visitorSlots, Registration.STANDARD);
+    }
+
+    /**
+     * Constructs a CarPark with the specified number of staff and visitor slots
+     * that accepts registration numbers in the given format.
+     *
+     * @param staffSlots         the number of staff slots
+     * @param visitorSlots       the number of visitor slots
+     * @param registrationFormat the format of registration numbers
+     */
+    public CarPark(int staffSlots, int visitorSlots, RegistrationFormat registrationFormat) {
+        this(slotCounts(staffSlots, visitorSlots), registrationFormat);
+    }
+
+    /**
+     * Constructs a CarPark with the specified number of slots of each category.
+     * Slots are numbered from 01 within each category and prefixed with the
+     * category's letter (e.g., A01 is the first accessible slot).
+     *
+     * @param slotCounts         the number of slots of each category
+     * @param registrationFormat the format of registration numbers
+     */
+    public CarPark(Map<SlotCategory, Integer> slotCounts, RegistrationFormat registrationFormat) {
+        this.registrationFormat = registrationFormat;
+        this.clock = Clock.systemDefaultZone();
+        counters = new OccupancyCounters();
+        version = new AtomicLong();
+        int totalSlots = 0;
+        for (int count : slotCounts.values()) {
+            totalSlots += count;
+        }
+        slots = new ArrayList<>(totalSlots);
+        // Pre-size the index so building a large lot never rehashes
+        slotIndex = new HashMap<>((int) (totalSlots / 0.75f) + 1);
+        indexCapacity = totalSlots;
+        carIndex = new LongObjectMap<>(16);
+        pools = new EnumMap<>(SlotCategory.class);
+        for (SlotCategory category : SlotCategory.values()) {
+            Integer count = slotCounts.get(category);
+            pools.put(category, new SlotPool(count == null ? 0 : count));
         }
-        for (int i = 1; i <= visitorSlots; i++) {
-            slots.add(new ParkingSlot("V" + String.format("%02d", i), "visitor"));
+        for (Map.Entry<SlotCategory, Integer> entry : slotCounts.entrySet()) {
+            SlotCategory category = entry.getKey();
+            for (int i = 1; i <= entry.getValue(); i++) {
+                addSlot(new ParkingSlot(category.getPrefix() + String.format("%02d", i), category));
+            }
         }
     }
 
     /**
-     * Adds a parking slot to the car park.
+     * Builds the slot counts of a car park with only staff and visitor slots.
+     *
+     * @param staffSlots   the number of staff slots
+     * @param visitorSlots the number of visitor slots
+     * @return the number of slots of each category
+     */
+    protected static Map<SlotCategory, Integer> slotCounts(int staffSlots, int visitorSlots) {
+        Map<SlotCategory, Integer> slotCounts = new EnumMap<>(SlotCategory.class);
+        slotCounts.put(SlotCategory.STAFF, staffSlots);
+        slotCounts.put(SlotCategory.VISITOR, visitorSlots);
+        return slotCounts;
+    }
+
+    /**
+     * Returns the canonical form of a slot ID used as the index key. Slot IDs are
+     * matched case-insensitively, so "s01" and "S01" refer to the same slot. The
+     * root locale is used so IDs fold the same way whatever the default locale.
+     * 
+     * @param slotID the slot ID to canonicalise
+     * @return the upper case slot ID, or null if the ID is null
+     */
+    protected static String canonicalSlotId(String slotID) {
+        return slotID == null ? null : slotID.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns the format of registration numbers accepted by the car park.
+     * 
+     * @return the registration format
+     */
+    public RegistrationFormat getRegistrationFormat() {
+        return registrationFormat;
+    }
+
+    /**
+     * Returns the clock used for parked times and fees.
+     * 
+     * @return the clock
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Sets the clock used for parked times and fees. A SimulationClock lets
+     * simulations run faster than real time.
+     * 
+     * @param clock the clock to use
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Calculates the fee for a stay of the given length, at $5 per whole hour with
+     * a minimum charge of 1 hour.
+     * 
+     * @param parkedMillis how long the car was parked, in milliseconds
+     * @return the fee in dollars
+     */
+    public static int calculateFee(long parkedMillis) {
+        long hours = parkedMillis / 3_600_000;
+        return (int) ((hours > 0 ? hours : 1) * 5);
+    }
+
+    /**
+     * Returns the number of slots, occupied slots and free slots of each category.
+     * The totals are kept up to date as slots and cars come and go, so this does
+     * not look at any slots and is cheap enough to poll several times a second.
+     * 
+     * @return the current occupancy statistics
+     */
+    public OccupancyStats getStats() {
+        return counters.snapshot();
+    }
+
+    /**
+     * Returns the version of the car park, which goes up by one with every change
+     * to its slots or parked cars.
+     * 
+     * @return the current version
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Records a change to the car park by moving it to the next version.
+     * Subclasses that store slots differently must call this on every change.
+     * 
+     * @return the new version
+     */
+    protected long markModified() {
+        return version.incrementAndGet();
+    }
+
+    /**
+     * Registers a listener to be told about every later change to the car park.
+     * 
+     * @param listener the listener to add
+     */
+    public void addListener(CarParkListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops a listener being told about changes to the car park.
+     * 
+     * @param listener the listener to remove
+     */
+    public void removeListener(CarParkListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Checks whether any listeners are registered, so subclasses can skip
+     * building arguments for notifications nobody receives.
+     * 
+     * @return true if at least one listener is registered, false otherwise
+     */
+    protected boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Tells every listener a slot has been added. Subclasses that store slots
+     * differently must call this, and the other fire methods, after each change.
+     * 
+     * @param slot the slot that was added
+     */
+    protected void fireSlotAdded(ParkingSlot slot) {
+        for (CarParkListener listener : listeners) {
+            listener.slotAdded(slot);
+        }
+    }
+
+    /**
+     * Tells every listener a slot has been deleted.
+     * 
+     * @param slotId the ID of the slot that was deleted
+     */
+    protected void fireSlotDeleted(String slotId) {
+        for (CarParkListener listener : listeners) {
+            listener.slotDeleted(slotId);
+        }
+    }
+
+    /**
+     * Tells every listener a car has been parked.
+     * 
+     * @param slotId the ID of the slot the car was parked in
+     * @param car    the car that was parked
+     */
+    protected void fireCarParked(String slotId, Car car) {
+        for (CarParkListener listener : listeners) {
+            listener.carParked(slotId, car);
+        }
+    }
+
+    /**
+     * Tells every listener a car has been removed.
+     * 
+     * @param slotId the ID of the slot the car was removed from
+     * @param car    the car that was removed
+     */
+    protected void fireCarRemoved(String slotId, Car car) {
+        for (CarParkListener listener : listeners) {
+            listener.carRemoved(slotId, car);
+        }
+    }
+
+    /**
+     * Takes a point-in-time snapshot of every slot for reporting. The snapshot
+     * never changes afterwards, so a report can read it for as long as it likes
+     * while cars keep coming and going. Snapshots are reused until the car park
+     * next changes, so polling readers only pay for a copy after a change.
+     * Subclasses that change slots from several threads must override this so
+     * the copy still matches a single version.
+     * 
+     * @return a snapshot of the car park
+     */
+    public CarParkSnapshot snapshot() {
+        CarParkSnapshot snapshot = lastSnapshot;
+        long current = version.get();
+        if (snapshot != null && snapshot.getVersion() == current) {
+            return snapshot;
+        }
+        List<ParkingSlot> slots = listSlots();
+        List<SlotState> states = new ArrayList<>(slots.size());
+        for (ParkingSlot slot : slots) {
+            states.add(SlotState.of(slot));
+        }
+        snapshot = new CarParkSnapshot(current, clock.millis(), states);
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Returns the running occupancy totals, for subclasses that store slots
+     * differently to keep them up to date.
+     * 
+     * @return the occupancy counters
+     */
+    protected OccupancyCounters getCounters() {
+        return counters;
+    }
+
+    /**
+     * Returns the pool holding slots of the given category.
+     * 
+     * @param category the slot category
+     * @return the pool for the slot category
+     */
+    private SlotPool poolFor(SlotCategory category) {
+        return pools.get(category);
+    }
+
+    /**
+     * Returns the canonical form of a registration number used as the key of the
+     * car index. Registration numbers are matched case-insensitively.
+     * 
+     * @param registrationNumber the registration number to canonicalise
+     * @return the trimmed upper case registration number, or null if it is null
+     */
+    protected static String canonicalRegistration(String registrationNumber) {
+        return registrationNumber == null ? null : registrationNumber.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Encodes a registration number in the given format after trimming it, so
+     * every car park and store matches " T2345 " and "t2345" to the same plate.
+     * 
+     * @param format             the registration format
+     * @param registrationNumber the registration number to encode
+     * @return the encoded plate, or -1 if it is not valid in the format
+     */
+    static long encodeRegistration(RegistrationFormat format, String registrationNumber) {
+        return registrationNumber == null ? -1 : format.encode(registrationNumber.trim());
+    }
+
+    /**
+     * Adds a parking slot to the car park. The slot is ignored if a slot with the
+     * same ID already exists. A car already parked in the slot is added to the
+     * car index, so it can be found and removed like any other car.
      * 
      * @param slot the parking slot to add
+     * @throws IllegalArgumentException if the slot holds a car whose registration
+     *                                  number is not valid or is already parked
      */
     public void addSlot(ParkingSlot slot) {
+        String key = canonicalSlotId(slot.getId());
+        if (slotIndex.containsKey(key)) {
+            return;
+        }
+        Car car = slot.getParkedCar();
+        long registration = car == null ? -1 : encodeRegistration(registrationFormat, car.getRegistrationNumber());
+        if (car != null && (registration < 0 || carIndex.containsKey(registration))) {
+            throw new IllegalArgumentException("Slot " + slot.getId() + " holds car " + car.getRegistrationNumber()
+                    + ", which is not a valid registration number or is already parked");
+        }
+        slotIndex.put(key, slot);
+        if (car != null) {
+            carIndex.put(registration, slot);
+        }
         slots.add(slot);
+        poolFor(slot.getCategory()).add(slot);
+        counters.slotAdded(slot.getCategory(), slot.isOccupied());
+        slotsView = null;
+        markModified();
+        fireSlotAdded(slot);
+    }
+
+    /**
+     * Makes room for at least the given number of slots in total, so adding a
+     * large layout does not grow the slot list and index over and over.
+     * 
+     * @param slotCount the total number of slots to make room for
+     */
+    public void ensureCapacity(int slotCount) {
+        if (slotCount > indexCapacity) {
+            slots.ensureCapacity(slotCount);
+            Map<String, ParkingSlot> larger = new HashMap<>((int) (slotCount / 0.75f) + 1);
+            larger.putAll(slotIndex);
+            slotIndex = larger;
+            indexCapacity = slotCount;
+        }
+    }
+
+    /**
+     * Adds several parking slots to the car park, such as when a car park is
+     * restored from disk. Slots whose IDs already exist are ignored.
+     * 
+     * @param slots the parking slots to add
+     */
+    public void addSlots(List<ParkingSlot> slots) {
+        ensureCapacity(this.slots.size() + slots.size());
+        for (ParkingSlot slot : slots) {
+            addSlot(slot);
+        }
     }
 
     /**
@@ -48,54 +402,149 @@ public class CarPark {
     public boolean deleteSlot(String slotID) {
         ParkingSlot slot = findSlotById(slotID);
         if (slot != null && !slot.isOccupied()) {
-            return slots.remove(slot);
+            slotIndex.remove(canonicalSlotId(slot.getId()));
+            poolFor(slot.getCategory()).remove(slot);
+            counters.slotRemoved(slot.getCategory(), false);
+            slotsView = null;
+            markModified();
+            slots.remove(slot);
+            fireSlotDeleted(slot.getId());
+            return true;
         }
         return false;
     }
 
     /**
-     * Lists all parking slots in the car park.
+     * Lists all parking slots in the car park. The list is a read-only copy that
+     * is only rebuilt after slots are added or deleted, so callers can iterate it
+     * while the car park changes and cannot change the car park through it. Use
+     * snapshot() for a view that also keeps the parked cars fixed.
      * 
-     * @return a list of parking slots
+     * @return a read-only list of parking slots
      */
     public List<ParkingSlot> listSlots() {
-        return slots;
+        List<ParkingSlot> view = slotsView;
+        if (view == null) {
+            view = Collections.unmodifiableList(new ArrayList<>(slots));
+            slotsView = view;
+        }
+        return view;
     }
 
     /**
      * Deletes all unoccupied parking slots from the car park.
      */
     public void deleteAllUnoccupiedSlots() {
+        List<String> deleted = new ArrayList<>();
+        for (ParkingSlot slot : slots) {
+            if (!slot.isOccupied()) {
+                counters.slotRemoved(slot.getCategory(), false);
+                deleted.add(slot.getId());
+            }
+        }
         slots.removeIf(slot -> !slot.isOccupied());
+        slotIndex.values().removeIf(slot -> !slot.isOccupied());
+        for (SlotPool pool : pools.values()) {
+            pool.removeUnoccupied();
+        }
+        slotsView = null;
+        markModified();
+        for (String slotId : deleted) {
+            fireSlotDeleted(slotId);
+        }
     }
 
     /**
-     * Finds a parking slot by its ID.
+     * Finds a parking slot by its ID using the slot index, so the lookup takes
+     * constant time regardless of the size of the car park.
      * 
      * @param slotID the ID of the parking slot to find
      * @return the parking slot with the specified ID, or null if not found
      */
     public ParkingSlot findSlotById(String slotID) {
-        for (ParkingSlot slot : slots) {
-            if (slot.getId().equalsIgnoreCase(slotID)) {
-                return slot;
-            }
-        }
-        return null;
+        return slotIndex.get(canonicalSlotId(slotID));
     }
 
     /**
-     * Finds the parking slot of a car by its registration number.
+     * Finds the parking slot of a car by its registration number using the car
+     * index, so the lookup takes constant time regardless of how many cars are
+     * parked.
      * 
      * @param registrationNumber the registration number of the car to find
      * @return the parking slot containing the car, or null if the car is not found
      */
     public ParkingSlot findSlotByCar(String registrationNumber) {
-        for (ParkingSlot slot : slots) {
-            if (slot.isOccupied() && slot.getParkedCar().getRegistrationNumber().equalsIgnoreCase(registrationNumber)) {
-                return slot;
+        long registration = encodeRegistration(registrationFormat, registrationNumber);
+        return registration < 0 ? null : carIndex.get(registration);
+    }
+
+    /**
+     * Parks a car in the slot with the given ID. Cars must be parked through the
+     * car park rather than directly on the slot so the car index stays up to date.
+     * A registration number can only be parked in one slot at a time, and must be
+     * in the car park's registration format.
+     * 
+     * @param slotID the ID of the slot to park in
+     * @param car    the car to park
+     * @return true if the car was parked, false if the slot does not exist, is
+     *         occupied, is of the wrong type, the registration number is invalid
+     *         or the car is already parked
+     */
+    public boolean parkCar(String slotID, Car car) {
+        ParkingSlot slot = findSlotById(slotID);
+        long registration = encodeRegistration(registrationFormat, car.getRegistrationNumber());
+        if (slot == null || slot.isOccupied() || registration < 0 || carIndex.containsKey(registration)) {
+            return false;
+        }
+        if (slot.parkCar(car)) {
+            carIndex.put(registration, slot);
+            poolFor(slot.getCategory()).markOccupied(slot);
+            counters.carParked(slot.getCategory());
+            markModified();
+            fireCarParked(slot.getId(), car);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parks a car in the lowest free slot its owner's permit is eligible for, so
+     * a driver does not need to know a free slot ID. Categories are tried best
+     * match first (e.g., an accessible permit tries accessible slots before
+     * visitor slots). The free slot is found using each pool's free-slot bitmap
+     * rather than by scanning the slots.
+     * 
+     * @param car the car to park
+     * @return the slot the car was parked in, or null if no eligible slot is free
+     *         or the car is already parked
+     */
+    public ParkingSlot parkAnywhere(Car car) {
+        for (SlotCategory category : car.getPermit().eligibleSlots()) {
+            ParkingSlot slot = poolFor(category).firstFree();
+            if (slot != null) {
+                return parkCar(slot.getId(), car) ? slot : null;
             }
         }
         return null;
     }
+
+    /**
+     * Removes a car from the car park by its registration number.
+     * 
+     * @param registrationNumber the registration number of the car to remove
+     * @return the slot the car was removed from, or null if the car is not found
+     */
+    public ParkingSlot removeCar(String registrationNumber) {
+        long registration = encodeRegistration(registrationFormat, registrationNumber);
+        ParkingSlot slot = registration < 0 ? null : carIndex.remove(registration);
+        if (slot != null) {
+            Car car = slot.getParkedCar();
+            slot.removeCar();
+            poolFor(slot.getCategory()).markFree(slot);
+            counters.carRemoved(slot.getCategory());
+            markModified();
+            fireCarRemoved(slot.getId(), car);
+        }
+        return slot;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,496 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The binary format used to save and send car park snapshots, covering both
+ * the layout of the slots and the parking session of every car parked in them.
+ * Numbers are written as variable length integers, so small values take one or
+ * two bytes. Each slot ID only stores what differs from the ID before it, parked
+ * times are stored as the difference from the previous parked time, and each
+ * owner name is written once and then referred to by its dictionary number. A
+ * typical occupied slot takes around ten bytes.
+ *
+ * <pre>
+ * int     magic, "CPBF"
+ * byte    schema version
+ * varlong car park version
+ * varlong time taken, epoch milliseconds
+ * varint  number of slots, then for each slot:
+ *   varint  length of the start it shares with the previous slot ID
+ *   varint  length of the rest of the ID, then its UTF-8 bytes
+ *   byte    slot category
+ *   byte    permit of the parked car plus one, or 0 if unoccupied, plus 64 if the slot is blocked
+ *   if occupied:
+ *     varlong encoded registration number
+ *     varlong parked time minus the previous one (the time taken at first), zigzag
+ *     varint  owner: 0 then a new name's length and UTF-8 bytes, or dictionary number plus one
+ * int     CRC32 of everything before it
+ * </pre>
+ *
+ * Readers and writers stream through a fixed size ByteBuffer, so a snapshot of
+ * any size can be written to or read from a channel without holding all of its
+ * bytes at once. Readers reject schema versions newer than their own.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public final class CarParkCodec {
+    private static final int MAGIC = 0x43504246; // "CPBF" at the start of every encoded snapshot
+    private static final byte SCHEMA_VERSION = 2; // Bumped whenever the layout changes, 2 added blocked slots
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final byte EMPTY = 0; // Permit byte of an unoccupied slot
+    private static final byte BLOCKED = 0x40; // Added to the permit byte of a blocked slot
+    private static final int NEW_OWNER = 0; // Owner number that introduces a new name
+
+    /**
+     * Not used, all methods are static.
+     */
+    private CarParkCodec() {
+    }
+
+    /**
+     * Encodes a snapshot into a new buffer, for sending it somewhere else.
+     *
+     * @param snapshot the snapshot to encode
+     * @param format   the format used to encode registration numbers
+     * @return a buffer holding the encoded snapshot, ready to be read
+     */
+    public static ByteBuffer encode(CarParkSnapshot snapshot, RegistrationFormat format) {
+        GrowingChannel channel = new GrowingChannel(Math.max(64, snapshot.getSlots().size() * 16));
+        try {
+            write(snapshot, format, channel);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // The channel only writes to memory
+        }
+        return channel.buffer.flip();
+    }
+
+    /**
+     * Decodes a snapshot from a buffer holding all of its bytes.
+     *
+     * @param buffer the buffer, read from its position onwards
+     * @param format the format used to decode registration numbers
+     * @return the snapshot
+     * @throws IOException if the buffer does not hold a whole, undamaged snapshot
+     *                     in a known schema version
+     */
+    public static CarParkSnapshot decode(ByteBuffer buffer, RegistrationFormat format) throws IOException {
+        try {
+            return new Reader(buffer, null).readSnapshot(format);
+        } catch (RuntimeException e) {
+            throw new IOException("The car park snapshot is damaged.", e); // e.g. a registration that cannot decode
+        }
+    }
+
+    /**
+     * Writes a snapshot to a channel.
+     *
+     * @param snapshot the snapshot to write
+     * @param format   the format used to encode registration numbers
+     * @param channel  the channel to write to
+     * @throws IOException              if the channel cannot be written
+     * @throws IllegalArgumentException if a slot has a type that is not a slot
+     *                                  category, or a car whose registration
+     *                                  number is not in the format
+     */
+    public static void write(CarParkSnapshot snapshot, RegistrationFormat format, WritableByteChannel channel)
+            throws IOException {
+        Writer out = new Writer(channel);
+        out.ensure(5);
+        out.buffer.putInt(MAGIC).put(SCHEMA_VERSION);
+        out.putVarLong(snapshot.getVersion());
+        out.putVarLong(snapshot.getTakenAtMillis());
+        out.putVarLong(snapshot.getSlots().size());
+        Map<String, Integer> owners = new HashMap<>();
+        byte[] previousId = new byte[0];
+        long previousParkedAt = snapshot.getTakenAtMillis();
+        for (SlotState slot : snapshot.getSlots()) {
+            byte[] id = slot.getId().getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            while (shared < id.length && shared < previousId.length && id[shared] == previousId[shared]) {
+                shared++;
+            }
+            out.putVarLong(shared);
+            out.putVarLong(id.length - shared);
+            out.putBytes(id, shared, id.length - shared);
+            previousId = id;
+            SlotCategory category = SlotCategory.fromName(slot.getType());
+            if (category == null) {
+                throw new IllegalArgumentException("Slot " + slot.getId() + " has unknown type " + slot.getType());
+            }
+            out.ensure(2);
+            out.buffer.put((byte) category.ordinal());
+            if (!slot.isOccupied()) {
+                out.buffer.put(slot.isBlocked() ? BLOCKED : EMPTY);
+                continue;
+            }
+            long registration = CarPark.encodeRegistration(format, slot.getRegistrationNumber());
+            if (registration < 0 || slot.getPermit() == null) {
+                throw new IllegalArgumentException("Slot " + slot.getId() + " holds a car that cannot be encoded: "
+                        + slot.getRegistrationNumber());
+            }
+            out.buffer.put((byte) (slot.getPermit().ordinal() + 1));
+            out.putVarLong(registration);
+            long delta = slot.getParkedTimeMillis() - previousParkedAt;
+            out.putVarLong((delta << 1) ^ (delta >> 63));
+            previousParkedAt = slot.getParkedTimeMillis();
+            Integer owner = owners.get(slot.getOwnerName());
+            if (owner == null) {
+                owners.put(slot.getOwnerName(), owners.size());
+                byte[] name = slot.getOwnerName().getBytes(StandardCharsets.UTF_8);
+                out.putVarLong(NEW_OWNER);
+                out.putVarLong(name.length);
+                out.putBytes(name, 0, name.length);
+            } else {
+                out.putVarLong(owner + 1);
+            }
+        }
+        out.finish();
+    }
+
+    /**
+     * Reads a snapshot from a channel.
+     *
+     * @param channel the channel to read from
+     * @param format  the format used to decode registration numbers
+     * @return the snapshot
+     * @throws IOException if the channel cannot be read, or does not hold a
+     *                     whole, undamaged snapshot in a known schema version
+     */
+    public static CarParkSnapshot read(ReadableByteChannel channel, RegistrationFormat format) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        buffer.flip();
+        try {
+            return new Reader(buffer, channel).readSnapshot(format);
+        } catch (RuntimeException e) {
+            throw new IOException("The car park snapshot is damaged.", e); // e.g. a registration that cannot decode
+        }
+    }
+
+    /**
+     * Writes through a fixed size buffer, keeping a running CRC32 of
+     * everything written.
+     */
+    private static final class Writer {
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        private final WritableByteChannel channel;
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Constructs a Writer.
+         *
+         * @param channel the channel to write to
+         */
+        private Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Makes sure the buffer has room for some bytes, writing it out if not.
+         *
+         * @param bytes the number of bytes needed, at most the buffer size
+         * @throws IOException if the channel cannot be written
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes out everything in the buffer.
+         *
+         * @throws IOException if the channel cannot be written
+         */
+        private void flush() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes a non-negative number seven bits at a time, lowest first, with
+         * the top bit of each byte set if more bytes follow.
+         *
+         * @param value the number to write
+         * @throws IOException if the channel cannot be written
+         */
+        private void putVarLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        /**
+         * Writes bytes, however many there are.
+         *
+         * @param bytes  the bytes to write
+         * @param offset the first byte to write
+         * @param length the number of bytes to write
+         * @throws IOException if the channel cannot be written
+         */
+        private void putBytes(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                ensure(1);
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+        }
+
+        /**
+         * Writes the checksum and everything still in the buffer.
+         *
+         * @throws IOException if the channel cannot be written
+         */
+        private void finish() throws IOException {
+            flush();
+            buffer.putInt((int) crc.getValue()).flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads through a buffer, refilling it from a channel if there is one, and
+     * keeps a running CRC32 of everything read.
+     */
+    private static final class Reader {
+        private ByteBuffer buffer;
+        private final ReadableByteChannel channel; // null if the buffer holds everything
+        private final CRC32 crc = new CRC32();
+        private int checked; // Buffer position up to which the CRC has been updated
+        private byte[] idBytes = new byte[16]; // Bytes of the previous slot ID, reused for the next
+        private byte[] nameBytes = new byte[64]; // Reused for the bytes of each owner name
+
+        /**
+         * Constructs a Reader.
+         *
+         * @param buffer  the buffer, ready to be read
+         * @param channel the channel to refill it from, or null
+         */
+        private Reader(ByteBuffer buffer, ReadableByteChannel channel) {
+            this.buffer = buffer;
+            this.channel = channel;
+            checked = buffer.position();
+        }
+
+        /**
+         * Makes sure some bytes are in the buffer, reading more if needed.
+         *
+         * @param count the number of bytes needed, at most the buffer size
+         * @throws IOException if the channel cannot be read or ends first
+         */
+        private void need(int count) throws IOException {
+            if (buffer.remaining() >= count) {
+                return;
+            }
+            if (channel == null) {
+                throw new EOFException("The car park snapshot is cut short.");
+            }
+            updateCrc();
+            buffer.compact();
+            while (buffer.position() < count) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("The car park snapshot is cut short.");
+                }
+            }
+            buffer.flip();
+            checked = 0;
+        }
+
+        /**
+         * Adds everything read since the last update to the CRC.
+         */
+        private void updateCrc() {
+            ByteBuffer read = buffer.duplicate();
+            read.limit(buffer.position()).position(checked);
+            crc.update(read);
+            checked = buffer.position();
+        }
+
+        /**
+         * Reads a number written by Writer.putVarLong.
+         *
+         * @return the number
+         * @throws IOException if the number is damaged or cut short
+         */
+        private long getVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                need(1);
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("The car park snapshot holds a damaged number.");
+        }
+
+        /**
+         * Reads a length and checks it is sensible.
+         *
+         * @param max the largest length allowed
+         * @return the length
+         * @throws IOException if the length is damaged or cut short
+         */
+        private int getLength(int max) throws IOException {
+            long length = getVarLong();
+            if (length < 0 || length > max) {
+                throw new IOException("The car park snapshot holds a damaged length.");
+            }
+            return (int) length;
+        }
+
+        /**
+         * Reads bytes into an array after the given offset, growing the array if
+         * it is too small.
+         *
+         * @param bytes  the array to read into
+         * @param offset where to put the first byte
+         * @param length the number of bytes to read
+         * @return the array holding the bytes, which is a new one if it grew
+         * @throws IOException if the channel cannot be read or ends first
+         */
+        private byte[] getBytes(byte[] bytes, int offset, int length) throws IOException {
+            if (bytes.length < offset + length) {
+                byte[] larger = new byte[Math.max(bytes.length * 2, offset + length)];
+                System.arraycopy(bytes, 0, larger, 0, offset);
+                bytes = larger;
+            }
+            while (length > 0) {
+                need(1);
+                int chunk = Math.min(length, buffer.remaining());
+                buffer.get(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+            }
+            return bytes;
+        }
+
+        /**
+         * Reads a whole snapshot and checks its checksum.
+         *
+         * @param format the format used to decode registration numbers
+         * @return the snapshot
+         * @throws IOException if the snapshot is damaged, cut short or in an
+         *                     unknown schema version
+         */
+        private CarParkSnapshot readSnapshot(RegistrationFormat format) throws IOException {
+            need(5);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a car park snapshot.");
+            }
+            byte schema = buffer.get();
+            if (schema < 1 || schema > SCHEMA_VERSION) {
+                throw new IOException("Car park snapshot schema version " + schema + " is not supported.");
+            }
+            long version = getVarLong();
+            long takenAtMillis = getVarLong();
+            int slotCount = getLength(Integer.MAX_VALUE);
+            SlotCategory[] categories = SlotCategory.values();
+            List<SlotState> slots = new ArrayList<>(Math.min(slotCount, 1 << 20));
+            List<String> owners = new ArrayList<>();
+            int idLength = 0;
+            long parkedAt = takenAtMillis;
+            for (int i = 0; i < slotCount; i++) {
+                int shared = getLength(idLength);
+                int rest = getLength(0xFFFF);
+                idBytes = getBytes(idBytes, shared, rest);
+                idLength = shared + rest;
+                String id = new String(idBytes, 0, idLength, StandardCharsets.UTF_8);
+                need(2);
+                int category = buffer.get();
+                int permit = buffer.get();
+                boolean blocked = schema >= 2 && (permit & BLOCKED) != 0;
+                if (blocked) {
+                    permit &= ~BLOCKED;
+                }
+                if (category < 0 || category >= categories.length || permit < 0 || permit > categories.length) {
+                    throw new IOException("The car park snapshot holds a damaged slot.");
+                }
+                String type = categories[category].getName();
+                if (permit == EMPTY) {
+                    slots.add(new SlotState(id, type, blocked));
+                    continue;
+                }
+                if (blocked) {
+                    throw new IOException("The car park snapshot holds a damaged slot.");
+                }
+                String registration = format.decode(getVarLong());
+                long zigzag = getVarLong();
+                parkedAt += (zigzag >>> 1) ^ -(zigzag & 1);
+                int owner = getLength(owners.size());
+                if (owner == NEW_OWNER) {
+                    int nameLength = getLength(0xFFFF);
+                    nameBytes = getBytes(nameBytes, 0, nameLength);
+                    owners.add(new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8));
+                    owner = owners.size();
+                }
+                slots.add(new SlotState(id, type, registration, owners.get(owner - 1), categories[permit - 1],
+                        parkedAt));
+            }
+            updateCrc();
+            need(4);
+            if (buffer.getInt() != (int) crc.getValue()) {
+                throw new IOException("The car park snapshot is damaged.");
+            }
+            return new CarParkSnapshot(version, takenAtMillis, slots);
+        }
+    }
+
+    /**
+     * A channel that writes into a buffer in memory, growing it as needed.
+     */
+    private static final class GrowingChannel implements WritableByteChannel {
+        private ByteBuffer buffer;
+
+        /**
+         * Constructs a GrowingChannel.
+         *
+         * @param capacity the initial capacity
+         */
+        private GrowingChannel(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            int count = source.remaining();
+            if (buffer.remaining() < count) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + count));
+                buffer.flip();
+                buffer = larger.put(buffer);
+            }
+            buffer.put(source);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,554 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal that records every change to a car park in a file, so
+ * the car park can be rebuilt after a restart by replaying the file.
+ *
+ * Each change is written as a small binary record holding its length, a CRC32
+ * checksum and the change itself. Recording a change only copies the record into
+ * a memory buffer, so gates are never held up by the disk. A background thread
+ * writes everything buffered so far and forces it to disk in one go, so a burst
+ * of changes shares a single fsync (group commit). Callers that must know a
+ * change is on disk before carrying on can call sync().
+ *
+ * If the program stops part way through writing a record, replay stops at the
+ * last complete record and the partial one is cut off the end of the file.
+ * Replaying a record whose change is already in the car park leaves it as it
+ * is, so a journal can be replayed over a snapshot taken while the journal was
+ * being written. rollOver() starts a new journal file at an exact record
+ * boundary, which CarParkStorage uses to pair each snapshot with the journal
+ * written after it.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class CarParkJournal implements CarParkListener, AutoCloseable {
+    private static final int MAGIC = 0x43504A31; // "CPJ1" at the start of every journal file
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_HEADER_BYTES = 8; // Body length and checksum
+    private static final int MAX_BODY_BYTES = 1 << 16; // Larger lengths mean a damaged record
+    private static final int MAX_STRING_BYTES = 16 * 1024; // Two strings and the fixed fields stay under the above
+    private static final int MAX_PENDING_BYTES = 8 << 20; // Appends wait for the writer beyond this
+
+    // Record types
+    private static final byte ADD_SLOT = 1;
+    private static final byte DELETE_SLOT = 2;
+    private static final byte PARK = 3;
+    private static final byte REMOVE = 4;
+
+    private CarPark carPark;
+    private RegistrationFormat format; // Encodes registration numbers in records
+    private FileChannel channel; // Current file, only changed by the writer once started
+    private Object lock = new Object(); // Guards everything below
+    private ByteBuffer pending; // Records waiting for the writer
+    private ByteBuffer writing; // Records being written, only touched by the writer
+    private long appended; // Number of records appended
+    private long durable; // Number of records forced to disk
+    private boolean closed;
+    private IOException failure; // Set if the writer could not write to the file
+    private FileChannel nextChannel; // File to switch to, null if no switch is waiting
+    private int switchOffset; // Pending buffer position where the switch happens
+    private Thread writer;
+    private CRC32 crc = new CRC32();
+    private int recordStart; // Start of the record being written in the pending buffer
+    private int replayedRecords;
+
+    /**
+     * Constructs a journal that writes to an open file channel. Use open() to
+     * create a journal.
+     *
+     * @param carPark the car park being journalled
+     * @param channel the journal file, positioned at its end
+     */
+    private CarParkJournal(CarPark carPark, FileChannel channel) {
+        this.carPark = carPark;
+        this.format = carPark.getRegistrationFormat();
+        this.channel = channel;
+        pending = ByteBuffer.allocate(64 * 1024);
+        writing = ByteBuffer.allocate(64 * 1024);
+    }
+
+    /**
+     * Opens a journal for a car park. If the file already holds records they are
+     * replayed into the car park, which should be newly constructed with no
+     * slots. Otherwise the car park's current slots and cars are written as the
+     * first records. From then on every change to the car park is recorded until
+     * the journal is closed.
+     *
+     * @param file    the journal file, created if it does not exist
+     * @param carPark the car park to restore and record
+     * @return the open journal
+     * @throws IOException if the file cannot be read or written, or is not a
+     *                     journal file
+     */
+    public static CarParkJournal open(Path file, CarPark carPark) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        CarParkJournal journal = new CarParkJournal(carPark, channel);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                channel.truncate(0); // New, or a crash cut the header short
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC);
+                header.flip();
+                channel.write(header);
+                for (ParkingSlot slot : carPark.listSlots()) {
+                    journal.slotAdded(slot);
+                }
+            } else {
+                long end = journal.replay();
+                channel.truncate(end); // Drop a record left half written by a crash
+                channel.position(end);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        carPark.addListener(journal);
+        journal.writer = new Thread(journal::writeLoop, "car-park-journal");
+        journal.writer.setDaemon(true);
+        journal.writer.start();
+        return journal;
+    }
+
+    /**
+     * Replays a journal file into a car park without recording further changes,
+     * cutting off any record left half written by a crash.
+     *
+     * @param file    the journal file
+     * @param carPark the car park to apply the records to
+     * @return the number of records replayed
+     * @throws IOException if the file cannot be read or is not a journal file
+     */
+    public static int replay(Path file, CarPark carPark) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() < HEADER_BYTES) {
+                return 0;
+            }
+            CarParkJournal journal = new CarParkJournal(carPark, channel);
+            channel.truncate(journal.replay());
+            return journal.replayedRecords;
+        }
+    }
+
+    /**
+     * Returns the number of records appended since the journal was opened.
+     *
+     * @return the number of appended records
+     */
+    public long getAppendedRecords() {
+        synchronized (lock) {
+            return appended;
+        }
+    }
+
+    /**
+     * Returns the number of records replayed when the journal was opened.
+     *
+     * @return the number of replayed records
+     */
+    public int getReplayedRecords() {
+        return replayedRecords;
+    }
+
+    /**
+     * Reads every complete record from the start of the file and applies it to
+     * the car park.
+     *
+     * @return the file position just after the last complete record
+     * @throws IOException if the file cannot be read or is not a journal file
+     */
+    private long replay() throws IOException {
+        InputStream stream = Channels.newInputStream(channel.position(0));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 64 * 1024));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a car park journal file.");
+        }
+        long end = HEADER_BYTES;
+        byte[] body = new byte[256];
+        CRC32 check = new CRC32();
+        while (true) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || length > MAX_BODY_BYTES) {
+                    break;
+                }
+                if (body.length < length) {
+                    body = new byte[length];
+                }
+                in.readFully(body, 0, length);
+            } catch (EOFException e) {
+                break; // The last record was cut short
+            }
+            check.reset();
+            check.update(body, 0, length);
+            if ((int) check.getValue() != checksum) {
+                break;
+            }
+            apply(ByteBuffer.wrap(body, 0, length));
+            replayedRecords++;
+            end += RECORD_HEADER_BYTES + length;
+        }
+        return end;
+    }
+
+    /**
+     * Applies one record to the car park.
+     *
+     * @param body the record body
+     */
+    private void apply(ByteBuffer body) {
+        byte type = body.get();
+        if (type == ADD_SLOT) {
+            SlotCategory category = SlotCategory.values()[body.get()];
+            String slotId = getString(body);
+            if (carPark.findSlotById(slotId) == null) {
+                carPark.addSlot(new ParkingSlot(slotId, category));
+            }
+        } else if (type == DELETE_SLOT) {
+            carPark.deleteSlot(getString(body));
+        } else if (type == PARK) {
+            String slotId = getString(body);
+            String registration = format.decode(body.getLong());
+            SlotCategory permit = SlotCategory.values()[body.get()];
+            long parkedTimeMillis = body.getLong();
+            String ownerName = getString(body);
+            ParkingSlot current = carPark.findSlotByCar(registration);
+            if (current != null && !current.getId().equalsIgnoreCase(slotId)) {
+                // The car moved slots on another gate before its removal was recorded
+                carPark.removeCar(registration);
+            }
+            carPark.parkCar(slotId, new Car(registration, ownerName, permit, parkedTimeMillis));
+        } else if (type == REMOVE) {
+            String slotId = getString(body);
+            String registration = format.decode(body.getLong());
+            ParkingSlot current = carPark.findSlotByCar(registration);
+            if (current != null && current.getId().equalsIgnoreCase(slotId)) {
+                carPark.removeCar(registration);
+            }
+        }
+    }
+
+    @Override
+    public void slotAdded(ParkingSlot slot) {
+        byte[] id = utf8(slot.getId());
+        synchronized (lock) {
+            ByteBuffer buffer = begin(1 + 1 + 2 + id.length);
+            if (buffer != null) {
+                buffer.put(ADD_SLOT).put((byte) slot.getCategory().ordinal());
+                putString(buffer, id);
+                finish(buffer);
+            }
+        }
+        Car car = slot.getParkedCar();
+        if (car != null) {
+            carParked(slot.getId(), car);
+        }
+    }
+
+    @Override
+    public void slotDeleted(String slotId) {
+        byte[] id = utf8(slotId);
+        synchronized (lock) {
+            ByteBuffer buffer = begin(1 + 2 + id.length);
+            if (buffer != null) {
+                buffer.put(DELETE_SLOT);
+                putString(buffer, id);
+                finish(buffer);
+            }
+        }
+    }
+
+    @Override
+    public void carParked(String slotId, Car car) {
+        byte[] id = utf8(slotId);
+        byte[] owner = utf8(car.getOwnerName());
+        long registration = CarPark.encodeRegistration(format, car.getRegistrationNumber());
+        synchronized (lock) {
+            ByteBuffer buffer = begin(1 + 2 + id.length + 8 + 1 + 8 + 2 + owner.length);
+            if (buffer != null) {
+                buffer.put(PARK);
+                putString(buffer, id);
+                buffer.putLong(registration).put((byte) car.getPermit().ordinal()).putLong(car.getParkedTimeMillis());
+                putString(buffer, owner);
+                finish(buffer);
+            }
+        }
+    }
+
+    @Override
+    public void carRemoved(String slotId, Car car) {
+        byte[] id = utf8(slotId);
+        long registration = CarPark.encodeRegistration(format, car.getRegistrationNumber());
+        synchronized (lock) {
+            ByteBuffer buffer = begin(1 + 2 + id.length + 8);
+            if (buffer != null) {
+                buffer.put(REMOVE);
+                putString(buffer, id);
+                buffer.putLong(registration);
+                finish(buffer);
+            }
+        }
+    }
+
+    /**
+     * Makes room for a record in the pending buffer and skips past its header,
+     * waiting for the writer if too much is already buffered. Must be called
+     * while holding the lock.
+     *
+     * @param bodyBytes the size of the record body
+     * @return the pending buffer, or null if the journal is closed or has failed
+     */
+    private ByteBuffer begin(int bodyBytes) {
+        int recordBytes = RECORD_HEADER_BYTES + bodyBytes;
+        while (pending.remaining() < recordBytes) {
+            if (closed || failure != null) {
+                return null;
+            }
+            if (pending.capacity() < MAX_PENDING_BYTES) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, recordBytes));
+                pending.flip();
+                pending = larger.put(pending);
+            } else {
+                try {
+                    lock.wait(); // The writer takes the pending records soon
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+        }
+        if (closed || failure != null) {
+            return null;
+        }
+        recordStart = pending.position();
+        pending.position(recordStart + RECORD_HEADER_BYTES);
+        return pending;
+    }
+
+    /**
+     * Fills in the length and checksum of the record just written to the pending
+     * buffer and wakes the writer. Must be called while holding the lock.
+     *
+     * @param buffer the pending buffer
+     */
+    private void finish(ByteBuffer buffer) {
+        int start = recordStart;
+        int length = buffer.position() - start - RECORD_HEADER_BYTES;
+        crc.reset();
+        crc.update(buffer.array(), start + RECORD_HEADER_BYTES, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        if (appended++ == durable) {
+            lock.notifyAll(); // The writer may be waiting for records
+        }
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a string, cut at a character boundary if there
+     * are more than MAX_STRING_BYTES. The length of each string is written as a
+     * short, so a longer string would corrupt its record. Cutting the same string
+     * always gives the same bytes, so every record about a slot still names the
+     * same slot when the journal is replayed.
+     *
+     * @param text the string
+     * @return the UTF-8 bytes, at most MAX_STRING_BYTES of them
+     */
+    private static byte[] utf8(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_STRING_BYTES) {
+            return bytes;
+        }
+        int end = MAX_STRING_BYTES;
+        while ((bytes[end] & 0xC0) == 0x80) {
+            end--; // Do not split a character
+        }
+        return Arrays.copyOf(bytes, end);
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes.
+     *
+     * @param buffer the buffer to write to
+     * @param bytes  the UTF-8 bytes of the string, at most MAX_STRING_BYTES
+     */
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * Reads a string written by putString.
+     *
+     * @param buffer the buffer to read from
+     * @return the string
+     */
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Starts writing records to a new journal file. Every record appended before
+     * this call goes to the current file and every record after it goes to the
+     * new one. The current file is closed once its records are on disk.
+     *
+     * @param file the new journal file, replaced if it already exists
+     * @throws IOException if the new file cannot be created or the journal is
+     *                     closed
+     */
+    public void rollOver(Path file) throws IOException {
+        FileChannel next = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC);
+        header.flip();
+        next.write(header);
+        synchronized (lock) {
+            while (nextChannel != null && failure == null && !closed) {
+                try {
+                    lock.wait(); // The writer has not taken the previous switch yet
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (nextChannel != null || failure != null || closed) {
+                next.close();
+                throw failure != null ? failure : new IOException("The journal is closed.");
+            }
+            nextChannel = next;
+            switchOffset = pending.position();
+            lock.notifyAll(); // Wake the writer even if nothing is pending
+        }
+    }
+
+    /**
+     * Runs on the writer thread, writing whatever records are pending and forcing
+     * them to disk, until the journal is closed.
+     */
+    private void writeLoop() {
+        while (true) {
+            long batchEnd;
+            FileChannel next;
+            int split;
+            synchronized (lock) {
+                while (pending.position() == 0 && nextChannel == null && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (pending.position() == 0 && nextChannel == null) {
+                    return; // Closed with nothing left to write
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                batchEnd = appended;
+                next = nextChannel;
+                split = switchOffset;
+                nextChannel = null;
+                lock.notifyAll(); // Appends waiting for room, and roll overs, can carry on
+            }
+            try {
+                writing.flip();
+                if (next != null) {
+                    // Records before the split belong to the old file
+                    int end = writing.limit();
+                    writing.limit(split);
+                    writeAll(writing);
+                    channel.close();
+                    channel = next;
+                    writing.limit(end);
+                }
+                writeAll(writing);
+                writing.clear();
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                durable = batchEnd;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes a buffer to the current file and forces it to disk.
+     *
+     * @param buffer the records to write
+     * @throws IOException if the file cannot be written
+     */
+    private void writeAll(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Waits until every change recorded so far is on disk.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    public void sync() throws IOException {
+        synchronized (lock) {
+            long target = appended;
+            while (durable < target && failure == null && writer.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the journal.", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Stops recording changes, writes any pending records to disk and closes the
+     * file.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        carPark.removeListener(this);
+        sync();
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Receives a call after every change to a car park's slots or parked cars, so
+ * the changes can be recorded or shown elsewhere. Calls are made on the thread
+ * that made the change, so listeners should return quickly.
+ *
+ * Changes to the same slot are always reported in the order they happened.
+ * When cars come and go on several threads at once, a car that moves to another
+ * slot may be reported parked in its new slot before it is reported removed
+ * from its old one.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public interface CarParkListener {
+    /**
+     * Called after a slot has been added. If the slot already held a car, no
+     * separate carParked call is made for it.
+     *
+     * @param slot the slot that was added
+     */
+    void slotAdded(ParkingSlot slot);
+
+    /**
+     * Called after an unoccupied slot has been deleted, including each slot
+     * deleted by deleteAllUnoccupiedSlots.
+     *
+     * @param slotId the ID of the slot that was deleted
+     */
+    void slotDeleted(String slotId);
+
+    /**
+     * Called after a car has been parked.
+     *
+     * @param slotId the ID of the slot the car was parked in
+     * @param car    the car that was parked
+     */
+    void carParked(String slotId, Car car);
+
+    /**
+     * Called after a car has been removed.
+     *
+     * @param slotId the ID of the slot the car was removed from
+     * @param car    the car that was removed
+     */
+    void carRemoved(String slotId, Car car);
+}
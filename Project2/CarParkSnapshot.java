@@ -0,0 +1,57 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A read-only view of every slot in a car park at one point in time, for
+ * reports and listings. Readers can take as long as they like over a snapshot
+ * without blocking the car park or seeing it change underneath them.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public final class CarParkSnapshot {
+    private final long version;
+    private final long takenAtMillis;
+    private final List<SlotState> slots;
+
+    /**
+     * Constructs a CarParkSnapshot.
+     *
+     * @param version       the car park version the snapshot was taken at
+     * @param takenAtMillis the time the snapshot was taken in epoch milliseconds
+     * @param slots         the state of every slot, which must not change later
+     */
+    CarParkSnapshot(long version, long takenAtMillis, List<SlotState> slots) {
+        this.version = version;
+        this.takenAtMillis = takenAtMillis;
+        this.slots = Collections.unmodifiableList(slots);
+    }
+
+    /**
+     * Returns the car park version the snapshot was taken at. The version goes up
+     * by one with every change to the car park.
+     *
+     * @return the car park version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the time the snapshot was taken.
+     *
+     * @return the time the snapshot was taken in epoch milliseconds
+     */
+    public long getTakenAtMillis() {
+        return takenAtMillis;
+    }
+
+    /**
+     * Returns the state of every slot, in car park order.
+     *
+     * @return a read-only list of slot states
+     */
+    public List<SlotState> getSlots() {
+        return slots;
+    }
+}
@@ -0,0 +1,88 @@
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes car park snapshot files, each holding one snapshot in the
+ * CarParkCodec format.
+ *
+ * Files are written to a temporary file, forced to disk and then renamed, so a
+ * crash part way through never leaves a half written snapshot in place.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public final class CarParkSnapshotFile {
+    /**
+     * Not used, all methods are static.
+     */
+    private CarParkSnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot to a file, replacing the file only once the new one is
+     * safely on disk.
+     *
+     * @param snapshot the snapshot to write
+     * @param file     the file to write
+     * @param format   the format used to encode registration numbers
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(CarParkSnapshot snapshot, Path file, RegistrationFormat format) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CarParkCodec.write(snapshot, format, channel);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot written by write().
+     *
+     * @param file   the file to read
+     * @param format the format used to decode registration numbers
+     * @return the snapshot
+     * @throws IOException if the file cannot be read, is not a snapshot file or
+     *                     is damaged
+     */
+    public static CarParkSnapshot read(Path file, RegistrationFormat format) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return CarParkCodec.read(channel, format);
+        } catch (IOException e) {
+            throw new IOException(e.getMessage() + " (" + file + ")", e);
+        }
+    }
+
+    /**
+     * Adds every slot and parked car in a snapshot to a car park. Slots that
+     * already exist are left as they are. Every slot type is checked before
+     * anything is added, so a bad snapshot leaves the car park unchanged.
+     *
+     * @param snapshot the snapshot to restore
+     * @param carPark  the car park to restore into, normally empty
+     * @throws IllegalArgumentException if a slot has a type that is not a slot
+     *                                  category
+     */
+    public static void restore(CarParkSnapshot snapshot, CarPark carPark) {
+        List<ParkingSlot> newSlots = new ArrayList<>();
+        for (SlotState slot : snapshot.getSlots()) {
+            if (carPark.findSlotById(slot.getId()) == null) {
+                newSlots.add(new ParkingSlot(slot.getId(), slot.getType())); // Throws for an unknown type
+            }
+        }
+        carPark.addSlots(newSlots);
+        for (SlotState slot : snapshot.getSlots()) {
+            if (slot.isOccupied()) {
+                carPark.parkCar(slot.getId(), new Car(slot.getRegistrationNumber(), slot.getOwnerName(),
+                        slot.getPermit(), slot.getParkedTimeMillis()));
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a car park on disk as a series of numbered generations, each made up of
+ * a snapshot of the whole car park and the journal of changes made after it.
+ * Restarting loads the latest snapshot and replays only the journal written
+ * since, so startup time depends on how much has changed since the last
+ * checkpoint rather than on how long the car park has been running.
+ *
+ * A checkpoint first rolls the journal over to the next generation, so the new
+ * journal starts exactly where the snapshot begins, then takes a snapshot and
+ * writes it on a background thread. Gates keep parking while the snapshot is
+ * written. Once the snapshot is on disk and reads back intact, the generations
+ * before the previous snapshot are deleted. The previous snapshot and every
+ * journal since are kept, so if the newest snapshot is later found damaged the
+ * car park is rebuilt from the one before. If no readable snapshot covers the
+ * journals that are left, open() fails rather than starting from part of the
+ * car park. The snapshot may already include some changes from the start of the
+ * new journal, which is harmless because replaying a change that is already
+ * there leaves the car park as it is.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class CarParkStorage implements AutoCloseable {
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String JOURNAL_SUFFIX = ".log";
+
+    private Path directory;
+    private CarPark carPark;
+    private CarParkJournal journal;
+    private long generation; // Generation of the journal being written
+    private long snapshotGeneration; // Generation of the newest snapshot known to be readable, 0 if none
+    private long checkpointedRecords; // Journal records appended at the last checkpoint
+    private ScheduledExecutorService background; // Writes snapshots and runs scheduled checkpoints
+
+    /**
+     * Constructs a CarParkStorage. Use open() to create one.
+     *
+     * @param directory the directory holding the files
+     * @param carPark   the car park being stored
+     */
+    private CarParkStorage(Path directory, CarPark carPark) {
+        this.directory = directory;
+        this.carPark = carPark;
+        background = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "car-park-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks whether a directory holds a stored car park.
+     *
+     * @param directory the directory to check
+     * @return true if the directory holds a snapshot or journal, false otherwise
+     * @throws IOException if the directory cannot be read
+     */
+    public static boolean exists(Path directory) throws IOException {
+        return Files.isDirectory(directory)
+                && !(generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).isEmpty()
+                        && generations(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX).isEmpty());
+    }
+
+    /**
+     * Opens the car park stored in a directory. The latest readable snapshot is
+     * restored into the car park, which should be newly constructed with no
+     * slots, and the journals written since are replayed. If the directory holds
+     * nothing yet, the car park's current slots and cars become the first
+     * generation. From then on every change to the car park is journalled.
+     *
+     * @param directory the directory holding the files, created if needed
+     * @param carPark   the car park to restore and store
+     * @return the open storage
+     * @throws IOException if the files cannot be read or written, or no readable
+     *                     snapshot is followed by every journal since it
+     */
+    public static CarParkStorage open(Path directory, CarPark carPark) throws IOException {
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*.tmp")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file); // Left by a crash while a snapshot was being written
+            }
+        }
+        CarParkStorage storage = new CarParkStorage(directory, carPark);
+        List<Long> snapshots = generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        List<Long> allJournals = generations(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX);
+        CarParkSnapshot snapshot = null;
+        long base = 0;
+        IOException damaged = null; // Why the newest snapshot could not be read
+        for (int i = snapshots.size() - 1; i >= 0 && snapshot == null; i--) {
+            try {
+                snapshot = CarParkSnapshotFile.read(storage.snapshotFile(snapshots.get(i)),
+                        carPark.getRegistrationFormat());
+                base = snapshots.get(i);
+            } catch (IOException e) {
+                if (damaged == null) {
+                    damaged = e;
+                }
+                // Fall back to the snapshot before it, if its journals are still there
+            }
+        }
+        List<Long> journals = new ArrayList<>();
+        for (long g : allJournals) {
+            if (g >= base) {
+                journals.add(g); // Older journals are already in the snapshot
+            }
+        }
+        long expected = Math.max(base, 1); // The first generation has no snapshot
+        for (long g : journals) {
+            if (g != expected++) {
+                throw new IOException("No readable snapshot in " + directory + " is followed by every journal since it"
+                        + (damaged == null ? "" : ": " + damaged.getMessage()), damaged);
+            }
+        }
+        if (snapshot == null && journals.isEmpty() && !snapshots.isEmpty()) {
+            throw new IOException("No readable snapshot in " + directory + ": " + damaged.getMessage(), damaged);
+        }
+        if (snapshot != null) {
+            CarParkSnapshotFile.restore(snapshot, carPark);
+        }
+        storage.snapshotGeneration = base;
+        storage.generation = journals.isEmpty() ? Math.max(base, 1) : journals.get(journals.size() - 1);
+        for (long g : journals) {
+            if (g != storage.generation) {
+                CarParkJournal.replay(storage.journalFile(g), carPark);
+            }
+        }
+        storage.journal = CarParkJournal.open(storage.journalFile(storage.generation), carPark);
+        storage.checkpointedRecords = storage.journal.getAppendedRecords();
+        return storage;
+    }
+
+    /**
+     * Lists the generations of the files in a directory with the given prefix and
+     * suffix, lowest first.
+     *
+     * @param directory the directory to list
+     * @param prefix    the file name prefix
+     * @param suffix    the file name suffix
+     * @return the generations found
+     * @throws IOException if the directory cannot be read
+     */
+    private static List<Long> generations(Path directory, String prefix, String suffix) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    /**
+     * Returns the snapshot file of a generation.
+     *
+     * @param generation the generation
+     * @return the snapshot file
+     */
+    private Path snapshotFile(long generation) {
+        return directory.resolve(SNAPSHOT_PREFIX + String.format("%08d", generation) + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Returns the journal file of a generation.
+     *
+     * @param generation the generation
+     * @return the journal file
+     */
+    private Path journalFile(long generation) {
+        return directory.resolve(JOURNAL_PREFIX + String.format("%08d", generation) + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Returns the journal recording changes to the car park.
+     *
+     * @return the journal
+     */
+    public CarParkJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Starts a new generation. The snapshot is taken on the calling thread, which
+     * for a CarPark or CompactCarPark must be the thread that changes it, and is
+     * written to disk in the background.
+     *
+     * @return a future that completes once the snapshot is on disk and read
+     *         back, and the generations before the previous snapshot are deleted
+     * @throws IOException if the next journal cannot be created
+     */
+    public synchronized Future<?> checkpoint() throws IOException {
+        long next = generation + 1;
+        journal.rollOver(journalFile(next));
+        generation = next;
+        checkpointedRecords = journal.getAppendedRecords();
+        CarParkSnapshot snapshot = carPark.snapshot();
+        RegistrationFormat format = carPark.getRegistrationFormat();
+        return background.submit(() -> {
+            CarParkSnapshotFile.write(snapshot, snapshotFile(next), format);
+            CarParkSnapshotFile.read(snapshotFile(next), format); // Throws if it did not reach the disk intact
+            deleteBefore(snapshotGeneration); // Keep the previous snapshot and its journals in case this one is lost
+            snapshotGeneration = next;
+            return null;
+        });
+    }
+
+    /**
+     * Starts a new generation if at least the given number of changes have been
+     * journalled since the last one. Must be called from the thread that changes
+     * the car park, like checkpoint().
+     *
+     * @param records the number of journalled changes that make a checkpoint due
+     * @return true if a checkpoint was started, false otherwise
+     * @throws IOException if the next journal cannot be created
+     */
+    public synchronized boolean checkpointIfDue(long records) throws IOException {
+        if (journal.getAppendedRecords() - checkpointedRecords < records) {
+            return false;
+        }
+        checkpoint();
+        return true;
+    }
+
+    /**
+     * Takes checkpoints on a background thread at a fixed rate. Only use this
+     * with a car park that can be read while other threads change it, such as a
+     * ConcurrentCarPark.
+     *
+     * @param period the time between checkpoints
+     * @param unit   the unit of the period
+     */
+    public void scheduleCheckpoints(long period, TimeUnit unit) {
+        background.scheduleAtFixedRate(() -> {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                // Keep journalling, the next checkpoint tries again
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * Deletes the snapshots and journals of every generation before the given
+     * one.
+     *
+     * @param generation the oldest generation to keep
+     * @throws IOException if the directory cannot be read
+     */
+    private void deleteBefore(long generation) throws IOException {
+        for (long g : generations(directory, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (g < generation) {
+                Files.deleteIfExists(snapshotFile(g));
+            }
+        }
+        for (long g : generations(directory, JOURNAL_PREFIX, JOURNAL_SUFFIX)) {
+            if (g < generation) {
+                Files.deleteIfExists(journalFile(g));
+            }
+        }
+    }
+
+    /**
+     * Waits for any snapshot being written, then closes the journal.
+     *
+     * @throws IOException if the journal could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+}
@@ -0,0 +1,43 @@
+import java.io.IOException;
+
+/**
+ * Somewhere a car park's slots and parked cars are kept between runs, such as
+ * a database that reports are run against. A store is attached to a car park
+ * once, when it loads anything it already holds into the car park, and from
+ * then on hears about every change as a CarParkListener.
+ *
+ * Stores may save changes in the background rather than on the thread that
+ * made them, so gates are not held up. flush() waits until everything heard
+ * so far has been saved.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public interface CarParkStore extends CarParkListener, AutoCloseable {
+    /**
+     * Attaches the store to a car park. If the store already holds slots they
+     * are added to the car park, which should be newly constructed with no
+     * slots, along with their parked cars. Otherwise the car park's current
+     * slots and cars are saved. The store then records every later change.
+     *
+     * @param carPark the car park to load and record
+     * @throws IOException if the store cannot be read or written
+     */
+    void attach(CarPark carPark) throws IOException;
+
+    /**
+     * Waits until every change heard so far has been saved.
+     *
+     * @throws IOException if a change could not be saved
+     */
+    void flush() throws IOException;
+
+    /**
+     * Saves any changes still waiting and releases the store. Changes made to
+     * the car park afterwards are not saved.
+     *
+     * @throws IOException if a change could not be saved
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,534 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A car park that stores slot state in parallel primitive arrays instead of one
+ * ParkingSlot and Car object per slot. Each slot is a row made up of an encoded
+ * slot ID, a category byte, an encoded registration number, the parked time in
+ * epoch milliseconds, an index into a dictionary of owner names and a permit
+ * byte. A slot takes about 22 bytes plus its index entries, so millions of slots fit in a small
+ * heap and scanning every slot walks memory in order. An owner name is kept in
+ * the dictionary only while a parked car uses it, and its entry is reused for
+ * a new name once the last such car leaves, so visitor turnover does not grow
+ * the heap.
+ *
+ * Slot IDs must be a letter followed by a number of at least two digits with no
+ * extra leading zeros (e.g., S01 or S100), so each slot has exactly one ID and
+ * "S1" or "S001" is never taken for S01. Only the standard registration format
+ * of a letter followed by four digits (e.g., T2345) is supported, and
+ * getRegistrationFormat() always returns Registration.STANDARD. The slots
+ * returned by this car park are detached views of a row, so cars must be parked
+ * and removed through the car park rather than on the returned slot.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+
+public class CompactCarPark extends CarPark {
+    private static final SlotCategory[] CATEGORIES = SlotCategory.values(); // Indexed by category byte
+    private static final int NONE = -1; // Empty registration or owner
+    private static final int SLOT_LETTER_BASE = 10_000_000; // Slot numbers must be below this
+
+    private int size; // Number of rows in use
+    private int[] slotKeys; // Encoded slot ID of each row
+    private byte[] types; // Slot category ordinal of each row
+    private int[] registrations; // Encoded registration number, or NONE if unoccupied
+    private long[] parkedAt; // Parked time in epoch milliseconds
+    private int[] owners; // Owner dictionary index, or NONE if unoccupied
+    private byte[] permits; // Permit ordinal of the parked car's owner
+
+    private IntIntMap rowBySlot; // Encoded slot ID to row
+    private IntIntMap rowByRegistration; // Encoded registration number to row
+    private List<String> ownerNames; // Owner dictionary, null where an entry is free
+    private Map<String, Integer> ownerIds; // Owner name to dictionary index
+    private int[] ownerUses; // Number of parked cars using each dictionary entry
+    private FreeSlotBitmap freeOwners; // Dictionary entries no parked car uses
+    private FreeSlotBitmap[] free; // Free rows for each slot category
+    private CarParkSnapshot lastSnapshot; // reused until the next change
+
+    /**
+     * Constructs a CompactCarPark with the specified number of staff and visitor
+     * slots.
+     *
+     * @param staffSlots   the number of staff slots
+     * @param visitorSlots the number of visitor slots
+     */
+    public CompactCarPark(int staffSlots, int visitorSlots) {
+        this(slotCounts(staffSlots, visitorSlots));
+    }
+
+    /**
+     * Constructs a CompactCarPark with the specified number of slots of each
+     * category.
+     *
+     * @param slotCounts the number of slots of each category
+     */
+    public CompactCarPark(Map<SlotCategory, Integer> slotCounts) {
+        super(0, 0);
+        int total = 0;
+        for (int count : slotCounts.values()) {
+            total += count;
+        }
+        int capacity = Math.max(16, total);
+        slotKeys = new int[capacity];
+        types = new byte[capacity];
+        registrations = new int[capacity];
+        parkedAt = new long[capacity];
+        owners = new int[capacity];
+        permits = new byte[capacity];
+        rowBySlot = new IntIntMap(capacity);
+        rowByRegistration = new IntIntMap(16);
+        ownerNames = new ArrayList<>();
+        ownerIds = new HashMap<>();
+        ownerUses = new int[16];
+        freeOwners = new FreeSlotBitmap(16);
+        free = new FreeSlotBitmap[CATEGORIES.length];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new FreeSlotBitmap(capacity);
+        }
+        for (Map.Entry<SlotCategory, Integer> entry : slotCounts.entrySet()) {
+            SlotCategory category = entry.getKey();
+            for (int i = 1; i <= entry.getValue(); i++) {
+                addRow(encodeSlotId(category.getPrefix() + String.format("%02d", i)), (byte) category.ordinal());
+            }
+        }
+    }
+
+    /**
+     * Encodes a slot ID such as "S01" as the letter index times 10,000,000 plus the
+     * slot number. Only the form decodeSlotId gives back is accepted, so "S1" and
+     * "S001" are rejected rather than taken to mean S01.
+     *
+     * @param slotID the slot ID to encode
+     * @return the encoded slot ID, or NONE if the ID is not a letter followed by a
+     *         number of at least two digits with no extra leading zeros
+     */
+    static int encodeSlotId(String slotID) {
+        if (slotID == null || slotID.length() < 3 || slotID.length() > 8
+                || (slotID.length() > 3 && slotID.charAt(1) == '0')) {
+            return NONE;
+        }
+        int letter = Character.toUpperCase(slotID.charAt(0)) - 'A';
+        if (letter < 0 || letter >= 26) {
+            return NONE;
+        }
+        int number = 0;
+        for (int i = 1; i < slotID.length(); i++) {
+            char c = slotID.charAt(i);
+            if (c < '0' || c > '9') {
+                return NONE;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return letter * SLOT_LETTER_BASE + number;
+    }
+
+    /**
+     * Decodes an encoded slot ID back into its text form (e.g., "S01").
+     *
+     * @param key the encoded slot ID
+     * @return the slot ID
+     */
+    static String decodeSlotId(int key) {
+        return (char) ('A' + key / SLOT_LETTER_BASE) + String.format("%02d", key % SLOT_LETTER_BASE);
+    }
+
+    /**
+     * Returns the dictionary index of an owner name for a newly parked car,
+     * adding the name in a free entry if it is new.
+     *
+     * @param ownerName the owner name
+     * @return the dictionary index of the name
+     */
+    private int ownerId(String ownerName) {
+        Integer id = ownerIds.get(ownerName);
+        if (id == null) {
+            id = freeOwners.nextSetBit();
+            if (id >= 0) {
+                freeOwners.clear(id);
+                ownerNames.set(id, ownerName);
+            } else {
+                id = ownerNames.size();
+                ownerNames.add(ownerName);
+                if (id == ownerUses.length) {
+                    ownerUses = Arrays.copyOf(ownerUses, id * 2);
+                }
+            }
+            ownerIds.put(ownerName, id);
+        }
+        ownerUses[id]++;
+        return id;
+    }
+
+    /**
+     * Gives up a parked car's use of an owner name, freeing its dictionary entry
+     * once no parked car uses it.
+     *
+     * @param id the dictionary index of the name
+     */
+    private void releaseOwner(int id) {
+        if (--ownerUses[id] == 0) {
+            ownerIds.remove(ownerNames.get(id));
+            ownerNames.set(id, null);
+            freeOwners.set(id);
+        }
+    }
+
+    /**
+     * Returns the number of owner names in the dictionary that parked cars use.
+     *
+     * @return the number of owner names held
+     */
+    int ownerCount() {
+        return ownerIds.size();
+    }
+
+    /**
+     * Appends an unoccupied row, growing the arrays if needed.
+     *
+     * @param key  the encoded slot ID
+     * @param type the slot category byte
+     * @return the new row
+     */
+    private int addRow(int key, byte type) {
+        if (size == slotKeys.length) {
+            grow(size * 2);
+        }
+        int row = size++;
+        slotKeys[row] = key;
+        types[row] = type;
+        registrations[row] = NONE;
+        parkedAt[row] = 0L;
+        owners[row] = NONE;
+        rowBySlot.put(key, row);
+        free[type].set(row);
+        getCounters().slotAdded(CATEGORIES[type], false);
+        markModified();
+        return row;
+    }
+
+    /**
+     * Grows the arrays to the given number of rows.
+     *
+     * @param capacity the new number of rows, at least the current size
+     */
+    private void grow(int capacity) {
+        slotKeys = Arrays.copyOf(slotKeys, capacity);
+        types = Arrays.copyOf(types, capacity);
+        registrations = Arrays.copyOf(registrations, capacity);
+        parkedAt = Arrays.copyOf(parkedAt, capacity);
+        owners = Arrays.copyOf(owners, capacity);
+        permits = Arrays.copyOf(permits, capacity);
+    }
+
+    /**
+     * Makes room for at least the given number of slots in total.
+     *
+     * @param slotCount the total number of slots to make room for
+     */
+    @Override
+    public void ensureCapacity(int slotCount) {
+        if (slotCount > slotKeys.length) {
+            grow(slotCount);
+        }
+        rowBySlot.ensureCapacity(slotCount);
+    }
+
+    /**
+     * Removes a row by moving the last row into its place, so the rows stay
+     * packed together.
+     *
+     * @param row the row to remove
+     */
+    private void removeRow(int row) {
+        int last = --size;
+        getCounters().slotRemoved(CATEGORIES[types[row]], false);
+        markModified();
+        rowBySlot.remove(slotKeys[row]);
+        free[types[row]].clear(row);
+        if (row != last) {
+            free[types[last]].clear(last);
+            slotKeys[row] = slotKeys[last];
+            types[row] = types[last];
+            registrations[row] = registrations[last];
+            parkedAt[row] = parkedAt[last];
+            owners[row] = owners[last];
+            permits[row] = permits[last];
+            rowBySlot.put(slotKeys[row], row);
+            if (registrations[row] != NONE) {
+                rowByRegistration.put(registrations[row], row);
+            } else {
+                free[types[row]].set(row);
+            }
+        }
+    }
+
+    /**
+     * Occupies a row with a car.
+     *
+     * @param row the row to occupy
+     * @param car the car to park
+     * @return true if the car was parked, false otherwise
+     */
+    private boolean parkInRow(int row, Car car) {
+        int registration = (int) encodeRegistration(Registration.STANDARD, car.getRegistrationNumber());
+        if (registration == Registration.INVALID || registrations[row] != NONE
+                || rowByRegistration.containsKey(registration) || !CATEGORIES[types[row]].accepts(car.getPermit())) {
+            return false;
+        }
+        registrations[row] = registration;
+        parkedAt[row] = car.getParkedTimeMillis();
+        owners[row] = ownerId(car.getOwnerName());
+        permits[row] = (byte) car.getPermit().ordinal();
+        rowByRegistration.put(registration, row);
+        free[types[row]].clear(row);
+        getCounters().carParked(CATEGORIES[types[row]]);
+        markModified();
+        return true;
+    }
+
+    /**
+     * Builds the car parked in an occupied row.
+     *
+     * @param row the occupied row
+     * @return a car holding the state of the row
+     */
+    private Car carAt(int row) {
+        return new Car(Registration.decode(registrations[row]), ownerNames.get(owners[row]), CATEGORIES[permits[row]],
+                parkedAt[row]);
+    }
+
+    /**
+     * Builds a detached ParkingSlot view of a row.
+     *
+     * @param row the row to view
+     * @return a parking slot holding the state of the row
+     */
+    private ParkingSlot view(int row) {
+        ParkingSlot slot = new ParkingSlot(decodeSlotId(slotKeys[row]), CATEGORIES[types[row]]);
+        if (registrations[row] != NONE) {
+            slot.parkCar(carAt(row));
+        }
+        return slot;
+    }
+
+    /**
+     * Adds a parking slot to the car park. If the slot holds a car, the car is
+     * copied in as well.
+     *
+     * @param slot the parking slot to add
+     * @throws IllegalArgumentException if the slot ID or type cannot be stored
+     */
+    @Override
+    public void addSlot(ParkingSlot slot) {
+        int key = encodeSlotId(slot.getId());
+        if (key == NONE) {
+            throw new IllegalArgumentException("Slot ID must be a letter followed by a number such as 01: "
+                    + slot.getId());
+        }
+        if (rowBySlot.containsKey(key)) {
+            return;
+        }
+        int row = addRow(key, (byte) slot.getCategory().ordinal());
+        if (slot.isOccupied()) {
+            parkInRow(row, slot.getParkedCar());
+        }
+        fireSlotAdded(slot);
+    }
+
+    /**
+     * Deletes a parking slot if it exists and is not occupied.
+     *
+     * @param slotID the ID of the parking slot to delete
+     * @return true if the slot was successfully deleted, false otherwise
+     */
+    @Override
+    public boolean deleteSlot(String slotID) {
+        int row = rowBySlot.get(encodeSlotId(slotID), NONE);
+        if (row == NONE || registrations[row] != NONE) {
+            return false;
+        }
+        String id = decodeSlotId(slotKeys[row]);
+        removeRow(row);
+        fireSlotDeleted(id);
+        return true;
+    }
+
+    /**
+     * Lists all parking slots in the car park as detached views.
+     *
+     * @return a list of parking slots
+     */
+    @Override
+    public List<ParkingSlot> listSlots() {
+        List<ParkingSlot> slots = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            slots.add(view(row));
+        }
+        return slots;
+    }
+
+    /**
+     * Takes a point-in-time snapshot of every slot straight from the rows,
+     * without building a ParkingSlot view for each one first.
+     *
+     * @return a snapshot of the car park
+     */
+    @Override
+    public CarParkSnapshot snapshot() {
+        CarParkSnapshot snapshot = lastSnapshot;
+        if (snapshot != null && snapshot.getVersion() == getVersion()) {
+            return snapshot;
+        }
+        List<SlotState> states = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            String id = decodeSlotId(slotKeys[row]);
+            if (registrations[row] == NONE) {
+                states.add(new SlotState(id, CATEGORIES[types[row]].getName()));
+            } else {
+                states.add(new SlotState(id, CATEGORIES[types[row]].getName(), Registration.decode(registrations[row]),
+                        ownerNames.get(owners[row]), CATEGORIES[permits[row]], parkedAt[row]));
+            }
+        }
+        snapshot = new CarParkSnapshot(getVersion(), getClock().millis(), states);
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Deletes all unoccupied parking slots from the car park in a single pass that
+     * keeps the remaining slots in order.
+     */
+    @Override
+    public void deleteAllUnoccupiedSlots() {
+        List<String> deleted = new ArrayList<>();
+        int kept = 0;
+        rowBySlot.clear();
+        rowByRegistration.clear();
+        for (FreeSlotBitmap bitmap : free) {
+            bitmap.clearAll();
+        }
+        for (int row = 0; row < size; row++) {
+            if (registrations[row] == NONE) {
+                getCounters().slotRemoved(CATEGORIES[types[row]], false);
+                if (hasListeners()) {
+                    deleted.add(decodeSlotId(slotKeys[row]));
+                }
+            } else {
+                slotKeys[kept] = slotKeys[row];
+                types[kept] = types[row];
+                registrations[kept] = registrations[row];
+                parkedAt[kept] = parkedAt[row];
+                owners[kept] = owners[row];
+                permits[kept] = permits[row];
+                rowBySlot.put(slotKeys[kept], kept);
+                rowByRegistration.put(registrations[kept], kept);
+                kept++;
+            }
+        }
+        size = kept;
+        markModified();
+        for (String id : deleted) {
+            fireSlotDeleted(id);
+        }
+    }
+
+    /**
+     * Finds a parking slot by its ID.
+     *
+     * @param slotID the ID of the parking slot to find
+     * @return a view of the parking slot, or null if not found
+     */
+    @Override
+    public ParkingSlot findSlotById(String slotID) {
+        int row = rowBySlot.get(encodeSlotId(slotID), NONE);
+        return row == NONE ? null : view(row);
+    }
+
+    /**
+     * Finds the parking slot of a car by its registration number.
+     *
+     * @param registrationNumber the registration number of the car to find
+     * @return a view of the parking slot containing the car, or null if the car is
+     *         not found
+     */
+    @Override
+    public ParkingSlot findSlotByCar(String registrationNumber) {
+        int row = rowByRegistration.get((int) encodeRegistration(Registration.STANDARD, registrationNumber), NONE);
+        return row == NONE ? null : view(row);
+    }
+
+    /**
+     * Parks a car in the slot with the given ID.
+     *
+     * @param slotID the ID of the slot to park in
+     * @param car    the car to park
+     * @return true if the car was parked, false if the slot does not exist, is
+     *         occupied, does not accept the car's permit, or the car is already
+     *         parked
+     */
+    @Override
+    public boolean parkCar(String slotID, Car car) {
+        int row = rowBySlot.get(encodeSlotId(slotID), NONE);
+        if (row != NONE && parkInRow(row, car)) {
+            fireCarParked(decodeSlotId(slotKeys[row]), car);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parks a car in the lowest free row of the best matching category its
+     * owner's permit is eligible for.
+     *
+     * @param car the car to park
+     * @return a view of the slot the car was parked in, or null if no eligible
+     *         slot is free or the car is already parked
+     */
+    @Override
+    public ParkingSlot parkAnywhere(Car car) {
+        for (SlotCategory category : car.getPermit().eligibleSlots()) {
+            int row = free[category.ordinal()].nextSetBit();
+            if (row >= 0) {
+                if (!parkInRow(row, car)) {
+                    return null;
+                }
+                ParkingSlot slot = view(row);
+                fireCarParked(slot.getId(), car);
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a car from the car park by its registration number.
+     *
+     * @param registrationNumber the registration number of the car to remove
+     * @return a view of the slot the car was removed from, or null if the car is
+     *         not found
+     */
+    @Override
+    public ParkingSlot removeCar(String registrationNumber) {
+        int registration = (int) encodeRegistration(Registration.STANDARD, registrationNumber);
+        int row = rowByRegistration.get(registration, NONE);
+        if (row == NONE) {
+            return null;
+        }
+        Car car = hasListeners() ? carAt(row) : null;
+        rowByRegistration.remove(registration);
+        registrations[row] = NONE;
+        releaseOwner(owners[row]);
+        owners[row] = NONE;
+        parkedAt[row] = 0L;
+        free[types[row]].set(row);
+        getCounters().carRemoved(CATEGORIES[types[row]]);
+        markModified();
+        ParkingSlot slot = view(row);
+        fireCarRemoved(slot.getId(), car);
+        return slot;
+    }
+}
@@ -0,0 +1,483 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A car park that can be shared by many entry and exit gate threads at once.
+ * Slots are claimed with a compare-and-set on the slot's occupant, so two gates
+ * can never park into the same slot, and lookups go through concurrent maps so
+ * they never take a lock. Adding and deleting slots copies the slot list but
+ * never blocks gates that are parking or removing cars.
+ * 
+ * Changes are not lock-free. Each change briefly holds one of 64 locks chosen
+ * by slot ID, so listeners hear about changes to the same slot in the order they
+ * happened. Changes to slots with different locks run in parallel. Run
+ * ConcurrentCarParkStress to check the car park under many gate threads.
+ * 
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+
+public class ConcurrentCarPark extends CarPark {
+    private List<ParkingSlot> slots; // Copy-on-write, safe to iterate while slots change
+    private Map<String, ParkingSlot> slotIndex; // canonical slot ID to slot
+    private Map<String, ParkingSlot> carIndex; // canonical registration number to occupied slot
+    private Map<SlotCategory, Queue<ParkingSlot>> freeSlots; // slot category to slots that may be free
+    private Set<ParkingSlot> queued; // Slots currently in a free queue, so none is queued twice
+    private Object[] stripes; // Locks that keep changes to the same slot ID in order
+    private volatile CarParkSnapshot lastSnapshot; // reused until the next change
+
+    /**
+     * Constructs a ConcurrentCarPark with the specified number of staff and
+     * visitor slots.
+     *
+     * @param staffSlots   the number of staff slots
+     * @param visitorSlots the number of visitor slots
+     */
+    public ConcurrentCarPark(int staffSlots, int visitorSlots) {
+        this(slotCounts(staffSlots, visitorSlots));
+    }
+
+    /**
+     * Constructs a ConcurrentCarPark with the specified number of slots of each
+     * category.
+     *
+     * @param slotCounts the number of slots of each category
+     */
+    public ConcurrentCarPark(Map<SlotCategory, Integer> slotCounts) {
+        super(0, 0);
+        slots = new CopyOnWriteArrayList<>();
+        slotIndex = new ConcurrentHashMap<>();
+        carIndex = new ConcurrentHashMap<>();
+        freeSlots = new EnumMap<>(SlotCategory.class); // Filled once here, only read afterwards
+        queued = ConcurrentHashMap.newKeySet();
+        for (SlotCategory category : SlotCategory.values()) {
+            freeSlots.put(category, new ConcurrentLinkedQueue<>());
+        }
+        stripes = new Object[64];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Object();
+        }
+        List<ParkingSlot> initialSlots = new ArrayList<>();
+        for (Map.Entry<SlotCategory, Integer> entry : slotCounts.entrySet()) {
+            SlotCategory category = entry.getKey();
+            for (int i = 1; i <= entry.getValue(); i++) {
+                initialSlots.add(new ParkingSlot(category.getPrefix() + String.format("%02d", i), category));
+            }
+        }
+        addSlots(initialSlots);
+    }
+
+    /**
+     * Returns the queue of possibly free slots for a slot category.
+     * 
+     * @param category the slot category
+     * @return the queue of possibly free slots of that category
+     */
+    private Queue<ParkingSlot> freeSlotsFor(SlotCategory category) {
+        return freeSlots.get(category);
+    }
+
+    /**
+     * Puts a slot on the queue of free slots of its category, unless it is
+     * already queued. Parking by slot ID leaves the slot on the queue, so without
+     * this every later removal would queue it again.
+     * 
+     * @param slot the slot that may be free
+     */
+    private void offerFree(ParkingSlot slot) {
+        if (queued.add(slot)) {
+            freeSlotsFor(slot.getCategory()).offer(slot);
+        }
+    }
+
+    /**
+     * Takes the next slot that may be free off the queue of a slot category.
+     * 
+     * @param category the slot category
+     * @return the slot, or null if the queue is empty
+     */
+    private ParkingSlot pollFree(SlotCategory category) {
+        ParkingSlot slot = freeSlotsFor(category).poll();
+        if (slot != null) {
+            queued.remove(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Takes a deleted slot off the queue of free slots of its category.
+     * 
+     * @param slot the deleted slot
+     */
+    private void unqueue(ParkingSlot slot) {
+        if (queued.remove(slot)) {
+            freeSlotsFor(slot.getCategory()).remove(slot);
+        }
+    }
+
+    /**
+     * Counts the slots waiting on the free queues, which is never more than the
+     * number of slots in the car park.
+     * 
+     * @return the number of queued slots
+     */
+    int queuedSlotCount() {
+        int count = 0;
+        for (Queue<ParkingSlot> queue : freeSlots.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the lock held while a slot with the given ID changes.
+     * 
+     * @param slotID the slot ID
+     * @return the lock for the slot ID
+     */
+    private Object stripeFor(String slotID) {
+        int h = canonicalSlotId(slotID).hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * Adds a parking slot to the car park. The slot is ignored if a slot with the
+     * same ID already exists. A car already parked in the slot is added to the
+     * car index, so it can be found and removed like any other car.
+     * 
+     * @param slot the parking slot to add
+     * @throws IllegalArgumentException if the slot holds a car whose registration
+     *                                  number is not valid or is already parked
+     */
+    @Override
+    public void addSlot(ParkingSlot slot) {
+        synchronized (stripeFor(slot.getId())) { // Held on into the list so a delete cannot come between
+            if (index(slot)) {
+                slots.add(slot);
+            }
+        }
+    }
+
+    /**
+     * Adds several parking slots to the car park, copying the slot list once
+     * rather than once per slot. Slots whose IDs already exist are ignored.
+     * 
+     * @param newSlots the parking slots to add
+     * @throws IllegalArgumentException if a slot holds a car whose registration
+     *                                  number is not valid or is already parked;
+     *                                  the slots before it are still added
+     */
+    @Override
+    public void addSlots(List<ParkingSlot> newSlots) {
+        List<ParkingSlot> added = new ArrayList<>(newSlots.size());
+        try {
+            for (ParkingSlot slot : newSlots) {
+                if (index(slot)) {
+                    added.add(slot);
+                }
+            }
+        } finally {
+            slots.addAll(added);
+            slots.removeIf(ParkingSlot::isRetired); // Deleted by another thread before it reached the list
+        }
+    }
+
+    /**
+     * Adds a slot to the slot index under its stripe lock. A car already parked
+     * in the slot claims its registration in the car index first, and an exit
+     * gate removing that car waits on the same lock until the slot is in place.
+     * 
+     * @param slot the slot to add
+     * @return true if the slot was added, false if its ID already exists
+     * @throws IllegalArgumentException if the slot holds a car whose registration
+     *                                  number is not valid or is already parked
+     */
+    private boolean index(ParkingSlot slot) {
+        synchronized (stripeFor(slot.getId())) {
+            String key = canonicalSlotId(slot.getId());
+            if (slotIndex.containsKey(key)) {
+                return false;
+            }
+            Car car = slot.getParkedCar();
+            if (car != null && (encodeRegistration(getRegistrationFormat(), car.getRegistrationNumber()) < 0
+                    || carIndex.putIfAbsent(canonicalRegistration(car.getRegistrationNumber()), slot) != null)) {
+                throw new IllegalArgumentException("Slot " + slot.getId() + " holds car " + car.getRegistrationNumber()
+                        + ", which is not a valid registration number or is already parked");
+            }
+            slotIndex.put(key, slot);
+            if (car == null) {
+                offerFree(slot);
+            }
+            getCounters().slotAdded(slot.getCategory(), car != null);
+            markModified();
+            fireSlotAdded(slot);
+            return true;
+        }
+    }
+
+    /**
+     * Does nothing, the concurrent indexes grow in place without blocking gates.
+     * Add large layouts through addSlots so the slot list is copied once per
+     * batch rather than once per slot.
+     * 
+     * @param slotCount the total number of slots to make room for
+     */
+    @Override
+    public void ensureCapacity(int slotCount) {
+    }
+
+    /**
+     * Deletes a parking slot if it exists and is not occupied. The slot is retired
+     * first, so a gate cannot park into it while it is being deleted.
+     * 
+     * @param slotID the ID of the parking slot to delete
+     * @return true if the slot was successfully deleted, false otherwise
+     */
+    @Override
+    public boolean deleteSlot(String slotID) {
+        ParkingSlot slot = slotIndex.get(canonicalSlotId(slotID));
+        if (slot == null) {
+            return false;
+        }
+        synchronized (stripeFor(slotID)) {
+            if (slot.retire() && slotIndex.remove(canonicalSlotId(slotID), slot)) {
+                unqueue(slot);
+                getCounters().slotRemoved(slot.getCategory(), false);
+                markModified();
+                slots.remove(slot);
+                fireSlotDeleted(slot.getId());
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes a snapshot of every slot at one version of the car park. Every
+     * stripe lock is held while the slots are copied, so no car is seen half way
+     * through parking or leaving, and gates wait for the copy to finish.
+     * Snapshots are reused until the car park next changes.
+     * 
+     * @return a snapshot of the car park
+     */
+    @Override
+    public CarParkSnapshot snapshot() {
+        CarParkSnapshot snapshot = lastSnapshot;
+        if (snapshot != null && snapshot.getVersion() == getVersion()) {
+            return snapshot;
+        }
+        snapshot = snapshotLocked(0);
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Takes the stripe locks from the given one up, always in the same order,
+     * then copies the slots.
+     * 
+     * @param stripe the first stripe lock still to take
+     * @return a snapshot of the car park
+     */
+    private CarParkSnapshot snapshotLocked(int stripe) {
+        if (stripe < stripes.length) {
+            synchronized (stripes[stripe]) {
+                return snapshotLocked(stripe + 1);
+            }
+        }
+        List<SlotState> states = new ArrayList<>(slotIndex.size());
+        Set<ParkingSlot> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ParkingSlot slot : slots) {
+            if (slotIndex.get(canonicalSlotId(slot.getId())) == slot && copied.add(slot)) {
+                states.add(SlotState.of(slot));
+            }
+        }
+        if (copied.size() < slotIndex.size()) {
+            for (ParkingSlot slot : slotIndex.values()) {
+                if (copied.add(slot)) {
+                    states.add(SlotState.of(slot)); // Still being added by addSlots
+                }
+            }
+        }
+        return new CarParkSnapshot(getVersion(), getClock().millis(), states);
+    }
+
+    /**
+     * Lists all parking slots in the car park. The list is read-only and can be
+     * iterated safely while other threads change the car park.
+     * 
+     * @return a list of parking slots
+     */
+    @Override
+    public List<ParkingSlot> listSlots() {
+        return Collections.unmodifiableList(slots);
+    }
+
+    /**
+     * Deletes all unoccupied parking slots from the car park.
+     */
+    @Override
+    public void deleteAllUnoccupiedSlots() {
+        for (ParkingSlot slot : slots) {
+            synchronized (stripeFor(slot.getId())) {
+                if (slot.retire() && slotIndex.remove(canonicalSlotId(slot.getId()), slot)) {
+                    queued.remove(slot);
+                    getCounters().slotRemoved(slot.getCategory(), false);
+                    markModified();
+                    fireSlotDeleted(slot.getId());
+                }
+            }
+        }
+        slots.removeIf(ParkingSlot::isRetired);
+        for (Queue<ParkingSlot> queue : freeSlots.values()) {
+            queue.removeIf(ParkingSlot::isRetired); // One pass per queue rather than one per deleted slot
+        }
+    }
+
+    /**
+     * Finds a parking slot by its ID.
+     * 
+     * @param slotID the ID of the parking slot to find
+     * @return the parking slot with the specified ID, or null if not found
+     */
+    @Override
+    public ParkingSlot findSlotById(String slotID) {
+        return slotIndex.get(canonicalSlotId(slotID));
+    }
+
+    /**
+     * Finds the parking slot of a car by its registration number.
+     * 
+     * @param registrationNumber the registration number of the car to find
+     * @return the parking slot containing the car, or null if the car is not found
+     */
+    @Override
+    public ParkingSlot findSlotByCar(String registrationNumber) {
+        return carIndex.get(canonicalRegistration(registrationNumber));
+    }
+
+    /**
+     * Parks a car in the slot with the given ID. The registration number is
+     * reserved in the car index first so the same car cannot be parked at two
+     * gates at once, and the reservation is released if the slot cannot be
+     * claimed.
+     * 
+     * @param slotID the ID of the slot to park in
+     * @param car    the car to park
+     * @return true if the car was parked, false if the slot does not exist, is
+     *         occupied, is of the wrong type, the registration number is invalid
+     *         or the car is already parked
+     */
+    @Override
+    public boolean parkCar(String slotID, Car car) {
+        ParkingSlot slot = slotIndex.get(canonicalSlotId(slotID));
+        return slot != null && claim(slot, car);
+    }
+
+    /**
+     * Parks a car in any free slot its owner's permit is eligible for, trying the
+     * best matching category first. Slots that turn out to be taken by another
+     * gate are skipped. The registration number is checked before any slot is
+     * taken off a queue, and a slot that could not be claimed goes back on its
+     * queue, so a bad plate or a car that is already parked never uses up slots.
+     * 
+     * @param car the car to park
+     * @return the slot the car was parked in, or null if no eligible slot is free,
+     *         the registration number is invalid or the car is already parked
+     */
+    @Override
+    public ParkingSlot parkAnywhere(Car car) {
+        if (encodeRegistration(getRegistrationFormat(), car.getRegistrationNumber()) < 0
+                || findSlotByCar(car.getRegistrationNumber()) != null) {
+            return null;
+        }
+        for (SlotCategory category : car.getPermit().eligibleSlots()) {
+            ParkingSlot slot;
+            while ((slot = pollFree(category)) != null) {
+                if (slot.isOccupied() || slot.isRetired()) {
+                    continue; // Taken by another gate or deleted, it is queued again once freed
+                }
+                if (claim(slot, car)) {
+                    return slot;
+                }
+                if (!slot.isOccupied() && !slot.isRetired()) {
+                    offerFree(slot); // Still free, so it stays available to other gates
+                }
+                if (findSlotByCar(car.getRegistrationNumber()) != null) {
+                    return null; // Parked at another gate in the meantime
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claims a slot for a car.
+     * 
+     * @param slot the slot to claim
+     * @param car  the car to park
+     * @return true if the car was parked, false otherwise
+     */
+    private boolean claim(ParkingSlot slot, Car car) {
+        if (encodeRegistration(getRegistrationFormat(), car.getRegistrationNumber()) < 0) {
+            return false;
+        }
+        String registration = canonicalRegistration(car.getRegistrationNumber());
+        if (carIndex.putIfAbsent(registration, slot) != null) {
+            return false;
+        }
+        synchronized (stripeFor(slot.getId())) {
+            if (slot.parkCar(car)) {
+                // The reservation stays in place, since exit gates only release it once the car has left
+                getCounters().carParked(slot.getCategory());
+                markModified();
+                fireCarParked(slot.getId(), car);
+                return true;
+            }
+            Car occupant = slot.getParkedCar();
+            if (occupant == null || !registration.equals(canonicalRegistration(occupant.getRegistrationNumber()))) {
+                // Keep the entry if another gate has just parked this same car in the slot
+                carIndex.remove(registration, slot);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a car from the car park by its registration number. When two gates
+     * remove the same car at once only one of them gets the slot back.
+     * 
+     * @param registrationNumber the registration number of the car to remove
+     * @return the slot the car was removed from, or null if the car is not found
+     */
+    @Override
+    public ParkingSlot removeCar(String registrationNumber) {
+        String registration = canonicalRegistration(registrationNumber);
+        ParkingSlot slot = carIndex.get(registration);
+        if (slot == null) {
+            return null;
+        }
+        synchronized (stripeFor(slot.getId())) {
+            Car car = slot.getParkedCar();
+            if (car == null || !registration.equals(canonicalRegistration(car.getRegistrationNumber()))
+                    || !slot.removeCar(car)) {
+                return null; // Still being parked, or already removed by another gate
+            }
+            // Released only once the slot is empty, so the car is never in two slots at once
+            carIndex.remove(registration, slot);
+            offerFree(slot);
+            getCounters().carRemoved(slot.getCategory());
+            markModified();
+            fireCarRemoved(slot.getId(), car);
+        }
+        return slot;
+    }
+}
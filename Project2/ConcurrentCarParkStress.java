@@ -0,0 +1,215 @@
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs many gate threads against one ConcurrentCarPark at once, then checks
+ * that the occupancy counters, the slot and car indexes and the slots
+ * themselves all agree. Each thread parks by slot ID and anywhere, removes
+ * cars, tries plates that are not valid, and adds and deletes extra slots,
+ * some of them with a car already parked in them.
+ * Run it with the number of threads and operations per thread as optional
+ * arguments (32 threads and 20,000 operations by default). It exits with
+ * status 1 if any check fails.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+
+public class ConcurrentCarParkStress {
+    private static final int SLOTS_PER_CATEGORY = 50; // Slots of each category at the start
+    private static final int EXTRA_SLOTS = 20; // Visitor slots added and deleted while the gates run
+    private static final int PLATES = 12; // Plates per letter, fewer than the slots so gates race for cars
+
+    private static int failures; // Number of failed checks
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        Map<SlotCategory, Integer> slotCounts = new EnumMap<>(SlotCategory.class);
+        for (SlotCategory category : SlotCategory.values()) {
+            slotCounts.put(category, SLOTS_PER_CATEGORY);
+        }
+        ConcurrentCarPark carPark = new ConcurrentCarPark(slotCounts);
+        AtomicLong parkedEvents = new AtomicLong();
+        AtomicLong removedEvents = new AtomicLong();
+        carPark.addListener(new CarParkListener() {
+            @Override
+            public void slotAdded(ParkingSlot slot) {
+                if (slot.isOccupied()) {
+                    parkedEvents.incrementAndGet(); // Added with a car already in it
+                }
+            }
+
+            @Override
+            public void slotDeleted(String slotId) {
+            }
+
+            @Override
+            public void carParked(String slotId, Car car) {
+                parkedEvents.incrementAndGet();
+            }
+
+            @Override
+            public void carRemoved(String slotId, Car car) {
+                removedEvents.incrementAndGet();
+            }
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> gates = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread gate = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < operations; i++) {
+                    runOperation(carPark);
+                }
+            }, "gate-" + t);
+            gates.add(gate);
+            gate.start();
+        }
+        long started = System.nanoTime();
+        start.countDown();
+        for (Thread gate : gates) {
+            gate.join();
+        }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        System.out.println(threads + " gates ran " + (long) threads * operations + " operations in " + elapsedMillis
+                + " ms");
+
+        checkConsistency(carPark, parkedEvents.get() - removedEvents.get());
+        checkEveryFreeSlotCanBeFilled(carPark);
+
+        if (failures > 0) {
+            System.out.println(failures + " check(s) failed.");
+            System.exit(1);
+        }
+        System.out.println("All checks passed.");
+    }
+
+    /**
+     * Runs one randomly chosen gate operation.
+     *
+     * @param carPark the car park to change
+     */
+    private static void runOperation(ConcurrentCarPark carPark) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        SlotCategory[] categories = SlotCategory.values();
+        SlotCategory permit = categories[random.nextInt(categories.length)];
+        String plate = (char) ('A' + random.nextInt(26)) + String.format("%04d", random.nextInt(PLATES));
+        int operation = random.nextInt(100);
+        if (operation < 30) {
+            carPark.parkAnywhere(new Car(plate, "Owner", permit, carPark.getClock()));
+        } else if (operation < 55) {
+            SlotCategory category = categories[random.nextInt(categories.length)];
+            String slotId = category.getPrefix() + String.format("%02d", 1 + random.nextInt(SLOTS_PER_CATEGORY));
+            carPark.parkCar(slotId, new Car(plate, "Owner", permit, carPark.getClock()));
+        } else if (operation < 90) {
+            carPark.removeCar(random.nextBoolean() ? plate : " " + plate.toLowerCase() + " ");
+        } else if (operation < 93) {
+            carPark.parkAnywhere(new Car("BAD" + plate, "Owner", permit, carPark.getClock()));
+        } else if (operation < 97) {
+            String slotId = "V" + (SLOTS_PER_CATEGORY + 1 + random.nextInt(EXTRA_SLOTS));
+            ParkingSlot slot = new ParkingSlot(slotId, SlotCategory.VISITOR);
+            if (random.nextBoolean()) {
+                slot.parkCar(new Car(plate, "Owner", SlotCategory.VISITOR, carPark.getClock()));
+            }
+            try {
+                carPark.addSlot(slot);
+            } catch (IllegalArgumentException e) {
+                // The car was already parked elsewhere
+            }
+        } else {
+            carPark.deleteSlot("V" + (SLOTS_PER_CATEGORY + 1 + random.nextInt(EXTRA_SLOTS)));
+        }
+    }
+
+    /**
+     * Checks the counters, indexes, listener events and free queues against the
+     * slots themselves.
+     *
+     * @param carPark         the car park to check
+     * @param parkedByEvents  cars parked minus cars removed, as told to listeners
+     */
+    private static void checkConsistency(ConcurrentCarPark carPark, long parkedByEvents) {
+        Map<SlotCategory, long[]> counted = new EnumMap<>(SlotCategory.class);
+        for (SlotCategory category : SlotCategory.values()) {
+            counted.put(category, new long[2]);
+        }
+        long occupied = 0;
+        List<ParkingSlot> slots = carPark.listSlots();
+        for (ParkingSlot slot : slots) {
+            long[] totals = counted.get(slot.getCategory());
+            totals[0]++;
+            check(carPark.findSlotById(slot.getId()) == slot, "slot index does not hold " + slot.getId());
+            check(!slot.isRetired(), "deleted slot " + slot.getId() + " is still listed");
+            if (slot.isOccupied()) {
+                totals[1]++;
+                occupied++;
+                String plate = slot.getParkedCar().getRegistrationNumber();
+                check(carPark.findSlotByCar(plate) == slot, "car index does not hold " + plate);
+                check(slot.getCategory().accepts(slot.getParkedCar().getPermit()),
+                        plate + " is parked in " + slot.getId() + " without a permit for it");
+            }
+        }
+
+        OccupancyStats stats = carPark.getStats();
+        for (SlotCategory category : SlotCategory.values()) {
+            long[] totals = counted.get(category);
+            check(stats.getTotal(category) == totals[0], category.getLabel() + " slot counter is "
+                    + stats.getTotal(category) + " but " + totals[0] + " slots are listed");
+            check(stats.getOccupied(category) == totals[1], category.getLabel() + " occupied counter is "
+                    + stats.getOccupied(category) + " but " + totals[1] + " slots are occupied");
+        }
+        check(parkedByEvents == occupied, "listeners saw " + parkedByEvents + " cars parked but " + occupied
+                + " slots are occupied");
+        check(carPark.queuedSlotCount() <= slots.size(), carPark.queuedSlotCount()
+                + " slots are queued as free but the car park only has " + slots.size());
+        System.out.println(slots.size() + " slots, " + occupied + " occupied, " + carPark.queuedSlotCount()
+                + " queued as free");
+    }
+
+    /**
+     * Checks that parking anywhere fills every free slot, so no free slot has
+     * been lost from the free queues.
+     *
+     * @param carPark the car park to fill
+     */
+    private static void checkEveryFreeSlotCanBeFilled(ConcurrentCarPark carPark) {
+        long free = carPark.getStats().getFree();
+        long filled = 0;
+        int plate = PLATES; // Above every plate the gates used
+        for (SlotCategory permit : SlotCategory.values()) {
+            while (carPark.parkAnywhere(new Car("Z" + String.format("%04d", plate), "Owner", permit,
+                    carPark.getClock())) != null) {
+                filled++;
+                plate++;
+            }
+            plate++;
+        }
+        check(carPark.getStats().getFree() == 0, carPark.getStats().getFree() + " slots are still free after filling");
+        check(filled == free, "filled " + filled + " slots but " + free + " were free");
+    }
+
+    /**
+     * Reports a failed check.
+     *
+     * @param passed  whether the check passed
+     * @param message what went wrong if it did not
+     */
+    private static void check(boolean passed, String message) {
+        if (!passed) {
+            failures++;
+            System.out.println("FAILED: " + message);
+        }
+    }
+}
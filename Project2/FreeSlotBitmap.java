@@ -0,0 +1,101 @@
+import java.util.Arrays;
+
+/**
+ * A two-level bitmap used to track which positions in a slot pool are free.
+ * The lower level holds one bit per position, and the summary level holds one
+ * bit per 64-bit word of the lower level that has at least one bit set. Finding
+ * the lowest set bit therefore only looks at the first non-empty summary word
+ * and a single lower level word, so it stays fast however large the pool grows.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+class FreeSlotBitmap {
+    private long[] words; // One bit per position
+    private long[] summary; // One bit per non-empty word
+
+    /**
+     * Constructs an empty bitmap able to hold the given number of positions
+     * before it needs to grow.
+     *
+     * @param capacity the initial number of positions
+     */
+    public FreeSlotBitmap(int capacity) {
+        words = new long[Math.max(1, (capacity + 63) >>> 6)];
+        summary = new long[Math.max(1, (words.length + 63) >>> 6)];
+    }
+
+    /**
+     * Sets the bit for a position, growing the bitmap if needed.
+     *
+     * @param position the position to set
+     */
+    public void set(int position) {
+        int word = position >>> 6;
+        if (word >= words.length) {
+            grow(word + 1);
+        }
+        words[word] |= 1L << position;
+        summary[word >>> 6] |= 1L << word;
+    }
+
+    /**
+     * Clears the bit for a position.
+     *
+     * @param position the position to clear
+     */
+    public void clear(int position) {
+        int word = position >>> 6;
+        if (word >= words.length) {
+            return;
+        }
+        words[word] &= ~(1L << position);
+        if (words[word] == 0) {
+            summary[word >>> 6] &= ~(1L << word);
+        }
+    }
+
+    /**
+     * Checks whether the bit for a position is set.
+     *
+     * @param position the position to check
+     * @return true if the bit is set, false otherwise
+     */
+    public boolean get(int position) {
+        int word = position >>> 6;
+        return word < words.length && (words[word] & (1L << position)) != 0;
+    }
+
+    /**
+     * Returns the lowest set position.
+     *
+     * @return the lowest set position, or -1 if no bit is set
+     */
+    public int nextSetBit() {
+        for (int s = 0; s < summary.length; s++) {
+            if (summary[s] != 0) {
+                int word = (s << 6) + Long.numberOfTrailingZeros(summary[s]);
+                return (word << 6) + Long.numberOfTrailingZeros(words[word]);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Clears every bit.
+     */
+    public void clearAll() {
+        Arrays.fill(words, 0L);
+        Arrays.fill(summary, 0L);
+    }
+
+    /**
+     * Grows the bitmap so it holds at least the given number of words.
+     *
+     * @param minWords the minimum number of lower level words
+     */
+    private void grow(int minWords) {
+        words = Arrays.copyOf(words, Math.max(minWords, words.length * 2));
+        summary = Arrays.copyOf(summary, (words.length + 63) >>> 6);
+    }
+}
@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A CarParkStore that keeps the state of every slot in memory. It lasts only as
+ * long as the program, so it suits tests and short simulations, and one store
+ * can be attached to a fresh car park to carry the slots and cars across.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class InMemoryCarParkStore implements CarParkStore {
+    private Map<String, SlotState> slots = new LinkedHashMap<>(); // canonical slot ID to state, guarded by this
+    private CarPark carPark; // null until attached or once closed
+
+    @Override
+    public synchronized void attach(CarPark carPark) {
+        if (slots.isEmpty()) {
+            for (ParkingSlot slot : carPark.listSlots()) {
+                slots.put(key(slot.getId()), SlotState.of(slot));
+            }
+        } else {
+            CarParkSnapshotFile.restore(new CarParkSnapshot(0, carPark.getClock().millis(), getSlots()), carPark);
+        }
+        this.carPark = carPark;
+        carPark.addListener(this);
+    }
+
+    /**
+     * Returns the stored state of every slot, in the order the slots were added.
+     *
+     * @return a copy of the stored slot states
+     */
+    public synchronized List<SlotState> getSlots() {
+        return new ArrayList<>(slots.values());
+    }
+
+    /**
+     * Returns the key a slot is stored under. Slot IDs are matched
+     * case-insensitively, like in the car park.
+     *
+     * @param slotId the slot ID
+     * @return the upper case slot ID
+     */
+    private static String key(String slotId) {
+        return slotId.trim().toUpperCase(Locale.ROOT);
+    }
+
+    @Override
+    public synchronized void slotAdded(ParkingSlot slot) {
+        slots.put(key(slot.getId()), SlotState.of(slot));
+    }
+
+    @Override
+    public synchronized void slotDeleted(String slotId) {
+        slots.remove(key(slotId));
+    }
+
+    @Override
+    public synchronized void carParked(String slotId, Car car) {
+        SlotState slot = slots.get(key(slotId));
+        if (slot != null) {
+            slots.put(key(slotId), new SlotState(slot.getId(), slot.getType(), car.getRegistrationNumber(),
+                    car.getOwnerName(), car.getPermit(), car.getParkedTimeMillis()));
+        }
+    }
+
+    @Override
+    public synchronized void carRemoved(String slotId, Car car) {
+        SlotState slot = slots.get(key(slotId));
+        if (slot != null) {
+            slots.put(key(slotId), new SlotState(slot.getId(), slot.getType()));
+        }
+    }
+
+    /**
+     * Does nothing, every change is stored as soon as it is heard.
+     */
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Stops recording changes. The stored slots are kept, so the store can be
+     * attached to another car park.
+     */
+    @Override
+    public synchronized void close() {
+        if (carPark != null) {
+            carPark.removeListener(this);
+            carPark = null;
+        }
+    }
+}
@@ -0,0 +1,464 @@
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A CarParkStore that keeps one row per slot in a table of an embedded
+ * database, such as an H2 or SQLite file, so reports can query the car park
+ * with SQL. The database's JDBC driver must be on the classpath, and a URL such
+ * as jdbc:h2:./carpark or jdbc:sqlite:carpark.db keeps everything in a local
+ * file with no server to run.
+ *
+ * Changes are queued on the thread that made them and written by a background
+ * thread, so gates never wait for the database. The writer takes everything
+ * queued so far and writes it in one transaction through prepared statements,
+ * batching each run of changes that use the same statement, so a busy car park
+ * costs one commit per batch rather than one per car. Parking and removing a
+ * car both update the slot's row, so long runs of gate traffic go out as a
+ * single batch. Attaching loads every slot with one streaming query.
+ *
+ * A batch that fails is rolled back and tried again a few times, so a database
+ * that is briefly busy or locked does not stop the store. If it still fails,
+ * the store stops writing and flush() and close() throw the failure, along with
+ * how many changes were not saved. Slot IDs longer than the slot_id column
+ * also stop the store, as the slot could not be saved. Owner names longer than
+ * the owner_name column are cut short, and registration numbers are saved in
+ * their trimmed upper case form, which always fits.
+ *
+ * So far the store has only been run against a stand-in JDBC driver written for
+ * testing, not against a real H2 or SQLite database.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class JdbcCarParkStore implements CarParkStore {
+    private static final int FETCH_SIZE = 1000; // Rows read at a time when loading
+    private static final int MAX_PENDING = 100_000; // Changes that can wait before gates wait for the writer
+    private static final int MAX_ATTEMPTS = 3; // Tries at writing a batch before the store gives up
+    private static final long RETRY_MILLIS = 200; // Wait before the first retry, doubled for each later one
+    private static final int MAX_ID_LENGTH = 64; // Size of the slot_id column
+    private static final int MAX_OWNER_LENGTH = 255; // Size of the owner_name column
+
+    // Change types
+    private static final byte ADD_SLOT = 1;
+    private static final byte DELETE_SLOT = 2;
+    private static final byte UPDATE_CAR = 3;
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS parking_slot ("
+            + "slot_id VARCHAR(" + MAX_ID_LENGTH + ") PRIMARY KEY, category VARCHAR(16) NOT NULL, "
+            + "registration VARCHAR(16), "
+            + "owner_name VARCHAR(" + MAX_OWNER_LENGTH + "), permit VARCHAR(16), parked_at BIGINT)";
+    private static final String SELECT = "SELECT slot_id, category, registration, owner_name, permit, parked_at "
+            + "FROM parking_slot";
+    private static final String INSERT = "INSERT INTO parking_slot "
+            + "(slot_id, category, registration, owner_name, permit, parked_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String DELETE = "DELETE FROM parking_slot WHERE slot_id = ?";
+    private static final String UPDATE = "UPDATE parking_slot SET registration = ?, owner_name = ?, permit = ?, "
+            + "parked_at = ? WHERE slot_id = ?";
+
+    private String url; // JDBC URL of the database
+    private CarPark carPark; // null until attached
+    private Connection connection; // Only used by the writer once attached
+    private Object lock = new Object(); // Guards everything below
+    private ArrayDeque<Change> pending = new ArrayDeque<>(); // Changes waiting for the writer
+    private long queued; // Number of changes queued
+    private long stored; // Number of changes committed
+    private boolean closed;
+    private IOException failure; // Set if the writer could not write to the database
+    private long unsaved; // Changes lost since the failure, including the batch that failed
+    private Thread writer;
+
+    /**
+     * One change waiting to be written.
+     */
+    private static final class Change {
+        private final byte type;
+        private final String slotId;
+        private final SlotCategory category; // Only set when a slot is added
+        private final Car car; // The car now in the slot, or null if it is empty
+
+        /**
+         * Constructs a Change.
+         *
+         * @param type     the change type
+         * @param slotId   the slot ID
+         * @param category the category of an added slot, otherwise null
+         * @param car      the car now in the slot, or null if it is empty
+         */
+        private Change(byte type, String slotId, SlotCategory category, Car car) {
+            this.type = type;
+            this.slotId = slotId;
+            this.category = category;
+            this.car = car;
+        }
+    }
+
+    /**
+     * Constructs a JdbcCarParkStore for a database. Nothing is opened until the
+     * store is attached.
+     *
+     * @param url the JDBC URL of the database, e.g. jdbc:h2:./carpark
+     */
+    public JdbcCarParkStore(String url) {
+        this.url = url;
+    }
+
+    @Override
+    public void attach(CarPark carPark) throws IOException {
+        List<SlotState> slots;
+        try {
+            connection = DriverManager.getConnection(url);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_TABLE);
+            }
+            slots = load(carPark.getRegistrationFormat());
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            closeConnection();
+            throw new IOException("Could not open " + url + ": " + e.getMessage(), e);
+        }
+        this.carPark = carPark;
+        if (!slots.isEmpty()) {
+            CarParkSnapshotFile.restore(new CarParkSnapshot(0, carPark.getClock().millis(), slots), carPark);
+        }
+        // Started before an empty table is filled, as a large car park fills the queue
+        writer = new Thread(this::writeLoop, "car-park-store");
+        writer.setDaemon(true);
+        writer.start();
+        if (slots.isEmpty()) {
+            for (ParkingSlot slot : carPark.listSlots()) {
+                slotAdded(slot);
+            }
+        }
+        carPark.addListener(this);
+    }
+
+    /**
+     * Reads every stored slot with a single query, streaming the rows rather
+     * than loading them all into the driver first.
+     *
+     * @param format the registration format of the car park
+     * @return the stored slot states
+     * @throws SQLException if the table cannot be read
+     */
+    private List<SlotState> load(RegistrationFormat format) throws SQLException {
+        List<SlotState> slots = new ArrayList<>();
+        try (Statement statement = connection.createStatement()) {
+            statement.setFetchSize(FETCH_SIZE);
+            try (ResultSet rows = statement.executeQuery(SELECT)) {
+                while (rows.next()) {
+                    String id = rows.getString(1);
+                    String type = rows.getString(2);
+                    String registration = rows.getString(3);
+                    SlotCategory permit = SlotCategory.fromName(rows.getString(5));
+                    if (SlotCategory.fromName(type) == null) {
+                        continue; // Not a category this version knows
+                    }
+                    if (registration == null || permit == null || format.encode(registration) < 0) {
+                        slots.add(new SlotState(id, type));
+                    } else {
+                        slots.add(new SlotState(id, type, registration, rows.getString(4), permit, rows.getLong(6)));
+                    }
+                }
+            }
+        }
+        return slots;
+    }
+
+    @Override
+    public void slotAdded(ParkingSlot slot) {
+        queue(new Change(ADD_SLOT, slot.getId(), slot.getCategory(), slot.getParkedCar()));
+    }
+
+    @Override
+    public void slotDeleted(String slotId) {
+        queue(new Change(DELETE_SLOT, slotId, null, null));
+    }
+
+    @Override
+    public void carParked(String slotId, Car car) {
+        queue(new Change(UPDATE_CAR, slotId, null, car));
+    }
+
+    @Override
+    public void carRemoved(String slotId, Car car) {
+        queue(new Change(UPDATE_CAR, slotId, null, null));
+    }
+
+    /**
+     * Queues a change for the writer, waiting if too many changes are already
+     * waiting. Changes are dropped once the store is closed or has failed, and
+     * the dropped changes are counted in the failure flush() reports. A slot ID
+     * too long for the table fails the store, as the slot could not be saved.
+     *
+     * @param change the change to queue
+     */
+    private void queue(Change change) {
+        synchronized (lock) {
+            if (failure == null && change.type == ADD_SLOT && change.slotId.length() > MAX_ID_LENGTH) {
+                failure = new IOException("Slot ID " + change.slotId.substring(0, MAX_ID_LENGTH) + "... is longer than "
+                        + MAX_ID_LENGTH + " characters and cannot be saved to " + url);
+                unsaved = pending.size();
+                pending.clear();
+                lock.notifyAll();
+            }
+            while (pending.size() >= MAX_PENDING && !closed && failure == null) {
+                try {
+                    lock.wait(); // The writer takes the pending changes soon
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (closed || failure != null) {
+                if (failure != null) {
+                    unsaved++;
+                }
+                return;
+            }
+            pending.add(change);
+            if (queued++ == stored) {
+                lock.notifyAll(); // The writer may be waiting for changes
+            }
+        }
+    }
+
+    /**
+     * Runs on the writer thread, writing whatever changes are pending in one
+     * transaction at a time, until the store is closed.
+     */
+    private void writeLoop() {
+        try (PreparedStatement insert = connection.prepareStatement(INSERT);
+                PreparedStatement delete = connection.prepareStatement(DELETE);
+                PreparedStatement update = connection.prepareStatement(UPDATE)) {
+            while (true) {
+                ArrayDeque<Change> batch;
+                synchronized (lock) {
+                    while (pending.isEmpty() && !closed) {
+                        lock.wait();
+                    }
+                    if (pending.isEmpty()) {
+                        return; // Closed with nothing left to write
+                    }
+                    batch = pending;
+                    pending = new ArrayDeque<>();
+                    lock.notifyAll(); // Gates waiting for room can carry on
+                }
+                SQLException error = writeWithRetries(batch, insert, delete, update);
+                synchronized (lock) {
+                    if (error != null) {
+                        failure = new IOException("Could not write to " + url + ": " + error.getMessage(), error);
+                        unsaved = batch.size() + pending.size();
+                        pending.clear();
+                        lock.notifyAll();
+                        return;
+                    }
+                    stored += batch.size();
+                    lock.notifyAll();
+                }
+            }
+        } catch (SQLException e) {
+            synchronized (lock) {
+                failure = new IOException("Could not prepare statements for " + url + ": " + e.getMessage(), e);
+                unsaved = pending.size();
+                pending.clear();
+                lock.notifyAll();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes a batch, rolling back and trying again after a short wait if it
+     * fails, up to MAX_ATTEMPTS times in all.
+     *
+     * @param batch  the changes to write
+     * @param insert the prepared insert statement
+     * @param delete the prepared delete statement
+     * @param update the prepared update statement
+     * @return null if the batch was written, otherwise the last failure
+     * @throws InterruptedException if the writer is interrupted while waiting to
+     *                              try again
+     */
+    private SQLException writeWithRetries(ArrayDeque<Change> batch, PreparedStatement insert,
+            PreparedStatement delete, PreparedStatement update) throws InterruptedException {
+        SQLException error = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (attempt > 0) {
+                Thread.sleep(RETRY_MILLIS << (attempt - 1));
+            }
+            try {
+                write(batch, insert, delete, update);
+                return null;
+            } catch (SQLException e) {
+                error = e;
+                try {
+                    insert.clearBatch();
+                    delete.clearBatch();
+                    update.clearBatch();
+                    connection.rollback();
+                } catch (SQLException ignored) {
+                    // The write failure is the one worth reporting
+                }
+            }
+        }
+        return error;
+    }
+
+    /**
+     * Writes a batch of changes in order in one transaction. Each run of
+     * changes that use the same statement is sent as one JDBC batch.
+     *
+     * @param batch  the changes to write
+     * @param insert the prepared insert statement
+     * @param delete the prepared delete statement
+     * @param update the prepared update statement
+     * @throws SQLException if the changes cannot be written
+     */
+    private void write(ArrayDeque<Change> batch, PreparedStatement insert, PreparedStatement delete,
+            PreparedStatement update) throws SQLException {
+        PreparedStatement current = null;
+        for (Change change : batch) {
+            PreparedStatement statement = change.type == ADD_SLOT ? insert
+                    : change.type == DELETE_SLOT ? delete : update;
+            if (statement != current && current != null) {
+                current.executeBatch(); // Keep changes to the same slot in order
+            }
+            current = statement;
+            if (statement == insert) {
+                statement.setString(1, change.slotId);
+                statement.setString(2, change.category.getName());
+                setCar(statement, 3, change.car);
+            } else if (statement == delete) {
+                statement.setString(1, change.slotId);
+            } else {
+                setCar(statement, 1, change.car);
+                statement.setString(5, change.slotId);
+            }
+            statement.addBatch();
+        }
+        if (current != null) {
+            current.executeBatch();
+        }
+        connection.commit();
+    }
+
+    /**
+     * Sets the registration, owner, permit and parked time parameters of a
+     * statement from a car, or to null if the slot is empty.
+     *
+     * @param statement the statement
+     * @param first     the index of the registration parameter
+     * @param car       the car, or null if the slot is empty
+     * @throws SQLException if a parameter cannot be set
+     */
+    private static void setCar(PreparedStatement statement, int first, Car car) throws SQLException {
+        if (car == null) {
+            statement.setNull(first, Types.VARCHAR);
+            statement.setNull(first + 1, Types.VARCHAR);
+            statement.setNull(first + 2, Types.VARCHAR);
+            statement.setNull(first + 3, Types.BIGINT);
+        } else {
+            statement.setString(first, CarPark.canonicalRegistration(car.getRegistrationNumber()));
+            statement.setString(first + 1, ownerName(car.getOwnerName()));
+            statement.setString(first + 2, car.getPermit().getName());
+            statement.setLong(first + 3, car.getParkedTimeMillis());
+        }
+    }
+
+    /**
+     * Cuts an owner name short if it is too long for the owner_name column,
+     * without splitting a character made of two chars.
+     *
+     * @param ownerName the owner name
+     * @return the owner name, at most MAX_OWNER_LENGTH chars long
+     */
+    private static String ownerName(String ownerName) {
+        if (ownerName == null || ownerName.length() <= MAX_OWNER_LENGTH) {
+            return ownerName;
+        }
+        int end = MAX_OWNER_LENGTH;
+        if (Character.isHighSurrogate(ownerName.charAt(end - 1))) {
+            end--;
+        }
+        return ownerName.substring(0, end);
+    }
+
+    /**
+     * Returns the failure that stopped the store, with the number of changes it
+     * cost. Must be called while holding the lock.
+     *
+     * @return the failure, or null if the store has not failed
+     */
+    private IOException failure() {
+        if (failure == null) {
+            return null;
+        }
+        return new IOException(failure.getMessage() + " (" + unsaved + " changes were not saved)", failure);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (lock) {
+            long target = queued;
+            while (stored < target && failure == null && writer != null && writer.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the database.", e);
+                }
+            }
+            if (failure != null) {
+                throw failure();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (carPark != null) {
+            carPark.removeListener(this);
+        }
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeConnection();
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure();
+            }
+        }
+    }
+
+    /**
+     * Closes the database connection, if it is open.
+     */
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // Nothing more can be saved either way
+            }
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Loads parking slots into a car park from a layout file, so a large or
+ * multi-site car park can be set up without typing in every slot. Each line
+ * describes one slot, either as comma separated values:
+ *
+ * <pre>
+ * slot_id,category,zone
+ * S01,staff,North
+ * V01,visitor,North
+ * E01,EV,South Level 2
+ * </pre>
+ *
+ * or as a JSON object:
+ *
+ * <pre>
+ * {"id": "S01", "category": "staff", "zone": "North"}
+ * </pre>
+ *
+ * The zone is optional, and if the category is left out it is taken from the
+ * slot ID's prefix. Blank lines, lines starting with # and a header line are
+ * skipped, as are the brackets and trailing commas of a JSON array written one
+ * object per line.
+ *
+ * The file is read once, front to back, through a buffered reader. The car
+ * park is sized for the whole file up front from the line length of its first
+ * block, and slots are added in batches. A line that cannot be used is
+ * recorded in the report and the load carries on with the next line.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public final class LayoutLoader {
+    private static final int BUFFER_CHARS = 64 * 1024;
+    private static final int SAMPLE_BYTES = 64 * 1024; // Read to estimate the number of lines
+    private static final int BATCH_SLOTS = 4096; // Slots added to the car park at a time
+
+    /**
+     * Not used, all methods are static.
+     */
+    private LayoutLoader() {
+    }
+
+    /**
+     * Adds every slot described in a layout file to a car park.
+     *
+     * @param file    the layout file
+     * @param carPark the car park to add the slots to
+     * @return a report of the slots added, their zones and any lines that could
+     *         not be used
+     * @throws IOException if the file cannot be read
+     */
+    public static LayoutReport load(Path file, CarPark carPark) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int expected = estimateLines(channel);
+            int existing = (int) carPark.getStats().getTotal();
+            carPark.ensureCapacity(existing + expected);
+            LayoutReport report = new LayoutReport(expected);
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(Channels.newInputStream(channel.position(0)), StandardCharsets.UTF_8),
+                    BUFFER_CHARS);
+            Set<String> seen = new HashSet<>((int) (expected / 0.75f) + 1); // canonical IDs in the file
+            Batch batch = new Batch();
+            String[] fields = new String[3];
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.endsWith(",") && line.startsWith("{")) {
+                    line = line.substring(0, line.length() - 1).trim(); // Inside a JSON array
+                }
+                if (line.isEmpty() || line.startsWith("#") || line.equals("[") || line.equals("]")) {
+                    continue;
+                }
+                String error = line.startsWith("{") ? parseJson(line, fields) : parseCsv(line, fields);
+                if (error == null && lineNumber == 1 && isHeader(fields)) {
+                    continue;
+                }
+                if (error == null) {
+                    error = addSlot(fields, lineNumber, existing == 0 ? null : carPark, seen, batch);
+                }
+                if (error != null) {
+                    report.problem(lineNumber, error);
+                }
+                if (batch.slots.size() == BATCH_SLOTS) {
+                    batch.flush(carPark, report);
+                }
+            }
+            batch.flush(carPark, report);
+            return report;
+        }
+    }
+
+    /**
+     * Estimates the number of lines in a file from the number of line breaks in
+     * its first block.
+     *
+     * @param channel the file
+     * @return the estimated number of lines
+     * @throws IOException if the file cannot be read
+     */
+    private static int estimateLines(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer sample = ByteBuffer.allocate((int) Math.min(size, SAMPLE_BYTES));
+        while (sample.hasRemaining() && channel.read(sample) >= 0) {
+            // Keep reading until the sample is full
+        }
+        int lines = 1;
+        for (int i = 0; i < sample.position(); i++) {
+            if (sample.get(i) == '\n') {
+                lines++;
+            }
+        }
+        return sample.position() == 0 ? 0 : (int) Math.min(Integer.MAX_VALUE / 2, size * lines / sample.position());
+    }
+
+    /**
+     * Checks whether the fields of the first line are column names.
+     *
+     * @param fields the slot ID, category and zone fields
+     * @return true if the line is a header, false otherwise
+     */
+    private static boolean isHeader(String[] fields) {
+        return fields[1] != null && (fields[1].equalsIgnoreCase("category") || fields[1].equalsIgnoreCase("type"));
+    }
+
+    /**
+     * Splits a comma separated line into its slot ID, category and zone.
+     *
+     * @param line   the line, trimmed
+     * @param fields filled with the slot ID, category and zone, null where missing
+     * @return null if the line was split, otherwise what is wrong with it
+     */
+    private static String parseCsv(String line, String[] fields) {
+        fields[0] = null;
+        fields[1] = null;
+        fields[2] = null;
+        int start = 0;
+        for (int field = 0; field < 3; field++) {
+            int comma = line.indexOf(',', start);
+            int end = comma < 0 ? line.length() : comma;
+            String value = line.substring(start, end).trim();
+            fields[field] = value.isEmpty() ? null : value;
+            if (comma < 0) {
+                return null;
+            }
+            start = comma + 1;
+        }
+        return "expected at most 3 fields (slot ID, category, zone)";
+    }
+
+    /**
+     * Reads the slot ID, category and zone from a one-line JSON object. Only
+     * string values are used, other members are ignored.
+     *
+     * @param line   the line, trimmed
+     * @param fields filled with the slot ID, category and zone, null where missing
+     * @return null if the object was read, otherwise what is wrong with it
+     */
+    private static String parseJson(String line, String[] fields) {
+        fields[0] = null;
+        fields[1] = null;
+        fields[2] = null;
+        if (!line.endsWith("}")) {
+            return "JSON object does not end on the same line";
+        }
+        StringBuilder text = new StringBuilder();
+        int i = 1;
+        int end = line.length() - 1;
+        while (true) {
+            i = skipSpaces(line, i, end);
+            if (i == end) {
+                return null;
+            }
+            if (line.charAt(i) != '"') {
+                return "expected a quoted name at column " + (i + 1);
+            }
+            i = readString(line, i, end, text);
+            if (i < 0) {
+                return "unterminated string";
+            }
+            String name = text.toString();
+            i = skipSpaces(line, i, end);
+            if (i == end || line.charAt(i) != ':') {
+                return "expected ':' after \"" + name + "\"";
+            }
+            i = skipSpaces(line, i + 1, end);
+            String value = null;
+            if (i < end && line.charAt(i) == '"') {
+                i = readString(line, i, end, text);
+                if (i < 0) {
+                    return "unterminated string";
+                }
+                value = text.toString().trim();
+            } else {
+                while (i < end && line.charAt(i) != ',') {
+                    i++; // A number, true, false or null
+                }
+            }
+            if (name.equals("id") || name.equals("slotId") || name.equals("slot_id")) {
+                fields[0] = value;
+            } else if (name.equals("category") || name.equals("type")) {
+                fields[1] = value;
+            } else if (name.equals("zone")) {
+                fields[2] = value;
+            }
+            i = skipSpaces(line, i, end);
+            if (i < end) {
+                if (line.charAt(i) != ',') {
+                    return "expected ',' at column " + (i + 1);
+                }
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Skips spaces and tabs.
+     *
+     * @param line  the line
+     * @param i     the index to start at
+     * @param end   the index to stop at
+     * @return the index of the next other character, or end
+     */
+    private static int skipSpaces(String line, int i, int end) {
+        while (i < end && (line.charAt(i) == ' ' || line.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Reads a JSON string, decoding its escapes.
+     *
+     * @param line the line
+     * @param i    the index of the opening quote
+     * @param end  the index to stop at
+     * @param text cleared and filled with the decoded string
+     * @return the index after the closing quote, or -1 if there is none
+     */
+    private static int readString(String line, int i, int end, StringBuilder text) {
+        text.setLength(0);
+        for (i++; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                return i + 1;
+            }
+            if (c == '\\' && i + 1 < end) {
+                c = line.charAt(++i);
+                if (c == 'u' && i + 4 < end) {
+                    try {
+                        c = (char) Integer.parseInt(line.substring(i + 1, i + 5), 16);
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                    i += 4;
+                } else if (c == 'n') {
+                    c = '\n';
+                } else if (c == 't') {
+                    c = '\t';
+                }
+            }
+            text.append(c);
+        }
+        return -1;
+    }
+
+    /**
+     * Checks the fields of one line and queues its slot to be added.
+     *
+     * @param fields     the slot ID, category and zone
+     * @param lineNumber the line number
+     * @param carPark    the car park the slot is going into, or null if it had no
+     *                   slots before the load
+     * @param seen       canonical IDs of the slots already queued
+     * @param batch      the batch to queue the slot on
+     * @return null if the slot was queued, otherwise what is wrong with the line
+     */
+    private static String addSlot(String[] fields, long lineNumber, CarPark carPark, Set<String> seen, Batch batch) {
+        String slotId = fields[0];
+        if (slotId == null) {
+            return "missing slot ID";
+        }
+        if (!isSlotId(slotId)) {
+            return "slot ID " + slotId + " must be a letter followed by a number such as 01 or 100";
+        }
+        SlotCategory category = fields[1] == null ? SlotCategory.fromSlotId(slotId) : SlotCategory.fromName(fields[1]);
+        if (category == null) {
+            return fields[1] == null ? "missing category for slot " + slotId
+                    : "unknown category \"" + fields[1] + "\", expected one of " + SlotCategory.names();
+        }
+        String key = slotId.toUpperCase(Locale.ROOT);
+        if (!seen.add(key)) {
+            return "slot " + slotId + " appears more than once";
+        }
+        if (carPark != null && carPark.findSlotById(key) != null) {
+            return "slot " + slotId + " already exists";
+        }
+        batch.add(new ParkingSlot(slotId, category), key, fields[2], lineNumber);
+        return null;
+    }
+
+    /**
+     * Checks that a slot ID is a letter followed by a number of at least two
+     * digits with no extra leading zeros, the format every kind of car park can
+     * store. "S1" and "S001" are rejected, so a layout cannot add both of them
+     * and S01 as three different slots.
+     *
+     * @param slotId the slot ID
+     * @return true if the slot ID is valid, false otherwise
+     */
+    private static boolean isSlotId(String slotId) {
+        return CompactCarPark.encodeSlotId(slotId) >= 0;
+    }
+
+    /**
+     * Slots waiting to be added to the car park together, with the zone and line
+     * number of each.
+     */
+    private static final class Batch {
+        private final List<ParkingSlot> slots = new ArrayList<>(BATCH_SLOTS);
+        private final String[] keys = new String[BATCH_SLOTS]; // Upper case slot IDs
+        private final String[] zones = new String[BATCH_SLOTS];
+        private final long[] lines = new long[BATCH_SLOTS];
+
+        /**
+         * Queues a slot.
+         *
+         * @param slot       the slot
+         * @param key        the upper case slot ID
+         * @param zone       the slot's zone, or null if it has none
+         * @param lineNumber the line the slot is on
+         */
+        private void add(ParkingSlot slot, String key, String zone, long lineNumber) {
+            int i = slots.size();
+            slots.add(slot);
+            keys[i] = key;
+            zones[i] = zone;
+            lines[i] = lineNumber;
+        }
+
+        /**
+         * Adds the waiting slots to the car park. If the car park cannot store
+         * one of them, the slots are added one at a time so only that line is
+         * reported.
+         *
+         * @param carPark the car park
+         * @param report  the report to record the slots and problems in
+         */
+        private void flush(CarPark carPark, LayoutReport report) {
+            try {
+                carPark.addSlots(slots);
+                for (int i = 0; i < slots.size(); i++) {
+                    report.slotAdded(slots.get(i).getId(), keys[i], zones[i]);
+                }
+            } catch (IllegalArgumentException e) {
+                for (int i = 0; i < slots.size(); i++) {
+                    ParkingSlot slot = slots.get(i);
+                    try {
+                        if (carPark.findSlotById(keys[i]) == null) {
+                            carPark.addSlot(slot);
+                        }
+                        report.slotAdded(slot.getId(), keys[i], zones[i]);
+                    } catch (IllegalArgumentException rejected) {
+                        report.problem(lines[i], rejected.getMessage());
+                    }
+                }
+            }
+            slots.clear();
+        }
+    }
+}
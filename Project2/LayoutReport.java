@@ -0,0 +1,127 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The outcome of loading a layout file: how many slots were added, which zone
+ * each slot belongs to, and the lines that could not be used and why.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class LayoutReport {
+    private static final int MAX_PROBLEMS = 1000; // Problems kept for display, the rest are only counted
+
+    private int slotsAdded;
+    private int problemCount;
+    private List<String> problems = new ArrayList<>(); // "Line n: reason" for the first MAX_PROBLEMS problems
+    private Map<String, String> zoneBySlot; // canonical (upper case) slot ID to zone
+    private Map<String, List<String>> slotsByZone = new LinkedHashMap<>(); // zone to slot IDs, in file order
+    private Map<String, String> zoneNames = new HashMap<>(); // The first copy of each zone name read
+
+    /**
+     * Constructs an empty LayoutReport.
+     *
+     * @param expectedSlots the number of slots the layout is expected to hold
+     */
+    LayoutReport(int expectedSlots) {
+        zoneBySlot = new HashMap<>((int) (expectedSlots / 0.75f) + 1);
+    }
+
+    /**
+     * Records a slot that was added.
+     *
+     * @param slotId the slot ID
+     * @param key    the upper case slot ID
+     * @param zone   the slot's zone, or null if it has none
+     */
+    void slotAdded(String slotId, String key, String zone) {
+        slotsAdded++;
+        if (zone != null) {
+            List<String> zoneSlots = slotsByZone.get(zone);
+            if (zoneSlots == null) {
+                zoneSlots = new ArrayList<>();
+                slotsByZone.put(zone, zoneSlots);
+                zoneNames.put(zone, zone);
+            }
+            zoneSlots.add(slotId);
+            zoneBySlot.put(key, zoneNames.get(zone)); // Share one copy of each zone name
+        }
+    }
+
+    /**
+     * Records a line that could not be used.
+     *
+     * @param lineNumber the line number, from 1
+     * @param reason     why the line could not be used
+     */
+    void problem(long lineNumber, String reason) {
+        if (problemCount++ < MAX_PROBLEMS) {
+            problems.add("Line " + lineNumber + ": " + reason);
+        }
+    }
+
+    /**
+     * Returns the number of slots added to the car park.
+     *
+     * @return the number of slots added
+     */
+    public int getSlotsAdded() {
+        return slotsAdded;
+    }
+
+    /**
+     * Returns the number of lines that could not be used.
+     *
+     * @return the number of problem lines
+     */
+    public int getProblemCount() {
+        return problemCount;
+    }
+
+    /**
+     * Returns a description of each line that could not be used, up to the first
+     * thousand.
+     *
+     * @return the problems, e.g. "Line 12: unknown category "bus""
+     */
+    public List<String> getProblems() {
+        return Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Returns the zone of a slot added from the layout.
+     *
+     * @param slotId the slot ID
+     * @return the zone, or null if the slot has no zone or was not in the layout
+     */
+    public String getZone(String slotId) {
+        return slotId == null ? null : zoneBySlot.get(slotId.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns the name of every zone in the layout, in the order they first
+     * appear.
+     *
+     * @return the zone names
+     */
+    public Set<String> getZones() {
+        return Collections.unmodifiableSet(slotsByZone.keySet());
+    }
+
+    /**
+     * Returns the IDs of the slots added to a zone, in file order.
+     *
+     * @param zone the zone name
+     * @return the slot IDs, empty if the zone is not in the layout
+     */
+    public List<String> getSlotsInZone(String zone) {
+        List<String> slotIds = slotsByZone.get(zone);
+        return slotIds == null ? Collections.emptyList() : Collections.unmodifiableList(slotIds);
+    }
+}
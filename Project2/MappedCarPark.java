@@ -0,0 +1,823 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A car park whose slot state lives in a memory-mapped file rather than in Java
+ * objects. The file holds a short header followed by one fixed size record per
+ * row, each made up of an encoded slot ID, an encoded registration number, the
+ * parked time in epoch milliseconds, an index into a dictionary of owner names,
+ * a category byte and a permit byte. Owner names are appended to a small
+ * dictionary file next to it, each with its dictionary index. An index is
+ * reused for a new name once no parked car uses it, and the file is rewritten
+ * with only the names in use when it is opened and whenever replaced names
+ * outnumber them, so neither the heap nor the file grows with visitor turnover.
+ *
+ * Every change is written straight into the mapping, so there is nothing to
+ * save and opening the file again maps the rows back in and rebuilds the
+ * lookup indexes with one pass over them. Each change is completed by a single
+ * int store, the slot ID when adding or deleting and the registration number
+ * when parking or removing, and everything else in the row is written before
+ * it. If the process is killed, only the change in progress is lost. The
+ * operating system writes the mapping to disk in its own time, so force()
+ * must be called to survive a power failure as well.
+ *
+ * Slot IDs and registration numbers must be in the same forms as for a
+ * CompactCarPark, so only the standard registration format is supported, and
+ * the slots returned are detached views of a row in the same way.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+
+public class MappedCarPark extends CarPark implements AutoCloseable {
+    private static final SlotCategory[] CATEGORIES = SlotCategory.values(); // Indexed by category byte
+    private static final int MAGIC = 0x43504D31; // "CPM1" at the start of every slot file
+    private static final int NONE = -1; // Deleted row, empty registration or empty owner
+    private static final int OWNERS_MAGIC = 0x43504F32; // "CPO2" at the start of a dictionary file with indexes
+    private static final int SPARE_OWNER_RECORDS = 1024; // Replaced names allowed before the file is rewritten
+
+    private static final int HEADER_SIZE = 16; // Magic, record size and row count, then padding
+    private static final int ROW_COUNT = 8; // Header offset of the number of rows written
+    private static final int RECORD_SIZE = 24; // Bytes per row, a multiple of 8 so parked times stay aligned
+    private static final int SLOT_KEY = 0; // Record offset of the encoded slot ID, or NONE if deleted
+    private static final int REGISTRATION = 4; // Record offset of the encoded registration, or NONE
+    private static final int PARKED_AT = 8; // Record offset of the parked time
+    private static final int OWNER = 16; // Record offset of the owner dictionary index
+    private static final int TYPE = 20; // Record offset of the slot category byte
+    private static final int PERMIT = 21; // Record offset of the parked car's permit byte
+
+    private Path file; // The slot file
+    private FileChannel channel; // Channel of the slot file, kept open to remap it when it grows
+    private MappedByteBuffer rows; // The mapped header and rows
+    private int rowCount; // Rows written, including deleted ones
+    private FileChannel ownerChannel; // Append-only owner dictionary file
+    private int ownerRecords; // Names in the dictionary file, including replaced ones
+
+    private IntIntMap rowBySlot; // Encoded slot ID to row
+    private IntIntMap rowByRegistration; // Encoded registration number to row
+    private List<String> ownerNames; // Owner dictionary, null where an index is free
+    private Map<String, Integer> ownerIds; // Owner name to dictionary index
+    private int[] ownerUses; // Number of parked cars using each dictionary index
+    private FreeSlotBitmap freeOwners; // Dictionary indexes no parked car uses
+    private FreeSlotBitmap[] free; // Free rows for each slot category
+    private FreeSlotBitmap deleted; // Deleted rows that can be reused
+    private CarParkSnapshot lastSnapshot; // reused until the next change
+
+    /**
+     * Constructs a MappedCarPark. Use open() to create one.
+     *
+     * @param file the slot file
+     */
+    private MappedCarPark(Path file) {
+        super(0, 0);
+        this.file = file;
+        rowBySlot = new IntIntMap(16);
+        rowByRegistration = new IntIntMap(16);
+        ownerNames = new ArrayList<>();
+        ownerIds = new HashMap<>();
+        ownerUses = new int[16];
+        freeOwners = new FreeSlotBitmap(16);
+        free = new FreeSlotBitmap[CATEGORIES.length];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new FreeSlotBitmap(16);
+        }
+        deleted = new FreeSlotBitmap(16);
+    }
+
+    /**
+     * Opens a car park stored in a slot file with the specified number of staff
+     * and visitor slots if the file is new.
+     *
+     * @param file         the slot file
+     * @param staffSlots   the number of staff slots if the file is new
+     * @param visitorSlots the number of visitor slots if the file is new
+     * @return the car park
+     * @throws IOException if the file cannot be read or written, or is not a slot
+     *                     file
+     */
+    public static MappedCarPark open(Path file, int staffSlots, int visitorSlots) throws IOException {
+        return open(file, slotCounts(staffSlots, visitorSlots));
+    }
+
+    /**
+     * Opens a car park stored in a slot file. If the file does not exist yet it
+     * is created with the specified number of slots of each category, otherwise
+     * the slots and cars already in it are used.
+     *
+     * @param file       the slot file
+     * @param slotCounts the number of slots of each category if the file is new
+     * @return the car park
+     * @throws IOException if the file cannot be read or written, or is not a slot
+     *                     file
+     */
+    public static MappedCarPark open(Path file, Map<SlotCategory, Integer> slotCounts) throws IOException {
+        MappedCarPark carPark = new MappedCarPark(file);
+        boolean created = !Files.exists(file);
+        int total = 0;
+        for (int count : slotCounts.values()) {
+            total += count;
+        }
+        carPark.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            carPark.ownerChannel = FileChannel.open(ownerFile(file), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (created || carPark.channel.size() < HEADER_SIZE) {
+                carPark.map(Math.max(16, total));
+                carPark.rows.putInt(0, MAGIC).putInt(4, RECORD_SIZE).putInt(ROW_COUNT, 0);
+                carPark.compactOwners();
+                for (Map.Entry<SlotCategory, Integer> entry : slotCounts.entrySet()) {
+                    SlotCategory category = entry.getKey();
+                    for (int i = 1; i <= entry.getValue(); i++) {
+                        carPark.addRow(CompactCarPark.encodeSlotId(category.getPrefix() + String.format("%02d", i)),
+                                (byte) category.ordinal());
+                    }
+                }
+            } else {
+                carPark.load();
+            }
+        } catch (IOException | RuntimeException e) {
+            carPark.closeChannels();
+            throw e instanceof IOException ? (IOException) e : new IOException("Could not open " + file, e);
+        }
+        return carPark;
+    }
+
+    /**
+     * Returns the owner dictionary file kept next to a slot file.
+     *
+     * @param file the slot file
+     * @return the owner dictionary file
+     */
+    private static Path ownerFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".owners");
+    }
+
+    /**
+     * Maps the slot file with room for at least the given number of rows,
+     * growing the file if needed.
+     *
+     * @param capacity the number of rows to make room for
+     * @throws IOException if the file cannot be mapped
+     */
+    private void map(int capacity) throws IOException {
+        long length = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Slot file cannot hold " + capacity + " rows");
+        }
+        rows = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(length, channel.size()));
+    }
+
+    /**
+     * Returns the number of rows the current mapping has room for.
+     *
+     * @return the row capacity
+     */
+    private int capacity() {
+        return (rows.capacity() - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    /**
+     * Maps an existing slot file, reads the owner dictionary and rebuilds the
+     * lookup indexes and free-slot bitmaps from the rows. The dictionary file is
+     * then rewritten with only the names of parked cars.
+     *
+     * @throws IOException if the file is not a slot file or cannot be read
+     */
+    private void load() throws IOException {
+        map(0);
+        if (rows.getInt(0) != MAGIC || rows.getInt(4) != RECORD_SIZE) {
+            throw new IOException("Not a car park slot file: " + file);
+        }
+        rowCount = Math.min(rows.getInt(ROW_COUNT), capacity());
+        loadOwners();
+        for (int row = 0; row < rowCount; row++) {
+            int at = offset(row);
+            int key = rows.getInt(at + SLOT_KEY);
+            int type = rows.get(at + TYPE);
+            if (key == NONE || type < 0 || type >= CATEGORIES.length || rowBySlot.containsKey(key)) {
+                if (key != NONE) {
+                    rows.putInt(at + SLOT_KEY, NONE); // Not a slot that was fully added
+                }
+                deleted.set(row);
+                continue;
+            }
+            rowBySlot.put(key, row);
+            int registration = rows.getInt(at + REGISTRATION);
+            int owner = rows.getInt(at + OWNER);
+            int permit = rows.get(at + PERMIT);
+            if (registration != NONE && (rowByRegistration.containsKey(registration) || owner < 0
+                    || owner >= ownerNames.size() || ownerNames.get(owner) == null || permit < 0
+                    || permit >= CATEGORIES.length)) {
+                rows.putInt(at + REGISTRATION, NONE); // Not a car that was fully parked
+                registration = NONE;
+            }
+            getCounters().slotAdded(CATEGORIES[type], false);
+            if (registration == NONE) {
+                free[type].set(row);
+            } else {
+                rowByRegistration.put(registration, row);
+                ownerUses[owner]++;
+                getCounters().carParked(CATEGORIES[type]);
+            }
+        }
+        for (int id = 0; id < ownerNames.size(); id++) {
+            if (ownerUses[id] == 0) {
+                dropOwner(id); // Unused, or only used by cars that have left
+            }
+        }
+        compactOwners();
+        markModified();
+    }
+
+    /**
+     * Reads the owner dictionary file, dropping a name that was only partly
+     * written when the process stopped. A later name with the same index
+     * replaces an earlier one. Files written before names carried their index
+     * are read with each name's position as its index.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void loadOwners() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) ownerChannel.size());
+        while (buffer.hasRemaining() && ownerChannel.read(buffer, buffer.position()) >= 0) {
+            // Keep reading until the whole file is in the buffer
+        }
+        buffer.flip();
+        boolean indexed = buffer.remaining() >= 4 && buffer.getInt(0) == OWNERS_MAGIC;
+        if (indexed) {
+            buffer.position(4);
+        }
+        while (buffer.remaining() >= (indexed ? 6 : 2)) {
+            int id = indexed ? buffer.getInt() : ownerRecords;
+            int length = buffer.getShort() & 0xFFFF;
+            if (id < 0 || buffer.remaining() < length) {
+                break;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            while (ownerNames.size() <= id) {
+                ownerNames.add(null);
+            }
+            String replaced = ownerNames.set(id, new String(bytes, StandardCharsets.UTF_8));
+            if (replaced != null) {
+                ownerIds.remove(replaced, id);
+            }
+            ownerIds.put(ownerNames.get(id), id);
+            ownerRecords++;
+        }
+        ownerUses = new int[Math.max(16, ownerNames.size())];
+    }
+
+    /**
+     * Rewrites the owner dictionary file with only the names in use, through a
+     * temporary file that is renamed over it once it is safely on disk. Indexes
+     * are kept, so the rows do not change.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    private void compactOwners() throws IOException {
+        Path owners = ownerFile(file);
+        Path temp = owners.resolveSibling(owners.getFileName() + ".tmp");
+        int records = 0;
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(out, ByteBuffer.allocate(4).putInt(OWNERS_MAGIC).flip());
+            for (int id = 0; id < ownerNames.size(); id++) {
+                if (ownerNames.get(id) != null) {
+                    write(out, ownerRecord(id, ownerNames.get(id).getBytes(StandardCharsets.UTF_8)));
+                    records++;
+                }
+            }
+            out.force(true);
+        }
+        Files.move(temp, owners, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ownerChannel.close();
+        ownerChannel = FileChannel.open(owners, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ownerChannel.position(ownerChannel.size());
+        ownerRecords = records;
+    }
+
+    /**
+     * Encodes one name of the owner dictionary file with its index.
+     *
+     * @param id    the dictionary index
+     * @param bytes the name in UTF-8, at most 65,535 bytes
+     * @return the record, ready to write
+     */
+    private static ByteBuffer ownerRecord(int id, byte[] bytes) {
+        return ByteBuffer.allocate(6 + bytes.length).putInt(id).putShort((short) bytes.length).put(bytes).flip();
+    }
+
+    /**
+     * Writes the whole of a buffer to a channel.
+     *
+     * @param channel the channel to write to
+     * @param buffer  the bytes to write
+     * @throws IOException if the bytes cannot be written
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Returns the byte offset of a row in the mapping.
+     *
+     * @param row the row
+     * @return the offset of the row's record
+     */
+    private static int offset(int row) {
+        return HEADER_SIZE + row * RECORD_SIZE;
+    }
+
+    /**
+     * Returns the dictionary index of an owner name for a newly parked car. A
+     * new name takes the lowest free index and is appended to the dictionary
+     * file, which is rewritten once replaced names outnumber the names in use.
+     *
+     * @param ownerName the owner name
+     * @return the dictionary index of the name, or NONE if it could not be saved
+     */
+    private int ownerId(String ownerName) {
+        Integer id = ownerIds.get(ownerName);
+        if (id == null) {
+            byte[] bytes = ownerName.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                return NONE;
+            }
+            id = freeOwners.nextSetBit();
+            if (id < 0) {
+                id = ownerNames.size();
+            }
+            try {
+                write(ownerChannel, ownerRecord(id, bytes));
+            } catch (IOException e) {
+                return NONE;
+            }
+            ownerRecords++;
+            if (id == ownerNames.size()) {
+                ownerNames.add(ownerName);
+                if (id >= ownerUses.length) {
+                    ownerUses = Arrays.copyOf(ownerUses, id * 2);
+                }
+            } else {
+                freeOwners.clear(id);
+                ownerNames.set(id, ownerName);
+            }
+            ownerIds.put(ownerName, id);
+            if (ownerRecords > 2 * ownerIds.size() + SPARE_OWNER_RECORDS) {
+                try {
+                    compactOwners();
+                } catch (IOException e) {
+                    // The file is only larger than it needs to be, try again after the next new name
+                }
+            }
+        }
+        ownerUses[id]++;
+        return id;
+    }
+
+    /**
+     * Gives up a parked car's use of an owner name, freeing its dictionary index
+     * once no parked car uses it.
+     *
+     * @param id the dictionary index of the name
+     */
+    private void releaseOwner(int id) {
+        if (--ownerUses[id] == 0) {
+            dropOwner(id);
+        }
+    }
+
+    /**
+     * Drops a name from the dictionary so its index can be reused.
+     *
+     * @param id the dictionary index of the name
+     */
+    private void dropOwner(int id) {
+        ownerIds.remove(ownerNames.get(id), id);
+        ownerNames.set(id, null);
+        freeOwners.set(id);
+    }
+
+    /**
+     * Returns the number of owner names in the dictionary that parked cars use.
+     *
+     * @return the number of owner names held
+     */
+    int ownerCount() {
+        return ownerIds.size();
+    }
+
+    /**
+     * Writes an unoccupied row, reusing the lowest deleted row if there is one
+     * and growing the file if needed.
+     *
+     * @param key  the encoded slot ID
+     * @param type the slot category byte
+     * @return the new row
+     * @throws IllegalStateException if the file cannot grow
+     */
+    private int addRow(int key, byte type) {
+        int row = deleted.nextSetBit();
+        if (row < 0) {
+            row = rowCount;
+            if (row == capacity()) {
+                try {
+                    map(row * 2);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not grow " + file, e);
+                }
+            }
+        }
+        int at = offset(row);
+        rows.putInt(at + REGISTRATION, NONE);
+        rows.putLong(at + PARKED_AT, 0L);
+        rows.putInt(at + OWNER, NONE);
+        rows.put(at + TYPE, type);
+        rows.put(at + PERMIT, (byte) 0);
+        rows.putInt(at + SLOT_KEY, key);
+        if (row == rowCount) {
+            rowCount++;
+            rows.putInt(ROW_COUNT, rowCount);
+        } else {
+            deleted.clear(row);
+        }
+        rowBySlot.put(key, row);
+        free[type].set(row);
+        getCounters().slotAdded(CATEGORIES[type], false);
+        markModified();
+        return row;
+    }
+
+    /**
+     * Makes room for at least the given number of slots in total, growing the
+     * file once rather than doubling it repeatedly.
+     *
+     * @param slotCount the total number of slots to make room for
+     * @throws IllegalStateException if the file cannot grow
+     */
+    @Override
+    public void ensureCapacity(int slotCount) {
+        if (slotCount > capacity()) {
+            try {
+                map(slotCount);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not grow " + file, e);
+            }
+        }
+        rowBySlot.ensureCapacity(slotCount);
+    }
+
+    /**
+     * Deletes an unoccupied row, leaving it to be reused by the next slot added.
+     *
+     * @param row the row to delete
+     */
+    private void removeRow(int row) {
+        int at = offset(row);
+        int type = rows.get(at + TYPE);
+        rowBySlot.remove(rows.getInt(at + SLOT_KEY));
+        rows.putInt(at + SLOT_KEY, NONE);
+        free[type].clear(row);
+        deleted.set(row);
+        getCounters().slotRemoved(CATEGORIES[type], false);
+        markModified();
+    }
+
+    /**
+     * Returns the encoded slot ID of a row.
+     *
+     * @param row the row
+     * @return the encoded slot ID, or NONE if the row is deleted
+     */
+    private int rowKey(int row) {
+        return rows.getInt(offset(row) + SLOT_KEY);
+    }
+
+    /**
+     * Returns the encoded registration number parked in a row.
+     *
+     * @param row the row
+     * @return the encoded registration number, or NONE if the row is unoccupied
+     */
+    private int rowRegistration(int row) {
+        return rows.getInt(offset(row) + REGISTRATION);
+    }
+
+    /**
+     * Occupies a row with a car.
+     *
+     * @param row the row to occupy
+     * @param car the car to park
+     * @return true if the car was parked, false otherwise
+     */
+    private boolean parkInRow(int row, Car car) {
+        int at = offset(row);
+        int type = rows.get(at + TYPE);
+        int registration = (int) encodeRegistration(Registration.STANDARD, car.getRegistrationNumber());
+        if (registration == Registration.INVALID || rows.getInt(at + REGISTRATION) != NONE
+                || rowByRegistration.containsKey(registration) || !CATEGORIES[type].accepts(car.getPermit())) {
+            return false;
+        }
+        int owner = ownerId(car.getOwnerName());
+        if (owner == NONE) {
+            return false;
+        }
+        rows.putLong(at + PARKED_AT, car.getParkedTimeMillis());
+        rows.putInt(at + OWNER, owner);
+        rows.put(at + PERMIT, (byte) car.getPermit().ordinal());
+        rows.putInt(at + REGISTRATION, registration);
+        rowByRegistration.put(registration, row);
+        free[type].clear(row);
+        getCounters().carParked(CATEGORIES[type]);
+        markModified();
+        return true;
+    }
+
+    /**
+     * Builds the car parked in an occupied row.
+     *
+     * @param row the occupied row
+     * @return a car holding the state of the row
+     */
+    private Car carAt(int row) {
+        int at = offset(row);
+        return new Car(Registration.decode(rows.getInt(at + REGISTRATION)), ownerNames.get(rows.getInt(at + OWNER)),
+                CATEGORIES[rows.get(at + PERMIT)], rows.getLong(at + PARKED_AT));
+    }
+
+    /**
+     * Builds a detached ParkingSlot view of a row.
+     *
+     * @param row the row to view
+     * @return a parking slot holding the state of the row
+     */
+    private ParkingSlot view(int row) {
+        ParkingSlot slot = new ParkingSlot(CompactCarPark.decodeSlotId(rowKey(row)),
+                CATEGORIES[rows.get(offset(row) + TYPE)]);
+        if (rowRegistration(row) != NONE) {
+            slot.parkCar(carAt(row));
+        }
+        return slot;
+    }
+
+    /**
+     * Adds a parking slot to the car park. If the slot holds a car, the car is
+     * copied in as well.
+     *
+     * @param slot the parking slot to add
+     * @throws IllegalArgumentException if the slot ID cannot be stored
+     */
+    @Override
+    public void addSlot(ParkingSlot slot) {
+        int key = CompactCarPark.encodeSlotId(slot.getId());
+        if (key == NONE) {
+            throw new IllegalArgumentException("Slot ID must be a letter followed by a number such as 01: "
+                    + slot.getId());
+        }
+        if (rowBySlot.containsKey(key)) {
+            return;
+        }
+        int row = addRow(key, (byte) slot.getCategory().ordinal());
+        if (slot.isOccupied()) {
+            parkInRow(row, slot.getParkedCar());
+        }
+        fireSlotAdded(slot);
+    }
+
+    /**
+     * Deletes a parking slot if it exists and is not occupied.
+     *
+     * @param slotID the ID of the parking slot to delete
+     * @return true if the slot was successfully deleted, false otherwise
+     */
+    @Override
+    public boolean deleteSlot(String slotID) {
+        int row = rowBySlot.get(CompactCarPark.encodeSlotId(slotID), NONE);
+        if (row == NONE || rowRegistration(row) != NONE) {
+            return false;
+        }
+        String id = CompactCarPark.decodeSlotId(rowKey(row));
+        removeRow(row);
+        fireSlotDeleted(id);
+        return true;
+    }
+
+    /**
+     * Lists all parking slots in the car park as detached views.
+     *
+     * @return a list of parking slots
+     */
+    @Override
+    public List<ParkingSlot> listSlots() {
+        List<ParkingSlot> slots = new ArrayList<>(rowBySlot.size());
+        for (int row = 0; row < rowCount; row++) {
+            if (rowKey(row) != NONE) {
+                slots.add(view(row));
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Takes a point-in-time snapshot of every slot straight from the rows,
+     * without building a ParkingSlot view for each one first.
+     *
+     * @return a snapshot of the car park
+     */
+    @Override
+    public CarParkSnapshot snapshot() {
+        CarParkSnapshot snapshot = lastSnapshot;
+        if (snapshot != null && snapshot.getVersion() == getVersion()) {
+            return snapshot;
+        }
+        List<SlotState> states = new ArrayList<>(rowBySlot.size());
+        for (int row = 0; row < rowCount; row++) {
+            int key = rowKey(row);
+            if (key == NONE) {
+                continue;
+            }
+            String id = CompactCarPark.decodeSlotId(key);
+            String type = CATEGORIES[rows.get(offset(row) + TYPE)].getName();
+            if (rowRegistration(row) == NONE) {
+                states.add(new SlotState(id, type));
+            } else {
+                Car car = carAt(row);
+                states.add(new SlotState(id, type, car.getRegistrationNumber(), car.getOwnerName(), car.getPermit(),
+                        car.getParkedTimeMillis()));
+            }
+        }
+        snapshot = new CarParkSnapshot(getVersion(), getClock().millis(), states);
+        lastSnapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Deletes all unoccupied parking slots from the car park.
+     */
+    @Override
+    public void deleteAllUnoccupiedSlots() {
+        for (int row = 0; row < rowCount; row++) {
+            int key = rowKey(row);
+            if (key != NONE && rowRegistration(row) == NONE) {
+                removeRow(row);
+                fireSlotDeleted(CompactCarPark.decodeSlotId(key));
+            }
+        }
+    }
+
+    /**
+     * Finds a parking slot by its ID.
+     *
+     * @param slotID the ID of the parking slot to find
+     * @return a view of the parking slot, or null if not found
+     */
+    @Override
+    public ParkingSlot findSlotById(String slotID) {
+        int row = rowBySlot.get(CompactCarPark.encodeSlotId(slotID), NONE);
+        return row == NONE ? null : view(row);
+    }
+
+    /**
+     * Finds the parking slot of a car by its registration number.
+     *
+     * @param registrationNumber the registration number of the car to find
+     * @return a view of the parking slot containing the car, or null if the car is
+     *         not found
+     */
+    @Override
+    public ParkingSlot findSlotByCar(String registrationNumber) {
+        int row = rowByRegistration.get((int) encodeRegistration(Registration.STANDARD, registrationNumber), NONE);
+        return row == NONE ? null : view(row);
+    }
+
+    /**
+     * Parks a car in the slot with the given ID.
+     *
+     * @param slotID the ID of the slot to park in
+     * @param car    the car to park
+     * @return true if the car was parked, false if the slot does not exist, is
+     *         occupied, does not accept the car's permit, or the car is already
+     *         parked
+     */
+    @Override
+    public boolean parkCar(String slotID, Car car) {
+        int row = rowBySlot.get(CompactCarPark.encodeSlotId(slotID), NONE);
+        if (row != NONE && parkInRow(row, car)) {
+            fireCarParked(CompactCarPark.decodeSlotId(rowKey(row)), car);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Parks a car in the lowest free row of the best matching category its
+     * owner's permit is eligible for.
+     *
+     * @param car the car to park
+     * @return a view of the slot the car was parked in, or null if no eligible
+     *         slot is free or the car is already parked
+     */
+    @Override
+    public ParkingSlot parkAnywhere(Car car) {
+        for (SlotCategory category : car.getPermit().eligibleSlots()) {
+            int row = free[category.ordinal()].nextSetBit();
+            if (row >= 0) {
+                if (!parkInRow(row, car)) {
+                    return null;
+                }
+                ParkingSlot slot = view(row);
+                fireCarParked(slot.getId(), car);
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a car from the car park by its registration number.
+     *
+     * @param registrationNumber the registration number of the car to remove
+     * @return a view of the slot the car was removed from, or null if the car is
+     *         not found
+     */
+    @Override
+    public ParkingSlot removeCar(String registrationNumber) {
+        int registration = (int) encodeRegistration(Registration.STANDARD, registrationNumber);
+        int row = rowByRegistration.get(registration, NONE);
+        if (row == NONE) {
+            return null;
+        }
+        Car car = hasListeners() ? carAt(row) : null;
+        int at = offset(row);
+        rows.putInt(at + REGISTRATION, NONE);
+        releaseOwner(rows.getInt(at + OWNER));
+        rows.putInt(at + OWNER, NONE);
+        rows.putLong(at + PARKED_AT, 0L);
+        rowByRegistration.remove(registration);
+        int type = rows.get(at + TYPE);
+        free[type].set(row);
+        getCounters().carRemoved(CATEGORIES[type]);
+        markModified();
+        ParkingSlot slot = view(row);
+        fireCarRemoved(slot.getId(), car);
+        return slot;
+    }
+
+    /**
+     * Writes the mapped rows and the owner dictionary to disk, so they survive a
+     * power failure as well as the process stopping.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    public void force() throws IOException {
+        ownerChannel.force(false);
+        rows.force();
+    }
+
+    /**
+     * Writes everything to disk and closes the files. The car park must not be
+     * used afterwards.
+     *
+     * @throws IOException if the files cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            force();
+        } finally {
+            closeChannels();
+        }
+    }
+
+    /**
+     * Closes the slot and owner dictionary files. The mapping stays valid until
+     * it is garbage collected.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    private void closeChannels() throws IOException {
+        try {
+            if (ownerChannel != null) {
+                ownerChannel.close();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
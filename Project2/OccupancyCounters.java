@@ -0,0 +1,81 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps running totals of slots and occupied slots for each slot category, so
+ * that occupancy can be read without looking at any slots. Both totals for a
+ * category are packed into one long, indexed by the category's ordinal, with the
+ * total in the high 32 bits and the occupied count in the low 32 bits. A reader
+ * on another thread therefore always sees a matching pair, and concurrent
+ * updates are never lost.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.1, 18/10/2026
+ */
+class OccupancyCounters {
+    private static final long ONE_SLOT = 1L << 32;
+    private static final long ONE_CAR = 1L;
+
+    private AtomicLongArray counters; // packed totals by category ordinal
+
+    /**
+     * Constructs counters with no slots.
+     */
+    public OccupancyCounters() {
+        counters = new AtomicLongArray(SlotCategory.values().length);
+    }
+
+    /**
+     * Records that a slot has been added.
+     *
+     * @param category the slot category
+     * @param occupied true if the slot already holds a car
+     */
+    public void slotAdded(SlotCategory category, boolean occupied) {
+        counters.addAndGet(category.ordinal(), ONE_SLOT + (occupied ? ONE_CAR : 0));
+    }
+
+    /**
+     * Records that a slot has been removed.
+     *
+     * @param category the slot category
+     * @param occupied true if the slot held a car
+     */
+    public void slotRemoved(SlotCategory category, boolean occupied) {
+        counters.addAndGet(category.ordinal(), -(ONE_SLOT + (occupied ? ONE_CAR : 0)));
+    }
+
+    /**
+     * Records that a car has been parked in a slot.
+     *
+     * @param category the slot category
+     */
+    public void carParked(SlotCategory category) {
+        counters.addAndGet(category.ordinal(), ONE_CAR);
+    }
+
+    /**
+     * Records that a car has been removed from a slot.
+     *
+     * @param category the slot category
+     */
+    public void carRemoved(SlotCategory category) {
+        counters.addAndGet(category.ordinal(), -ONE_CAR);
+    }
+
+    /**
+     * Returns the current totals.
+     *
+     * @return the occupancy statistics for every slot category
+     */
+    public OccupancyStats snapshot() {
+        int categories = counters.length();
+        long[] totals = new long[categories];
+        long[] occupied = new long[categories];
+        for (int i = 0; i < categories; i++) {
+            long packed = counters.get(i);
+            totals[i] = packed >> 32;
+            occupied[i] = (int) packed;
+        }
+        return new OccupancyStats(totals, occupied);
+    }
+}
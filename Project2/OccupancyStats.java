@@ -0,0 +1,105 @@
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * The number of slots, occupied slots and free slots of each category in a car
+ * park at one point in time. Instances never change once created.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.1, 18/10/2026
+ */
+public class OccupancyStats {
+    private long[] totals; // slots by category ordinal
+    private long[] occupied; // occupied slots by category ordinal
+
+    /**
+     * Constructs OccupancyStats from the counts of each slot category.
+     *
+     * @param totals   the number of slots by category ordinal
+     * @param occupied the number of occupied slots by category ordinal
+     */
+    OccupancyStats(long[] totals, long[] occupied) {
+        this.totals = totals;
+        this.occupied = occupied;
+    }
+
+    /**
+     * Returns the slot categories that have at least one slot.
+     *
+     * @return the slot categories in use
+     */
+    public Set<SlotCategory> getCategories() {
+        Set<SlotCategory> categories = EnumSet.noneOf(SlotCategory.class);
+        for (SlotCategory category : SlotCategory.values()) {
+            if (totals[category.ordinal()] > 0) {
+                categories.add(category);
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * Returns the number of slots of a category.
+     *
+     * @param category the slot category
+     * @return the number of slots of that category
+     */
+    public long getTotal(SlotCategory category) {
+        return totals[category.ordinal()];
+    }
+
+    /**
+     * Returns the number of occupied slots of a category.
+     *
+     * @param category the slot category
+     * @return the number of occupied slots of that category
+     */
+    public long getOccupied(SlotCategory category) {
+        return occupied[category.ordinal()];
+    }
+
+    /**
+     * Returns the number of free slots of a category.
+     *
+     * @param category the slot category
+     * @return the number of free slots of that category
+     */
+    public long getFree(SlotCategory category) {
+        return getTotal(category) - getOccupied(category);
+    }
+
+    /**
+     * Returns the number of slots of every category.
+     *
+     * @return the total number of slots
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : totals) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of occupied slots of every category.
+     *
+     * @return the total number of occupied slots
+     */
+    public long getOccupied() {
+        long total = 0;
+        for (long count : occupied) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of free slots of every category.
+     *
+     * @return the total number of free slots
+     */
+    public long getFree() {
+        return getTotal() - getOccupied();
+    }
+}
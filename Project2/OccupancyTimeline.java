@@ -0,0 +1,459 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers when every car was parked in every slot, so questions such as "was
+ * V17 occupied at 14:05 last Tuesday?" can be answered without replaying the
+ * whole history.
+ *
+ * Two indexes are kept as the changes come in:
+ *
+ * <ul>
+ * <li>each slot has its own list of parked intervals in time order, so the car
+ * in one slot at any instant is found with a binary search</li>
+ * <li>every change is also appended to one log for the whole car park, and
+ * after every CHECKPOINT_EVENTS changes the number of slots and occupied slots
+ * of each category is saved as a checkpoint. The counts at an instant are found
+ * by a binary search for the last change before it, then replaying at most
+ * CHECKPOINT_EVENTS changes from the checkpoint before that</li>
+ * </ul>
+ *
+ * Changes are recorded at their true times even when they arrive late, such as
+ * a car found still parked when the timeline is attached, or a car parked by
+ * another thread at the same moment. A late change is inserted into the log in
+ * time order and the checkpoints after it are worked out again. Only a change
+ * earlier than the slot's own previous change is moved, to the time of that
+ * change, as a slot can hold only one car at a time.
+ *
+ * A timeline can be started from the sessions in a SessionHistory directory
+ * with load(), then kept up to date by attaching it to a car park. Slots only
+ * known from the history are treated as added when a car was first parked in
+ * them. All methods are synchronized, so the timeline can be attached to a
+ * ConcurrentCarPark and queried from another thread.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class OccupancyTimeline implements CarParkListener {
+    public static final int CHECKPOINT_EVENTS = 4096; // Changes between saved counts
+
+    private static final byte ADDED = 0;
+    private static final byte DELETED = 1;
+    private static final byte PARKED = 2;
+    private static final byte REMOVED = 3;
+    private static final int CATEGORIES = SlotCategory.values().length;
+
+    private CarPark carPark; // null unless attached
+    private Map<String, SlotTimeline> slotsById = new HashMap<>(); // Keyed by canonical slot ID
+    private List<SlotTimeline> slots = new ArrayList<>(); // Every slot ever known, in the order first seen
+    private long[] eventTimes = new long[1024]; // Time of each change, never decreasing
+    private byte[] eventKinds = new byte[1024]; // Kind of each change plus category ordinal times 4
+    private int eventCount;
+    private long[] totals = new long[CATEGORIES]; // Current slots by category ordinal
+    private long[] occupied = new long[CATEGORIES]; // Current occupied slots by category ordinal
+    private List<long[]> checkpoints = new ArrayList<>(); // Totals then occupied after every CHECKPOINT_EVENTS
+
+    /**
+     * The parked intervals of one slot, in time order. A car occupies the slot
+     * from its interval's start up to but not including its end.
+     */
+    private static class SlotTimeline {
+        private String id;
+        private SlotCategory category;
+        private boolean present; // true while the slot is in the car park
+        private long lastTime = Long.MIN_VALUE; // Time of the slot's latest change
+        private long[] starts = new long[4];
+        private long[] ends = new long[4]; // Long.MAX_VALUE while the car is still parked
+        private Car[] cars = new Car[4];
+        private int count;
+
+        private SlotTimeline(String id, SlotCategory category) {
+            this.id = id;
+            this.category = category;
+        }
+
+        /**
+         * Returns true if the latest car is still parked.
+         */
+        private boolean isOccupied() {
+            return count > 0 && ends[count - 1] == Long.MAX_VALUE;
+        }
+
+        /**
+         * Returns the car parked at an instant, or null if the slot was free.
+         */
+        private Car carAt(long timeMillis) {
+            int low = 0;
+            int high = count - 1;
+            while (low <= high) { // Find the last interval starting at or before the instant
+                int middle = (low + high) >>> 1;
+                if (starts[middle] <= timeMillis) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high >= 0 && timeMillis < ends[high] ? cars[high] : null;
+        }
+    }
+
+    /**
+     * Constructs an empty OccupancyTimeline.
+     */
+    public OccupancyTimeline() {
+        checkpoints.add(new long[CATEGORIES * 2]);
+    }
+
+    /**
+     * Creates a timeline holding every session in a session history directory.
+     * Sessions can be in any order; they are sorted by time first.
+     *
+     * @param historyDirectory the directory written by SessionHistory
+     * @return the timeline
+     * @throws IOException if the history cannot be read
+     */
+    public static OccupancyTimeline load(Path historyDirectory) throws IOException {
+        List<ParkingSession> byEntry = new ArrayList<>();
+        SessionHistory.read(historyDirectory, byEntry::add);
+        List<ParkingSession> byExit = new ArrayList<>(byEntry);
+        byEntry.sort(Comparator.comparingLong(ParkingSession::getEntryTimeMillis));
+        byExit.sort(Comparator.comparingLong(ParkingSession::getExitTimeMillis));
+
+        // Merge the two orders, removing cars before parking others at the same instant
+        OccupancyTimeline timeline = new OccupancyTimeline();
+        int exit = 0;
+        for (ParkingSession session : byEntry) {
+            while (exit < byExit.size() && byExit.get(exit).getExitTimeMillis() <= session.getEntryTimeMillis()) {
+                ParkingSession leaving = byExit.get(exit++);
+                timeline.remove(leaving.getSlotId(), leaving.getExitTimeMillis());
+            }
+            timeline.park(session.getSlotId(), new Car(session.getRegistrationNumber(), session.getOwnerName(),
+                    session.getPermit(), session.getEntryTimeMillis()), session.getEntryTimeMillis());
+        }
+        while (exit < byExit.size()) {
+            ParkingSession leaving = byExit.get(exit++);
+            timeline.remove(leaving.getSlotId(), leaving.getExitTimeMillis());
+        }
+        return timeline;
+    }
+
+    /**
+     * Starts recording every change to a car park. The car park's slots are
+     * recorded first: slots the timeline does not know yet are counted as having
+     * been there from the start, and slots known from the history that are no
+     * longer in the car park are recorded as deleted. Parked cars are recorded
+     * at their cars' parked times.
+     *
+     * @param carPark the car park to record
+     */
+    public synchronized void attach(CarPark carPark) {
+        this.carPark = carPark;
+        long now = carPark.getClock().millis();
+        List<ParkingSlot> current = carPark.listSlots();
+        Map<String, ParkingSlot> currentById = new HashMap<>();
+        for (ParkingSlot slot : current) {
+            currentById.put(CarPark.canonicalSlotId(slot.getId()), slot);
+        }
+        for (SlotTimeline slot : slots) {
+            if (slot.present && !currentById.containsKey(CarPark.canonicalSlotId(slot.id))) {
+                slotDeleted(slot.id);
+            }
+        }
+        for (ParkingSlot slot : current) {
+            if (!slotsById.containsKey(CarPark.canonicalSlotId(slot.getId()))) {
+                addFromStart(slot.getId(), slot.getCategory());
+            } else {
+                add(slot.getId(), slot.getCategory(), now);
+            }
+            if (slot.isOccupied()) {
+                park(slot.getId(), slot.getParkedCar(), slot.getParkedCar().getParkedTimeMillis());
+            }
+        }
+        carPark.addListener(this);
+    }
+
+    @Override
+    public synchronized void slotAdded(ParkingSlot slot) {
+        long now = now();
+        add(slot.getId(), slot.getCategory(), now);
+        if (slot.isOccupied()) {
+            park(slot.getId(), slot.getParkedCar(), now);
+        }
+    }
+
+    @Override
+    public synchronized void slotDeleted(String slotId) {
+        SlotTimeline slot = slotsById.get(CarPark.canonicalSlotId(slotId));
+        if (slot != null && slot.present) {
+            long time = Math.max(now(), slot.lastTime);
+            if (slot.isOccupied()) {
+                remove(slotId, time);
+            }
+            slot.present = false;
+            append(time, slot, DELETED);
+        }
+    }
+
+    @Override
+    public synchronized void carParked(String slotId, Car car) {
+        park(slotId, car, car.getParkedTimeMillis());
+    }
+
+    @Override
+    public synchronized void carRemoved(String slotId, Car car) {
+        remove(slotId, now());
+    }
+
+    /**
+     * Returns the car that was parked in a slot at an instant.
+     *
+     * @param slotId     the ID of the slot, in any letter case
+     * @param timeMillis the instant in epoch milliseconds
+     * @return the car, or null if the slot was free or is not known
+     */
+    public synchronized Car getCarAt(String slotId, long timeMillis) {
+        SlotTimeline slot = slotsById.get(CarPark.canonicalSlotId(slotId));
+        return slot == null ? null : slot.carAt(timeMillis);
+    }
+
+    /**
+     * Returns true if a car was parked in a slot at an instant.
+     *
+     * @param slotId     the ID of the slot, in any letter case
+     * @param timeMillis the instant in epoch milliseconds
+     * @return true if the slot was occupied
+     */
+    public boolean wasOccupied(String slotId, long timeMillis) {
+        return getCarAt(slotId, timeMillis) != null;
+    }
+
+    /**
+     * Returns the IDs of the slots that were occupied at an instant.
+     *
+     * @param category   the category of slots to look at, or null for every slot
+     * @param timeMillis the instant in epoch milliseconds
+     * @return the occupied slot IDs in order
+     */
+    public synchronized List<String> getOccupiedSlots(SlotCategory category, long timeMillis) {
+        List<String> ids = new ArrayList<>();
+        for (SlotTimeline slot : slots) {
+            if ((category == null || slot.category == category) && slot.carAt(timeMillis) != null) {
+                ids.add(slot.id);
+            }
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /**
+     * Returns the number of slots and occupied slots of each category at an
+     * instant.
+     *
+     * @param timeMillis the instant in epoch milliseconds
+     * @return the counts at that instant
+     */
+    public synchronized OccupancyStats getStatsAt(long timeMillis) {
+        int low = countUpTo(timeMillis);
+        int checkpoint = low / CHECKPOINT_EVENTS;
+        long[] counts = checkpoints.get(checkpoint);
+        long[] totalsAt = Arrays.copyOfRange(counts, 0, CATEGORIES);
+        long[] occupiedAt = Arrays.copyOfRange(counts, CATEGORIES, CATEGORIES * 2);
+        for (int i = checkpoint * CHECKPOINT_EVENTS; i < low; i++) {
+            count(eventKinds[i], totalsAt, occupiedAt);
+        }
+        return new OccupancyStats(totalsAt, occupiedAt);
+    }
+
+    /**
+     * Returns the number of changes recorded.
+     *
+     * @return the number of changes
+     */
+    public synchronized int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Returns the number of changes made at or before an instant.
+     */
+    private int countUpTo(long timeMillis) {
+        int low = 0;
+        int high = eventCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (eventTimes[middle] <= timeMillis) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the current time of the attached car park's clock.
+     */
+    private long now() {
+        return carPark == null ? System.currentTimeMillis() : carPark.getClock().millis();
+    }
+
+    /**
+     * Records a slot being added, unless it is already in the car park.
+     */
+    private void add(String slotId, SlotCategory category, long timeMillis) {
+        SlotTimeline slot = slotsById.get(CarPark.canonicalSlotId(slotId));
+        if (slot == null) {
+            slot = new SlotTimeline(slotId, category);
+            slotsById.put(CarPark.canonicalSlotId(slotId), slot);
+            slots.add(slot);
+        } else if (slot.present) {
+            return;
+        }
+        slot.category = category;
+        slot.present = true;
+        append(Math.max(timeMillis, slot.lastTime), slot, ADDED);
+    }
+
+    /**
+     * Records a slot as having been in the car park since before the first
+     * change, by counting it in every checkpoint.
+     */
+    private void addFromStart(String slotId, SlotCategory category) {
+        SlotTimeline slot = new SlotTimeline(slotId, category);
+        slot.present = true;
+        slotsById.put(CarPark.canonicalSlotId(slotId), slot);
+        slots.add(slot);
+        totals[category.ordinal()]++;
+        for (long[] counts : checkpoints) {
+            counts[category.ordinal()]++;
+        }
+    }
+
+    /**
+     * Records a car being parked, adding the slot first if it is not known and
+     * ending the stay of any car still recorded in it. Cars parked in an unknown
+     * slot whose category cannot be worked out are not recorded.
+     */
+    private void park(String slotId, Car car, long timeMillis) {
+        SlotTimeline slot = slotsById.get(CarPark.canonicalSlotId(slotId));
+        if (slot == null || !slot.present) {
+            SlotCategory category = slot != null ? slot.category : SlotCategory.fromSlotId(slotId);
+            if (category == null) {
+                category = car.getPermit();
+            }
+            if (category == null) {
+                return;
+            }
+            add(slotId, category, timeMillis);
+            slot = slotsById.get(CarPark.canonicalSlotId(slotId));
+        }
+        long time = Math.max(timeMillis, slot.lastTime);
+        if (slot.isOccupied()) {
+            remove(slotId, time);
+        }
+        if (slot.count == slot.starts.length) {
+            int capacity = slot.count * 2;
+            slot.starts = Arrays.copyOf(slot.starts, capacity);
+            slot.ends = Arrays.copyOf(slot.ends, capacity);
+            slot.cars = Arrays.copyOf(slot.cars, capacity);
+        }
+        slot.starts[slot.count] = time;
+        slot.ends[slot.count] = Long.MAX_VALUE;
+        slot.cars[slot.count++] = car;
+        append(time, slot, PARKED);
+    }
+
+    /**
+     * Records the car in a slot leaving, if one is recorded there.
+     */
+    private void remove(String slotId, long timeMillis) {
+        SlotTimeline slot = slotsById.get(CarPark.canonicalSlotId(slotId));
+        if (slot != null && slot.isOccupied()) {
+            long time = Math.max(timeMillis, slot.lastTime);
+            slot.ends[slot.count - 1] = time;
+            append(time, slot, REMOVED);
+        }
+    }
+
+    /**
+     * Adds a change to the log in time order, after any changes at the same
+     * time, and updates the current counts. The counts are saved as a
+     * checkpoint every CHECKPOINT_EVENTS changes; a change that arrives late
+     * means the checkpoints after it are worked out again.
+     */
+    private void append(long timeMillis, SlotTimeline slot, byte kind) {
+        if (eventCount == eventTimes.length) {
+            int capacity = eventCount * 2;
+            eventTimes = Arrays.copyOf(eventTimes, capacity);
+            eventKinds = Arrays.copyOf(eventKinds, capacity);
+        }
+        byte event = (byte) (kind | slot.category.ordinal() << 2);
+        slot.lastTime = timeMillis;
+        count(event, totals, occupied);
+        if (eventCount == 0 || eventTimes[eventCount - 1] <= timeMillis) {
+            eventTimes[eventCount] = timeMillis;
+            eventKinds[eventCount++] = event;
+            if (eventCount % CHECKPOINT_EVENTS == 0) {
+                checkpoints.add(counts(totals, occupied));
+            }
+            return;
+        }
+
+        int position = countUpTo(timeMillis);
+        System.arraycopy(eventTimes, position, eventTimes, position + 1, eventCount - position);
+        System.arraycopy(eventKinds, position, eventKinds, position + 1, eventCount - position);
+        eventTimes[position] = timeMillis;
+        eventKinds[position] = event;
+        eventCount++;
+
+        // Replay from the last checkpoint before the change, which it does not affect
+        int checkpoint = position / CHECKPOINT_EVENTS;
+        long[] counts = checkpoints.get(checkpoint);
+        long[] totalsAt = Arrays.copyOfRange(counts, 0, CATEGORIES);
+        long[] occupiedAt = Arrays.copyOfRange(counts, CATEGORIES, CATEGORIES * 2);
+        checkpoints.subList(checkpoint + 1, checkpoints.size()).clear();
+        for (int i = checkpoint * CHECKPOINT_EVENTS; i < eventCount; i++) {
+            count(eventKinds[i], totalsAt, occupiedAt);
+            if ((i + 1) % CHECKPOINT_EVENTS == 0) {
+                checkpoints.add(counts(totalsAt, occupiedAt));
+            }
+        }
+    }
+
+    /**
+     * Returns slot and occupied slot counts joined into one checkpoint.
+     */
+    private static long[] counts(long[] totals, long[] occupied) {
+        long[] counts = Arrays.copyOf(totals, CATEGORIES * 2);
+        System.arraycopy(occupied, 0, counts, CATEGORIES, CATEGORIES);
+        return counts;
+    }
+
+    /**
+     * Applies one change to a set of counts.
+     */
+    private static void count(byte event, long[] totals, long[] occupied) {
+        int category = event >> 2;
+        switch (event & 3) {
+            case ADDED:
+                totals[category]++;
+                break;
+            case DELETED:
+                totals[category]--;
+                break;
+            case PARKED:
+                occupied[category]++;
+                break;
+            default:
+                occupied[category]--;
+                break;
+        }
+    }
+}
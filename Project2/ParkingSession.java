@@ -0,0 +1,118 @@
+/**
+ * One completed parking session: which car was parked in which slot, from when
+ * until when, and what it was charged. Sessions are recorded by SessionHistory
+ * when a car leaves.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class ParkingSession {
+    private final String registrationNumber;
+    private final String slotId;
+    private final String ownerName;
+    private final SlotCategory permit; // Permit the car was parked under, null if unknown
+    private final long entryTimeMillis; // Epoch milliseconds when the car was parked
+    private final long exitTimeMillis; // Epoch milliseconds when the car was removed
+    private final int fee; // Dollars charged for the session
+
+    /**
+     * Constructs a ParkingSession.
+     *
+     * @param registrationNumber the registration number of the car
+     * @param slotId             the ID of the slot the car was parked in
+     * @param ownerName          the name of the car's owner
+     * @param permit             the permit the car was parked under, or null if
+     *                           unknown
+     * @param entryTimeMillis    epoch milliseconds when the car was parked
+     * @param exitTimeMillis     epoch milliseconds when the car was removed
+     * @param fee                the fee charged in dollars
+     */
+    public ParkingSession(String registrationNumber, String slotId, String ownerName, SlotCategory permit,
+            long entryTimeMillis, long exitTimeMillis, int fee) {
+        this.registrationNumber = registrationNumber;
+        this.slotId = slotId;
+        this.ownerName = ownerName == null ? "" : ownerName;
+        this.permit = permit;
+        this.entryTimeMillis = entryTimeMillis;
+        this.exitTimeMillis = exitTimeMillis;
+        this.fee = fee;
+    }
+
+    /**
+     * Returns the registration number of the car.
+     *
+     * @return the registration number
+     */
+    public String getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    /**
+     * Returns the ID of the slot the car was parked in.
+     *
+     * @return the slot ID
+     */
+    public String getSlotId() {
+        return slotId;
+    }
+
+    /**
+     * Returns the name of the car's owner.
+     *
+     * @return the owner name, empty if it was not recorded
+     */
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    /**
+     * Returns the permit the car was parked under.
+     *
+     * @return the permit, or null if it was not recorded
+     */
+    public SlotCategory getPermit() {
+        return permit;
+    }
+
+    /**
+     * Returns when the car was parked.
+     *
+     * @return the entry time in epoch milliseconds
+     */
+    public long getEntryTimeMillis() {
+        return entryTimeMillis;
+    }
+
+    /**
+     * Returns when the car was removed.
+     *
+     * @return the exit time in epoch milliseconds
+     */
+    public long getExitTimeMillis() {
+        return exitTimeMillis;
+    }
+
+    /**
+     * Returns how long the car was parked.
+     *
+     * @return the parked time in milliseconds
+     */
+    public long getDurationMillis() {
+        return exitTimeMillis - entryTimeMillis;
+    }
+
+    /**
+     * Returns the fee charged for the session.
+     *
+     * @return the fee in dollars
+     */
+    public int getFee() {
+        return fee;
+    }
+
+    @Override
+    public String toString() {
+        return registrationNumber + " in " + slotId + " (" + ownerName + ") from " + entryTimeMillis + " to "
+                + exitTimeMillis + ", $" + fee;
+    }
+}
@@ -1,3 +1,5 @@
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * Represents a parking slot in the car park.
  * Each parking slot can hold a car, and can be either a staff or visitor slot.
@@ -10,20 +12,35 @@
  * Represents a parking slot in the car park.
  */
 public class ParkingSlot {
+    private static final Car RETIRED = new Car("", "", false); // Marks a deleted slot
+
     private String id;
-    private String type; // Either "staff" or "visitor"
-    private Car parkedCar;
+    private SlotCategory category; // Staff, visitor, accessible, EV, motorcycle or reserved
+    private AtomicReference<Car> parkedCar; // Claimed with compare-and-set
+    private int position; // Position of the slot within its car park pool
 
     /**
      * Constructs a ParkingSlot with the specified ID and type.
      *
      * @param id   the slot ID (e.g., "S01")
-     * @param type the slot type ("staff" or "visitor")
+     * @param type the slot type name (e.g., "staff" or "visitor")
+     * @throws IllegalArgumentException if the type is not a slot category name
      */
     public ParkingSlot(String id, String type) {
+        this(id, categoryOf(type));
+    }
+
+    /**
+     * Constructs a ParkingSlot with the specified ID and category.
+     *
+     * @param id       the slot ID (e.g., "S01")
+     * @param category the slot category
+     */
+    public ParkingSlot(String id, SlotCategory category) {
         this.id = id;
-        this.type = type;
-        this.parkedCar = null; // Initially unoccupied
+        this.category = category;
+        this.parkedCar = new AtomicReference<>(); // Initially unoccupied
+        this.position = -1; // Not yet added to a car park
     }
 
     /**
@@ -35,13 +52,37 @@ public class ParkingSlot {
         return id;
     }
 
+    /**
+     * Returns the category for a slot type name.
+     * 
+     * @param type the slot type name
+     * @return the slot category
+     * @throws IllegalArgumentException if the type is not a slot category name
+     */
+    private static SlotCategory categoryOf(String type) {
+        SlotCategory category = SlotCategory.fromName(type);
+        if (category == null) {
+            throw new IllegalArgumentException("Unknown slot type: " + type);
+        }
+        return category;
+    }
+
     /**
      * Returns the type of the parking slot.
      * 
-     * @return the type of the parking slot ("staff" or "visitor").
+     * @return the type of the parking slot (e.g., "staff" or "visitor").
      */
     public String getType() {
-        return type;
+        return category.getName();
+    }
+
+    /**
+     * Returns the category of the parking slot.
+     * 
+     * @return the category of the parking slot
+     */
+    public SlotCategory getCategory() {
+        return category;
     }
 
     /**
@@ -50,7 +91,8 @@ public class ParkingSlot {
      * @return true if the parking slot is occupied, false otherwise.
      */
     public boolean isOccupied() {
-        return parkedCar != null;
+        Car car = parkedCar.get();
+        return car != null && car != RETIRED;
     }
 
     /**
@@ -60,27 +102,80 @@ public class ParkingSlot {
      *         unoccupied.
      */
     public Car getParkedCar() {
-        return parkedCar;
+        Car car = parkedCar.get();
+        return car == RETIRED ? null : car;
     }
 
     /**
-     * Parks a car in the slot if the slot is of the correct type and is unoccupied.
+     * Parks a car in the slot if the car's permit is eligible for the slot's
+     * category and the slot is unoccupied.
+     * The slot is claimed with a compare-and-set, so when two threads park into
+     * the same slot at once only one of them succeeds. Only car parks call this,
+     * as parking straight into a slot would bypass the car park's indexes.
      * 
      * @param car the car to park in the slot
      * @return true if the car was successfully parked, false otherwise
      */
-    public boolean parkCar(Car car) {
-        if (car.isStaff() && type.equals("staff") || !car.isStaff() && type.equals("visitor")) {
-            this.parkedCar = car;
-            return true;
+    boolean parkCar(Car car) {
+        if (category.accepts(car.getPermit())) {
+            return parkedCar.compareAndSet(null, car);
         }
         return false;
     }
 
     /**
-     * Removes the car from the slot.
+     * Returns the position of the slot within its car park pool.
+     * 
+     * @return the position of the slot, or -1 if it is not in a car park
+     */
+    int getPosition() {
+        return position;
+    }
+
+    /**
+     * Sets the position of the slot within its car park pool.
+     * 
+     * @param position the position of the slot
+     */
+    void setPosition(int position) {
+        this.position = position;
+    }
+
+    /**
+     * Removes the car from the slot. Only car parks call this, as removing a car
+     * straight from a slot would bypass the car park's indexes.
+     */
+    void removeCar() {
+        parkedCar.compareAndSet(getParkedCar(), null);
+    }
+
+    /**
+     * Removes the given car from the slot, but only if it is still the car parked
+     * there.
+     * 
+     * @param car the car expected to be in the slot
+     * @return true if the car was removed, false if the slot held another car
+     */
+    boolean removeCar(Car car) {
+        return car != null && parkedCar.compareAndSet(car, null);
+    }
+
+    /**
+     * Retires the slot so that no car can be parked in it, but only if it is
+     * unoccupied. Used when deleting a slot while other threads may be parking.
+     * 
+     * @return true if the slot was retired, false if it is occupied
+     */
+    boolean retire() {
+        return parkedCar.compareAndSet(null, RETIRED) || parkedCar.get() == RETIRED;
+    }
+
+    /**
+     * Checks whether the slot has been retired.
+     * 
+     * @return true if the slot has been retired, false otherwise
      */
-    public void removeCar() {
-        this.parkedCar = null;
+    boolean isRetired() {
+        return parkedCar.get() == RETIRED;
     }
 }
\ No newline at end of file
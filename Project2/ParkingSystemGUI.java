@@ -1,16 +1,30 @@
 import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.text.ParseException;
+import java.util.EnumMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 
 /**
  * A simple parking system GUI application that allows users to manage parking
@@ -27,27 +41,26 @@ import java.text.ParseException;
  */
 
 class ParkingSlotInfo {
-    String status; // For example, "available" or "occupied"
+    String status; // "available", "occupied" or "blocked" for maintenance
     String registration; // Registration number of the parked car
     String ownerName; // Owner's name
-    String parkedTime; // Time when the car was parked
-    String slotType; // Type of the slot: "staff" or "visitor"
-    long parkedTimeMillis; // Time in milliseconds when the car was parked
+    SlotCategory category; // Category of the slot, e.g. staff or visitor
+    long parkedTimeMillis; // Epoch milliseconds when the car was parked, formatted only for display
     String slotId; // Slot ID
 
     /**
      * Constructor for ParkingSlotInfo.
      * 
      * @param status    The status of the parking slot.
-     * @param slotType  The type of the parking slot (staff or visitor).
+     * @param category  The category of the parking slot.
      * @param ownerName The name of the car owner.
      */
-    public ParkingSlotInfo(String status, String slotType, String ownerName) {
+    public ParkingSlotInfo(String status, SlotCategory category, String ownerName) {
         this.status = status;
-        this.slotType = slotType;
+        this.category = category;
         this.registration = null; // Default to null when slot is empty
         this.ownerName = ownerName;
-        this.parkedTime = null; // Default to null when slot is empty
+        this.parkedTimeMillis = 0; // Default to 0 when slot is empty
     }
 
     // Getters and Setters
@@ -79,16 +92,16 @@ class ParkingSlotInfo {
         this.ownerName = ownerName;
     }
 
-    public String getParkedTime() {
-        return parkedTime;
+    public long getParkedTimeMillis() {
+        return parkedTimeMillis;
     }
 
-    public void setParkedTime(String parkedTime) {
-        this.parkedTime = parkedTime;
+    public void setParkedTimeMillis(long parkedTimeMillis) {
+        this.parkedTimeMillis = parkedTimeMillis;
     }
 
-    public String getSlotType() {
-        return slotType;
+    public SlotCategory getCategory() {
+        return category;
     }
 }
 
@@ -97,18 +110,64 @@ class ParkingSlotInfo {
  * parking system.
  */
 public class ParkingSystemGUI extends JFrame {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Path AUTOSAVE_FILE = Paths.get("carpark-gui.snapshot"); // Slots saved between runs
+    private static final int AUTOSAVE_SECONDS = 5; // Time between checks for changes to save
+    private static final int FRAME_MILLIS = 16; // Changed slots are redrawn at most once in this time
+    private static final int MAX_COLUMNS = 50; // Most slots shown in one row of the slot map
+    private static final Color BLOCKED_COLOUR = Color.GRAY; // Slots blocked for maintenance
+
+    // Button colours for available and occupied slots, indexed by SlotCategory ordinal
+    private static final Color[] AVAILABLE_COLOURS = { Color.RED, Color.BLUE, new Color(0, 128, 128),
+            new Color(0, 153, 0), new Color(230, 115, 0), new Color(128, 0, 128) };
+    private static final Color[] OCCUPIED_COLOURS = { new Color(139, 0, 0), new Color(0, 0, 139),
+            new Color(0, 80, 80), new Color(0, 90, 0), new Color(140, 70, 0), new Color(75, 0, 75) };
+
+    private Clock clock; // Time source for parked times and fees
     private JPanel mainPanel;
     private JTextField staffSlotInput;
     private JTextField visitorSlotInput;
     private Map<String, ParkingSlotInfo> parkingSlots; // slot ID for ParkingSlotInfo
-    private JPanel slotPanel; // Panel to hold the parking slot buttons
+    private LongObjectMap<String> registrationIndex; // encoded registration number to slot ID
+    private SlotMapPanel slotMap; // Draws every parking slot
+    private Set<String> dirtySlots = new LinkedHashSet<>(); // Slots changed since their buttons were redrawn
+    private Timer renderTimer = new Timer(FRAME_MILLIS, e -> renderDirtySlots()); // Redraws the changed slots
+    private SessionHistory sessionHistory; // Completed parking sessions, null if they are not being recorded
+    private Map<String, SlotState> slotStates = new HashMap<>(); // State of every slot, only used on the EDT
+    private long changes; // Number of changes made to slotStates, only used on the EDT
+    private volatile CarParkSnapshot published = new CarParkSnapshot(0, 0, new ArrayList<>()); // Read off the EDT
+    private final Object autosaveLock = new Object(); // Lets only one autosave write the file at a time
+    private long savedVersion; // Version of the last snapshot autosaved, guarded by autosaveLock
 
     /**
      * Constructor for ParkingSystemGUI.
      * Initialises the parking system GUI.
      */
     public ParkingSystemGUI() {
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor for ParkingSystemGUI using the given clock for parked times, so
+     * the GUI can be driven by a simulated clock.
+     * 
+     * @param clock The clock to use for parked times and fees.
+     */
+    public ParkingSystemGUI(Clock clock) {
+        this.clock = clock;
         parkingSlots = new HashMap<>(); // Initialise parking slots map
+        registrationIndex = new LongObjectMap<>(16); // Initialise registration index
+        renderTimer.setRepeats(false); // Started again by the next change
+        openSessionHistory();
+
+        // Carry on from the last autosave instead of asking for the number of slots
+        CarParkSnapshot saved = readAutosave();
+        startAutosave();
+        if (saved != null) {
+            showMainMenu(saved.getSlots().size());
+            restoreSlots(saved.getSlots());
+            return;
+        }
 
         // Initial setup window
         setTitle("Parking System Setup");
@@ -147,6 +206,7 @@ public class ParkingSystemGUI extends JFrame {
         JButton exitButton = new JButton("Exit");
         exitButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
+                publishSlots(); // So the last changes are autosaved on the way out
                 System.exit(0); // Exit the application
             }
         });
@@ -171,7 +231,18 @@ public class ParkingSystemGUI extends JFrame {
      */
     private void proceedToMainMenu(int staffSlots, int visitorSlots) {
         setVisible(false); // Hide the initial setup window
+        showMainMenu(Math.max(staffSlots, visitorSlots));
 
+        // Adding initial staff and visitor slot buttons
+        addInitialSlots(staffSlots, visitorSlots);
+    }
+
+    /**
+     * Shows the main menu window with an empty slot panel.
+     * 
+     * @param columns Number of slot buttons in each row.
+     */
+    private void showMainMenu(int columns) {
         // Create the main menu window
         JFrame mainMenuFrame = new JFrame("Parking System Main Menu");
         mainMenuFrame.setSize(800, 600);
@@ -180,18 +251,17 @@ public class ParkingSystemGUI extends JFrame {
         JPanel menuPanel = new JPanel();
         menuPanel.setLayout(new BorderLayout());
 
-        // Placeholder for parking slots (staff and visitor)
-        slotPanel = new JPanel();
-        slotPanel.setLayout(new GridLayout(0, Math.max(staffSlots, visitorSlots))); // Dynamic adjustment
+        // Map of the parking slots, drag to pan and use the mouse wheel to zoom
+        slotMap = new SlotMapPanel();
+        slotMap.setColumns(Math.min(columns, MAX_COLUMNS));
+        slotMap.addActionListener(new SlotActionListener());
+        slotMap.setToolTipText("Click a slot to park or remove a car. Ctrl-click or shift-click to select slots.");
 
-        // Adding initial staff and visitor slot buttons
-        addInitialSlots(staffSlots, visitorSlots);
-
-        menuPanel.add(slotPanel, BorderLayout.CENTER); // Add slot panel to menu
+        menuPanel.add(slotMap, BorderLayout.CENTER); // Add slot map to menu
 
         // Menu buttons on the right side
         JPanel controlPanel = new JPanel();
-        controlPanel.setLayout(new GridLayout(8, 1)); // Vertical layout for buttons
+        controlPanel.setLayout(new GridLayout(12, 1)); // Vertical layout for buttons
 
         JButton addSlotButton = new JButton("Add a Parking Slot");
         addSlotButton.addActionListener(e -> addParkingSlot());
@@ -214,8 +284,23 @@ public class ParkingSystemGUI extends JFrame {
         JButton removeCarButton = new JButton("Remove a Car");
         removeCarButton.addActionListener(e -> removeCarByRegistration());
 
+        JButton selectAllButton = new JButton("Select All Slots");
+        selectAllButton.addActionListener(e -> slotMap.selectAll());
+
+        JButton deleteSelectedButton = new JButton("Delete Selected Slots");
+        deleteSelectedButton.addActionListener(e -> deleteSelectedSlots());
+
+        JButton releaseSelectedButton = new JButton("Release Selected Slots");
+        releaseSelectedButton.addActionListener(e -> releaseSelectedSlots());
+
+        JButton blockSelectedButton = new JButton("Block Selected for Maintenance");
+        blockSelectedButton.addActionListener(e -> blockSelectedSlots());
+
         JButton exitButton = new JButton("Exit");
-        exitButton.addActionListener(e -> System.exit(0));
+        exitButton.addActionListener(e -> {
+            publishSlots(); // So the last changes are autosaved on the way out
+            System.exit(0);
+        });
 
         // Add buttons to the control panel
         controlPanel.add(addSlotButton);
@@ -225,6 +310,10 @@ public class ParkingSystemGUI extends JFrame {
         controlPanel.add(parkCarButton);
         controlPanel.add(findCarButton);
         controlPanel.add(removeCarButton);
+        controlPanel.add(selectAllButton);
+        controlPanel.add(deleteSelectedButton);
+        controlPanel.add(releaseSelectedButton);
+        controlPanel.add(blockSelectedButton);
         controlPanel.add(exitButton);
 
         menuPanel.add(controlPanel, BorderLayout.EAST); // Add control panel to menu
@@ -243,86 +332,114 @@ public class ParkingSystemGUI extends JFrame {
         // Add staff slots
         for (int i = 1; i <= staffSlots; i++) {
             String slotId = "S" + String.format("%02d", i); // Staff slot ID
-            JButton staffSlot = createSlotButton(slotId, "staff"); // Create button
-            parkingSlots.put(slotId, new ParkingSlotInfo("available", null, null)); // Set initial status
-            slotPanel.add(staffSlot); // Add button to the panel
+            slotMap.addSlot(slotId); // Add the slot to the map
+            parkingSlots.put(slotId, new ParkingSlotInfo("available", SlotCategory.STAFF, null)); // Set initial status
+            slotChanged(slotId);
         }
 
         // Add visitor slots
         for (int i = 1; i <= visitorSlots; i++) {
             String slotId = "V" + String.format("%02d", i); // Visitor slot ID
-            JButton visitorSlot = createSlotButton(slotId, "visitor"); // Create button
-            parkingSlots.put(slotId, new ParkingSlotInfo("available", null, null)); // Set initial status
-            slotPanel.add(visitorSlot); // Add button to the panel
+            slotMap.addSlot(slotId); // Add the slot to the map
+            // Set initial status
+            parkingSlots.put(slotId, new ParkingSlotInfo("available", SlotCategory.VISITOR, null));
+            slotChanged(slotId);
         }
-
-        slotPanel.revalidate(); // Refresh the slot panel
-        slotPanel.repaint(); // Repaint to show changes
     }
 
     /**
-     * Create a parking slot button.
-     * 
+     * Asks which permit the driver holds when parking in a slot that does not
+     * accept everyone, and checks the permit may be used in the slot. Visitor
+     * slots accept any driver, so no question is asked for them.
+     *
      * @param slotId   The ID of the slot.
-     * @param slotType The type of the slot (staff or visitor).
-     * @return JButton representing the parking slot.
+     * @param category The category of the slot.
+     * @return true if the car may be parked in the slot, false otherwise.
      */
-    private JButton createSlotButton(String slotId, String slotType) {
-        JButton slotButton = new JButton(slotType.equals("staff") ? "Staff " + slotId : "Visitor " + slotId);
+    private boolean checkPermit(String slotId, SlotCategory category) {
+        if (category == SlotCategory.VISITOR) {
+            return true; // Allow any user to park in visitor slots
+        }
+        SlotCategory[] permits = SlotCategory.values();
+        String[] options = new String[permits.length];
+        for (int i = 0; i < permits.length; i++) {
+            options[i] = permits[i].getLabel();
+        }
+        int choice = JOptionPane.showOptionDialog(null,
+                "Which permit does the driver hold?", "Permit",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[category.ordinal()]);
 
-        // Set the background color based on the slot type
-        if (slotType.equals("staff")) {
-            slotButton.setBackground(Color.RED); // Staff slots in red
-        } else {
-            slotButton.setBackground(Color.BLUE); // Visitor slots in blue
+        // If cancel is pressed, exit quietly
+        if (choice == JOptionPane.CLOSED_OPTION) {
+            return false;
         }
-        slotButton.setForeground(Color.WHITE); // Set text color to white
 
-        slotButton.addActionListener(new SlotActionListener(slotId, slotType));
-        return slotButton; // Return button
+        // Look the permit up in the eligibility table
+        if (!category.accepts(permits[choice])) {
+            JOptionPane.showMessageDialog(null, "Error: " + permits[choice].getLabel()
+                    + " permit holders cannot park in " + category.getLabel().toLowerCase() + " slot " + slotId + ".");
+            return false;
+        }
+        return true;
     }
 
     /**
-     * SlotActionListener handles the actions performed on parking slot buttons.
+     * Lists the slot ID prefix of each slot category for prompts.
+     *
+     * @return The prefixes (e.g., "S01 = Staff01, V01 = Visitor01, ...").
      */
-    private class SlotActionListener implements ActionListener {
-        private String slotId; // Parking slot ID
-        private String slotType; // Type of slot: "staff" or "visitor"
-
-        /**
-         * Constructor to initialise SlotActionListener with slot ID and type.
-         *
-         * @param slotId   The ID of the parking slot
-         * @param slotType The type of the parking slot
-         */
-        public SlotActionListener(String slotId, String slotType) {
-            this.slotId = slotId;
-            this.slotType = slotType;
+    private static String slotIdExamples() {
+        StringBuilder examples = new StringBuilder();
+        for (SlotCategory category : SlotCategory.values()) {
+            if (examples.length() > 0) {
+                examples.append(", ");
+            }
+            examples.append(category.getPrefix()).append("01 = ").append(category.getLabel()).append("01");
         }
+        return examples.toString();
+    }
 
+    /**
+     * SlotActionListener handles clicks on the slots of the slot map. The ID of
+     * the clicked slot is the event's action command.
+     */
+    private class SlotActionListener implements ActionListener {
         public void actionPerformed(ActionEvent e) {
             // Retrieve the status of the slot
+            String slotId = e.getActionCommand();
             ParkingSlotInfo info = parkingSlots.get(slotId);
             if (info != null) {
+                SlotCategory category = info.getCategory(); // Category of the slot
                 String message;
                 if (info.getStatus().equals("available")) {
                     // Slot is unoccupied
-                    message = slotType.equals("staff") ? "Staff" : "Visitor";
+                    message = category.getLabel();
                     message += " Slot " + slotId + " is unoccupied. Would you like to park a car here?";
 
                     int response = JOptionPane.showConfirmDialog(null, message, "Slot Unoccupied",
                             JOptionPane.YES_NO_CANCEL_OPTION); // Include Cancel option
                     if (response == JOptionPane.YES_OPTION) {
-                        parkCarInSlot(slotId, slotType); // Call the method to park the car
+                        parkCarInSlot(slotId, category); // Call the method to park the car
                     } else if (response == JOptionPane.NO_OPTION) {
                         // User clicked "No", do nothing
                     } else {
                         // User clicked "Cancel", exit the dialog
                         return;
                     }
+                } else if (info.getStatus().equals("blocked")) {
+                    // Slot is blocked for maintenance
+                    message = category.getLabel();
+                    message += " Slot " + slotId + " is blocked for maintenance. Would you like to release it?";
+
+                    int response = JOptionPane.showConfirmDialog(null, message, "Slot Blocked",
+                            JOptionPane.YES_NO_OPTION);
+                    if (response == JOptionPane.YES_OPTION) {
+                        info.status = "available"; // Back in service
+                        slotChanged(slotId);
+                    }
                 } else {
                     // Slot is occupied
-                    message = slotType.equals("staff") ? "Staff" : "Visitor";
+                    message = category.getLabel();
                     message += " Slot " + slotId + " is occupied. Would you like to remove the car from this slot?";
 
                     int response = JOptionPane.showConfirmDialog(null, message, "Slot Occupied",
@@ -350,29 +467,15 @@ public class ParkingSystemGUI extends JFrame {
      * Parks a car in the specified parking slot.
      *
      * @param slotId   The ID of the parking slot
-     * @param slotType The type of the parking slot
+     * @param category The category of the parking slot
      */
-    private void parkCarInSlot(String slotId, String slotType) {
+    private void parkCarInSlot(String slotId, SlotCategory category) {
         ParkingSlotInfo info = parkingSlots.get(slotId);
 
         if (info != null && info.status.equals("available")) {
-            // Prompt for user type only if the slot is a staff slot
-            if (slotType.equals("staff")) {
-                String[] options = { "Staff", "Visitor" };
-                int userType = JOptionPane.showOptionDialog(null,
-                        "Are you a staff member or a visitor?", "User Type",
-                        JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
-
-                // If cancel is pressed, exit quietly
-                if (userType == JOptionPane.CLOSED_OPTION) {
-                    return;
-                }
-
-                // If the user selects Visitor, show an error message
-                if (userType == 1) {
-                    JOptionPane.showMessageDialog(null, "Error: Visitors cannot park in staff slots.");
-                    return; // Exit the method if the user tries to park in the wrong slot
-                }
+            // Prompt for the driver's permit unless the slot accepts everyone
+            if (!checkPermit(slotId, category)) {
+                return; // Exit the method if the user tries to park in the wrong slot
             }
 
             // Prompt for owner details
@@ -384,7 +487,7 @@ public class ParkingSystemGUI extends JFrame {
             }
 
             // Validate registration number format
-            if (!registration.matches("^[A-Za-z]\\d{4}$")) {
+            if (!Registration.isValid(registration)) {
                 JOptionPane.showMessageDialog(null,
                         "Invalid registration number format. It should be in the format 'Letter followed by 4 digits' (e.g., T2345).");
                 return; // Exit the method if the format is invalid
@@ -413,27 +516,17 @@ public class ParkingSystemGUI extends JFrame {
 
             // Update parking slot information
             info.status = "occupied"; // Update status
-            info.registration = registration; // Store registration
+            info.registration = registration.toUpperCase(); // Store registration
+            registrationIndex.put(Registration.encode(registration), slotId); // Index registration
             info.ownerName = ownerName; // Store owner's name
-            info.parkedTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()); // Store current date
-                                                                                              // and time
+            info.parkedTimeMillis = clock.millis(); // Store current date and time
+            slotChanged(slotId);
 
             // Show confirmation message with details
             String message = String.format("Car parked in slot: %s\nRegistration: %s\nOwner: %s\nDate and Time: %s",
-                    slotId, registration, ownerName, info.parkedTime);
+                    slotId, registration, ownerName, formatTime(info.parkedTimeMillis));
             JOptionPane.showMessageDialog(null, message);
 
-            // Change the slot button color
-            JButton slotButton = findSlotButton(slotId);
-            if (slotButton != null) {
-                if (slotType.equals("staff")) {
-                    slotButton.setBackground(new Color(139, 0, 0)); // Dark Red for occupied staff slots
-                } else {
-                    slotButton.setBackground(new Color(0, 0, 139)); // Dark Blue for occupied visitor slots
-                }
-            }
-
-            refreshSlotPanel(); // Refresh the panel to show updated status
         } else {
             JOptionPane.showMessageDialog(null, "Slot " + slotId + " is already occupied.");
         }
@@ -451,27 +544,12 @@ public class ParkingSystemGUI extends JFrame {
         if (info != null) {
             // Check if the slot is occupied
             if (info.status.equals("occupied")) {
-                // Reset parking slot information
-                info.status = "available"; // Update status
-                info.registration = ""; // Clear registration
-                info.ownerName = ""; // Clear owner's name
-                info.parkedTime = ""; // Clear parked time
+                vacateSlot(slotId, info); // Reset parking slot information
 
                 // Show confirmation message
                 JOptionPane.showMessageDialog(null,
                         "Car has been removed from slot: " + slotId);
 
-                // Change the slot button color back to available
-                JButton slotButton = findSlotButton(slotId);
-                if (slotButton != null) {
-                    if (slotId.startsWith("S")) {
-                        slotButton.setBackground(Color.RED); // Color for available staff slots
-                    } else {
-                        slotButton.setBackground(Color.BLUE); // Color for available visitor slots
-                    }
-                }
-
-                refreshSlotPanel(); // Refresh the panel to show updated status
             } else {
                 // Show an error message if the slot is unoccupied
                 JOptionPane.showMessageDialog(null,
@@ -484,63 +562,163 @@ public class ParkingSystemGUI extends JFrame {
         }
     }
 
+    /**
+     * Removes the car from an occupied slot, recording its parking session.
+     *
+     * @param slotId The ID of the parking slot
+     * @param info   The slot's information
+     */
+    private void vacateSlot(String slotId, ParkingSlotInfo info) {
+        recordSession(slotId, info); // Keep the session before it is cleared
+        registrationIndex.remove(Registration.encode(info.registration)); // Unindex registration
+        info.status = "available"; // Update status
+        info.registration = ""; // Clear registration
+        info.ownerName = ""; // Clear owner's name
+        info.parkedTimeMillis = 0; // Clear parked time
+        slotChanged(slotId);
+    }
+
+    /**
+     * Returns the slots selected on the slot map, telling the user how to select
+     * slots if none are.
+     *
+     * @return The selected slot IDs, empty if none are selected
+     */
+    private List<String> selectedSlots() {
+        List<String> selected = slotMap.getSelectedSlots();
+        if (selected.isEmpty()) {
+            JOptionPane.showMessageDialog(null,
+                    "No slots are selected. Ctrl-click or shift-click slots on the map to select them.");
+        }
+        return selected;
+    }
+
+    /**
+     * Deletes every selected slot that is not occupied. All the slots are
+     * removed from the model first and then from the slot map in one pass, so
+     * the map is laid out and drawn once however many slots are deleted.
+     */
+    private void deleteSelectedSlots() {
+        List<String> selected = selectedSlots();
+        if (selected.isEmpty()) {
+            return;
+        }
+        int response = JOptionPane.showConfirmDialog(null, "Delete the " + selected.size() + " selected slots?",
+                "Confirm Deletion", JOptionPane.YES_NO_OPTION);
+        if (response != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        List<String> deleted = new ArrayList<>(selected.size());
+        for (String slotId : selected) {
+            if (!"occupied".equals(parkingSlots.get(slotId).getStatus())) {
+                parkingSlots.remove(slotId);
+                slotChanged(slotId);
+                deleted.add(slotId);
+            }
+        }
+        slotMap.removeSlots(deleted); // Remove the slots from the map in one pass
+        slotMap.clearSelection();
+        JOptionPane.showMessageDialog(null, deleted.size() + " slots deleted. "
+                + (selected.size() - deleted.size()) + " occupied slots were kept.");
+    }
+
+    /**
+     * Releases every selected slot: cars are removed and their sessions
+     * recorded, and slots blocked for maintenance are put back in service. The
+     * changed slots are drawn again together in the next frame.
+     */
+    private void releaseSelectedSlots() {
+        List<String> selected = selectedSlots();
+        if (selected.isEmpty()) {
+            return;
+        }
+        int response = JOptionPane.showConfirmDialog(null, "Remove every car from the " + selected.size()
+                + " selected slots and end any maintenance blocks?", "Confirm Release", JOptionPane.YES_NO_OPTION);
+        if (response != JOptionPane.YES_OPTION) {
+            return;
+        }
+
+        int released = 0;
+        for (String slotId : selected) {
+            ParkingSlotInfo info = parkingSlots.get(slotId);
+            if ("occupied".equals(info.getStatus())) {
+                vacateSlot(slotId, info);
+                released++;
+            } else if ("blocked".equals(info.getStatus())) {
+                info.status = "available"; // Back in service
+                slotChanged(slotId);
+                released++;
+            }
+        }
+        slotMap.clearSelection();
+        JOptionPane.showMessageDialog(null, released + " slots released.");
+    }
+
+    /**
+     * Blocks every selected unoccupied slot for maintenance, so no car can be
+     * parked in it until it is released. Occupied slots are left as they are.
+     * Blocks are kept by the autosave, so they last until the slots are
+     * released.
+     */
+    private void blockSelectedSlots() {
+        List<String> selected = selectedSlots();
+        if (selected.isEmpty()) {
+            return;
+        }
+
+        int blocked = 0;
+        for (String slotId : selected) {
+            ParkingSlotInfo info = parkingSlots.get(slotId);
+            if ("available".equals(info.getStatus())) {
+                info.status = "blocked"; // Out of service
+                slotChanged(slotId);
+                blocked++;
+            }
+        }
+        slotMap.clearSelection();
+        JOptionPane.showMessageDialog(null, blocked + " slots blocked for maintenance. "
+                + (selected.size() - blocked) + " occupied or already blocked slots were left as they were.");
+    }
+
     /**
      * Adds a new parking slot.
      */
     private void addParkingSlot() {
-        String slotId = JOptionPane.showInputDialog("Enter Slot ID (e.g., S01 = Staff01 or V01 = Visitor01):");
+        String slotId = JOptionPane.showInputDialog("Enter Slot ID (e.g., " + slotIdExamples() + "):");
 
         // Exit out of the method if "Cancel" is pressed or no input is provided
         if (slotId == null) {
             return; // Exit the method if the user presses cancel or doesn't input anything
         }
 
-        String slotType = slotId.startsWith("S") ? "staff" : "visitor"; // Determine type
+        SlotCategory category = SlotCategory.fromSlotId(slotId); // Determine category from the prefix
 
         // Check for valid slot ID format and uniqueness
-        if (!parkingSlots.containsKey(slotId) && (slotId.matches("S\\d{2}") || slotId.matches("V\\d{2}"))) {
-            parkingSlots.put(slotId, new ParkingSlotInfo("available", null, null));
-
-            // Clear existing buttons
-            slotPanel.removeAll();
-
-            // Create lists to hold sorted slot IDs
-            List<String> staffSlots = new ArrayList<>();
-            List<String> visitorSlots = new ArrayList<>();
-
-            // Separate the slot IDs into their respective lists
-            for (String key : parkingSlots.keySet()) {
-                if (key.startsWith("S")) {
-                    staffSlots.add(key);
-                } else if (key.startsWith("V")) {
-                    visitorSlots.add(key);
-                }
-            }
-
-            // Sort the lists in natural order
-            Collections.sort(staffSlots);
-            Collections.sort(visitorSlots);
+        if (!parkingSlots.containsKey(slotId) && category != null && slotId.matches("[A-Z]\\d{2}")) {
+            parkingSlots.put(slotId, new ParkingSlotInfo("available", category, null));
+            slotChanged(slotId);
 
-            // Re-add buttons for sorted slots
-            for (String staffSlot : staffSlots) {
-                JButton newSlotButton = createSlotButton(staffSlot, "staff");
-                slotPanel.add(newSlotButton);
-            }
-            for (String visitorSlot : visitorSlots) {
-                JButton newSlotButton = createSlotButton(visitorSlot, "visitor");
-                slotPanel.add(newSlotButton);
+            // Separate the slot IDs by category, in category order
+            Map<SlotCategory, List<String>> slotsByCategory = new EnumMap<>(SlotCategory.class);
+            for (Map.Entry<String, ParkingSlotInfo> entry : parkingSlots.entrySet()) {
+                slotsByCategory.computeIfAbsent(entry.getValue().getCategory(), c -> new ArrayList<>())
+                        .add(entry.getKey());
             }
 
-            // Refresh the panel to show the newly ordered buttons
-            refreshSlotPanel();
-            slotPanel.revalidate();
-            slotPanel.repaint();
+            // Put the slots on the map in sorted order
+            List<String> order = new ArrayList<>(parkingSlots.size());
+            for (Map.Entry<SlotCategory, List<String>> entry : slotsByCategory.entrySet()) {
+                Collections.sort(entry.getValue()); // Sort in natural order
+                order.addAll(entry.getValue());
+            }
+            slotMap.setSlotOrder(order);
 
-            JOptionPane.showMessageDialog(null, slotType.substring(0, 1).toUpperCase() + slotType.substring(1)
-                    + " parking slot " + slotId + " added successfully.");
+            JOptionPane.showMessageDialog(null,
+                    category.getLabel() + " parking slot " + slotId + " added successfully.");
         } else {
             JOptionPane.showMessageDialog(null,
-                    "Slot ID already exists or is invalid (Formatting Example: Staff = S01, Visitor = V01).");
+                    "Slot ID already exists or is invalid (Formatting Example: " + slotIdExamples() + ").");
         }
     }
 
@@ -570,18 +748,8 @@ public class ParkingSystemGUI extends JFrame {
 
             // Proceed to delete the slot
             parkingSlots.remove(slotId);
-            // Find and remove the button from the slot panel
-            for (Component component : slotPanel.getComponents()) {
-                if (component instanceof JButton) {
-                    JButton button = (JButton) component;
-                    if (button.getText().contains(slotId)) {
-                        slotPanel.remove(button);
-                        break; // Exit loop after finding and removing
-                    }
-                }
-            }
-            slotPanel.revalidate(); // Refresh the panel
-            slotPanel.repaint(); // Repaint to show changes
+            slotChanged(slotId);
+            slotMap.removeSlots(Collections.singletonList(slotId)); // Remove the slot from the map
             JOptionPane.showMessageDialog(null, "Parking slot " + slotId + " deleted successfully.");
         } else {
             JOptionPane.showMessageDialog(null,
@@ -590,120 +758,422 @@ public class ParkingSystemGUI extends JFrame {
     }
 
     /**
-     * Lists all parking slots, categorised by staff and visitor slots.
-     * Displays the status of each slot, including parked time and fees for occupied
-     * slots.
+     * Lists all parking slots, grouped by slot category, in a table showing the
+     * status of each slot and the parked time and fee of occupied slots.
+     *
+     * The report is built from the last published snapshot of the slot states on
+     * a background thread, so a large car park never holds up the EDT. A progress
+     * dialog lets the user cancel it. The table shows one page of slots at a
+     * time, and only formats the rows that are on screen.
      */
     private void listAllSlots() {
-        StringBuilder slotList = new StringBuilder("Parking Slots:\n");
+        JDialog progressDialog = new JDialog(this, "Building Slot Report", false);
+        progressDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE); // Closed with the Cancel button
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        JButton cancelButton = new JButton("Cancel");
+
+        publishSlots(); // So the report includes changes not yet redrawn
+        CarParkSnapshot snapshot = published;
+        long reportTimeMillis = clock.millis(); // Parked times and fees are worked out at this time
+        SwingWorker<List<SlotState>, Void> worker = new SwingWorker<List<SlotState>, Void>() {
+            @Override
+            protected List<SlotState> doInBackground() {
+                List<SlotState> states = snapshot.getSlots();
+
+                // Work out each slot's sort key once and keep it with the slot, so comparisons only read fields
+                SortedSlot[] rows = new SortedSlot[states.size()];
+                for (int i = 0; i < rows.length && !isCancelled(); i++) {
+                    rows[i] = new SortedSlot(sortKey(states.get(i)), states.get(i));
+                    if (i % 1024 == 0) {
+                        setProgress(i * 50 / rows.length);
+                    }
+                }
+                if (isCancelled()) {
+                    return null;
+                }
+                setProgress(50);
 
-        // Lists to hold staff and visitor slots separately
-        List<Map.Entry<String, ParkingSlotInfo>> staffSlots = new ArrayList<>();
-        List<Map.Entry<String, ParkingSlotInfo>> visitorSlots = new ArrayList<>();
+                // Sort by category, then by the numeric part of the slot IDs
+                Arrays.sort(rows, SortedSlot.ORDER);
+                if (isCancelled()) {
+                    return null;
+                }
+                List<SlotState> slots = new ArrayList<>(rows.length);
+                for (SortedSlot row : rows) {
+                    slots.add(row.slot);
+                }
+                setProgress(100);
+                return slots;
+            }
 
-        for (Map.Entry<String, ParkingSlotInfo> entry : parkingSlots.entrySet()) {
-            String slotId = entry.getKey();
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    showSlotReport(get(), reportTimeMillis);
+                } catch (InterruptedException | ExecutionException e) {
+                    JOptionPane.showMessageDialog(null, "Could not build the slot report: " + e.getMessage());
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressBar.setValue((Integer) e.getNewValue());
+            }
+        });
+        cancelButton.addActionListener(e -> worker.cancel(true));
+
+        JPanel progressPanel = new JPanel(new BorderLayout(5, 5));
+        progressPanel.add(progressBar, BorderLayout.CENTER);
+        progressPanel.add(cancelButton, BorderLayout.EAST);
+        progressDialog.add(progressPanel);
+        progressDialog.pack();
+        progressDialog.setLocationRelativeTo(slotMap);
+        progressDialog.setVisible(true);
+        worker.execute();
+    }
 
-            // Determine the slot type based on the slot ID and add to the appropriate list
-            if (slotId.startsWith("S")) {
-                staffSlots.add(entry);
-            } else {
-                visitorSlots.add(entry);
+    /**
+     * Returns a key that sorts slots by category, then by the numeric part of
+     * their IDs.
+     *
+     * @param slot The slot
+     * @return The sort key
+     */
+    private static long sortKey(SlotState slot) {
+        SlotCategory category = SlotCategory.fromName(slot.getType());
+        long number = 0;
+        String id = slot.getId();
+        for (int i = 0; i < id.length() && number < Integer.MAX_VALUE; i++) {
+            char c = id.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
             }
         }
+        int order = category == null ? SlotCategory.values().length : category.ordinal();
+        return (long) order << 32 | Math.min(number, Integer.MAX_VALUE);
+    }
+
+    /**
+     * A slot in the slot report together with its sort key.
+     */
+    private static final class SortedSlot {
+        static final Comparator<SortedSlot> ORDER = (a, b) -> a.key != b.key ? Long.compare(a.key, b.key)
+                : a.slot.getId().compareTo(b.slot.getId());
 
-        // Sort staff and visitor slots by the numeric part of their IDs
-        Comparator<Map.Entry<String, ParkingSlotInfo>> slotComparator = (s1, s2) -> {
-            int id1 = Integer.parseInt(s1.getKey().replaceAll("\\D", ""));
-            int id2 = Integer.parseInt(s2.getKey().replaceAll("\\D", ""));
-            return Integer.compare(id1, id2);
+        final long key; // From sortKey
+        final SlotState slot;
+
+        SortedSlot(long key, SlotState slot) {
+            this.key = key;
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * Shows a report of the slots in a table, one page at a time.
+     *
+     * @param slots            The slots in report order
+     * @param reportTimeMillis The time parked times and fees are worked out at
+     */
+    private void showSlotReport(List<SlotState> slots, long reportTimeMillis) {
+        SlotReportModel model = new SlotReportModel(slots, reportTimeMillis, clock.getZone());
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+
+        JLabel pageLabel = new JLabel();
+        JButton previousButton = new JButton("Previous");
+        JButton nextButton = new JButton("Next");
+        Runnable showPage = () -> {
+            pageLabel.setText("Page " + (model.getPage() + 1) + " of " + model.getPageCount() + " ("
+                    + slots.size() + " slots)");
+            previousButton.setEnabled(model.getPage() > 0);
+            nextButton.setEnabled(model.getPage() < model.getPageCount() - 1);
         };
+        previousButton.addActionListener(e -> {
+            model.setPage(model.getPage() - 1);
+            showPage.run();
+        });
+        nextButton.addActionListener(e -> {
+            model.setPage(model.getPage() + 1);
+            showPage.run();
+        });
+        showPage.run();
+
+        JPanel pagePanel = new JPanel();
+        pagePanel.add(previousButton);
+        pagePanel.add(pageLabel);
+        pagePanel.add(nextButton);
+
+        JDialog reportDialog = new JDialog(this, "Parking Slots", false);
+        reportDialog.add(new JScrollPane(table), BorderLayout.CENTER);
+        reportDialog.add(pagePanel, BorderLayout.SOUTH);
+        reportDialog.setSize(900, 500);
+        reportDialog.setLocationRelativeTo(slotMap);
+        reportDialog.setVisible(true);
+    }
+
+    /**
+     * Table model for the slot report. It holds the slot states of one report
+     * and shows them a page at a time. Cells are only formatted when the table
+     * asks for them, which it does for the rows on screen.
+     */
+    private static class SlotReportModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final int PAGE_ROWS = 1000; // Slots on each page
+        private static final String[] COLUMNS = { "Slot ID", "Type", "Status", "Registration", "Owner",
+                "Parked Date", "Parked Time", "Fee" };
 
-        Collections.sort(staffSlots, slotComparator);
-        Collections.sort(visitorSlots, slotComparator);
+        private List<SlotState> slots; // Every slot in the report, in report order
+        private long reportTimeMillis; // Time parked times and fees are worked out at
+        private DateTimeFormatter timeFormat; // Formats parked dates in the clock's time zone
+        private int page; // Page being shown, from 0
 
-        // Build the display for staff slots
-        slotList.append("Staff Parking Slots:\n");
-        for (Map.Entry<String, ParkingSlotInfo> entry : staffSlots) {
-            appendSlotInfo(slotList, entry.getKey(), entry.getValue());
+        /**
+         * Constructor for SlotReportModel.
+         *
+         * @param slots            The slots in report order
+         * @param reportTimeMillis The time parked times and fees are worked out at
+         * @param zone             The time zone to show parked dates in
+         */
+        private SlotReportModel(List<SlotState> slots, long reportTimeMillis, ZoneId zone) {
+            this.slots = slots;
+            this.reportTimeMillis = reportTimeMillis;
+            this.timeFormat = TIME_FORMAT.withZone(zone);
         }
 
-        // Add a line break before visitor slots
-        slotList.append("\nVisitor Parking Slots:\n");
-        // Build the display for visitor slots
-        for (Map.Entry<String, ParkingSlotInfo> entry : visitorSlots) {
-            appendSlotInfo(slotList, entry.getKey(), entry.getValue());
+        private int getPage() {
+            return page;
         }
 
-        // Display the sorted list in a dialog
-        JOptionPane.showMessageDialog(null, slotList.toString());
+        private int getPageCount() {
+            return Math.max(1, (slots.size() + PAGE_ROWS - 1) / PAGE_ROWS);
+        }
+
+        /**
+         * Shows another page of slots.
+         *
+         * @param page The page to show, from 0
+         */
+        private void setPage(int page) {
+            this.page = Math.max(0, Math.min(page, getPageCount() - 1));
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return Math.min(PAGE_ROWS, slots.size() - page * PAGE_ROWS);
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            SlotState slot = slots.get(page * PAGE_ROWS + row);
+            SlotCategory category = SlotCategory.fromName(slot.getType());
+            long parkedSeconds = (reportTimeMillis - slot.getParkedTimeMillis()) / 1000;
+            switch (column) {
+                case 0:
+                    return slot.getId();
+                case 1:
+                    return category == null ? slot.getType() : category.getLabel();
+                case 2:
+                    return slot.isOccupied() ? "Occupied" : slot.isBlocked() ? "Blocked for maintenance" : "Unoccupied";
+                case 3:
+                    return slot.isOccupied() ? slot.getRegistrationNumber() : "";
+                case 4:
+                    return slot.isOccupied() ? slot.getOwnerName() : "";
+                case 5:
+                    return slot.isOccupied() ? timeFormat.format(Instant.ofEpochMilli(slot.getParkedTimeMillis())) : "";
+                case 6:
+                    return slot.isOccupied() ? parkedSeconds / 3600 + " hours, " + (parkedSeconds % 3600) / 60
+                            + " minutes, " + parkedSeconds % 60 + " seconds" : "";
+                default:
+                    return slot.isOccupied() ? "$" + CarPark.calculateFee(parkedSeconds * 1000) : "";
+            }
+        }
     }
 
     /**
-     * Appends information about a specific parking slot to the provided
-     * StringBuilder.
-     * Includes details such as slot ID, type, status, parked time, and fee if
-     * occupied.
+     * Formats a parked time for display.
      *
-     * @param slotList StringBuilder to append slot information to
-     * @param slotId   ID of the parking slot
-     * @param info     ParkingSlotInfo object containing details about the slot
+     * @param epochMillis The parked time in epoch milliseconds
+     * @return The parked time as "yyyy-MM-dd HH:mm:ss" in the clock's time zone
      */
-    private void appendSlotInfo(StringBuilder slotList, String slotId, ParkingSlotInfo info) {
-        String slotType = slotId.startsWith("S") ? "Staff" : "Visitor";
-        String status = info.getStatus().equals("available") ? "Unoccupied" : "Occupied";
+    private String formatTime(long epochMillis) {
+        return TIME_FORMAT.format(Instant.ofEpochMilli(epochMillis).atZone(clock.getZone()));
+    }
 
-        // Base slot info
-        slotList.append("Slot ID: ").append(slotId)
-                .append(", Type: ").append(slotType)
-                .append(", Status: ").append(status);
+    /**
+     * Opens the session history that records every car removed from a slot, and
+     * closes it when the application exits so the last sessions reach the disk.
+     */
+    private void openSessionHistory() {
+        try {
+            sessionHistory = SessionHistory.open(SessionHistory.DEFAULT_DIRECTORY);
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Parking sessions will not be recorded: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                sessionHistory.close();
+            } catch (IOException e) {
+                System.err.println("Could not save the latest parking sessions: " + e.getMessage());
+            }
+        }));
+    }
+
+    /**
+     * Records the session of the car about to be removed from a slot.
+     *
+     * @param slotId The ID of the parking slot
+     * @param info   The slot's information, still holding the parked car
+     */
+    private void recordSession(String slotId, ParkingSlotInfo info) {
+        if (sessionHistory != null) {
+            long exitTimeMillis = clock.millis();
+            int fee = CarPark.calculateFee(exitTimeMillis - info.getParkedTimeMillis()); // Same rule as the console
+            sessionHistory.record(new ParkingSession(info.getRegistration(), slotId, info.getOwnerName(),
+                    info.getCategory(), info.getParkedTimeMillis(), exitTimeMillis, fee));
+        }
+    }
+
+    /**
+     * Records the current state of a slot. The slot's button is redrawn, and
+     * the states are published for autosave and reports, with the next batch of
+     * changed slots, so a batch of changes is never saved half done.
+     *
+     * @param slotId The ID of the slot that was added, changed or deleted
+     */
+    private void slotChanged(String slotId) {
+        ParkingSlotInfo info = parkingSlots.get(slotId);
+        if (info == null) {
+            slotStates.remove(slotId);
+        } else if ("occupied".equals(info.getStatus())) {
+            slotStates.put(slotId, new SlotState(slotId, info.getCategory().getName(), info.getRegistration(),
+                    info.getOwnerName(), info.getCategory(), info.getParkedTimeMillis()));
+        } else {
+            slotStates.put(slotId, new SlotState(slotId, info.getCategory().getName(),
+                    "blocked".equals(info.getStatus())));
+        }
+        changes++;
+        dirtySlots.add(slotId);
+        if (!renderTimer.isRunning()) {
+            renderTimer.start();
+        }
+    }
+
+    /**
+     * Reads the slots saved by the last run.
+     *
+     * @return The saved slots, or null if there are none or they cannot be read
+     */
+    private CarParkSnapshot readAutosave() {
+        if (!Files.exists(AUTOSAVE_FILE)) {
+            return null;
+        }
+        try {
+            CarParkSnapshot saved = CarParkSnapshotFile.read(AUTOSAVE_FILE, Registration.STANDARD);
+            return saved.getSlots().isEmpty() ? null : saved;
+        } catch (IOException e) {
+            JOptionPane.showMessageDialog(null, "Could not restore the saved parking slots: " + e.getMessage());
+            return null;
+        }
+    }
 
-        // If occupied, show the parked time and fee
-        if ("occupied".equals(info.getStatus())) {
-            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            long parkedMillis = 0;
+    /**
+     * Starts saving the slots on a background thread every few seconds when they
+     * have changed, and once more when the application exits.
+     */
+    private void startAutosave() {
+        ScheduledExecutorService autosave = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "parking-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        autosave.scheduleWithFixedDelay(this::autosave, AUTOSAVE_SECONDS, AUTOSAVE_SECONDS, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            autosave.shutdown();
+            autosave();
+        }));
+    }
 
+    /**
+     * Saves the last published snapshot of the slots if it is newer than the
+     * last one saved. Runs off the EDT, so the UI keeps responding while the
+     * file is written. A failed save is reported and tried again next time.
+     */
+    private void autosave() {
+        synchronized (autosaveLock) {
+            CarParkSnapshot snapshot = published;
+            if (snapshot.getVersion() == savedVersion) {
+                return;
+            }
             try {
-                Date parkedDate = dateFormat.parse(info.getParkedTime());
-                parkedMillis = System.currentTimeMillis() - parkedDate.getTime();
-
-                // Show parked date
-                String parkedDateString = dateFormat.format(parkedDate);
-                slotList.append(", Parked Date: ").append(parkedDateString);
-            } catch (ParseException ex) {
-                ex.printStackTrace();
+                CarParkSnapshotFile.write(snapshot, AUTOSAVE_FILE, Registration.STANDARD);
+                savedVersion = snapshot.getVersion();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not autosave the parking slots: " + e.getMessage());
             }
-
-            // Calculate hours, minutes, and seconds from parkedMillis
-            long parkedSeconds = parkedMillis / 1000;
-            long parkedHours = parkedSeconds / 3600; // 3600 seconds in an hour
-            long parkedMinutes = (parkedSeconds % 3600) / 60; // Remaining minutes
-            parkedSeconds = parkedSeconds % 60; // Remaining seconds
-
-            int fee = calculateParkingFee(parkedHours * 3600 + parkedMinutes * 60 + parkedSeconds); // Calculate fee
-                                                                                                    // based on total
-                                                                                                    // parked time
-            slotList.append(", Parked Time: ").append(parkedHours).append(" hours, ")
-                    .append(parkedMinutes).append(" minutes, ")
-                    .append(parkedSeconds).append(" seconds, Fee: $").append(fee);
         }
+    }
 
-        slotList.append("\n"); // End the slot info with a new line
+    /**
+     * Publishes an unchanging copy of every slot's state for autosave and
+     * reports to read off the EDT, if anything has changed since the last copy.
+     * Must be called on the EDT.
+     */
+    private void publishSlots() {
+        if (published.getVersion() != changes) {
+            published = new CarParkSnapshot(changes, clock.millis(), new ArrayList<>(slotStates.values()));
+        }
     }
 
     /**
-     * Calculates the parking fee based on the total parked time in seconds.
+     * Adds the slots saved by an earlier run, grouped by category and in ID
+     * order, with their parked cars.
      *
-     * @param parkedSeconds Total parked time in seconds
-     * @return Calculated parking fee
+     * @param saved The saved slots
      */
-    private int calculateParkingFee(long parkedSeconds) {
-        // Example parking fee logic: $5 initially, then $5 for every hour (3600
-        // seconds)
-        int baseFee = 5;
-        int hourlyFee = 5;
-        long hoursParked = parkedSeconds / 3600;
-        return baseFee + (int) (hoursParked * hourlyFee);
+    private void restoreSlots(List<SlotState> saved) {
+        List<SlotState> slots = new ArrayList<>(saved);
+        slots.sort(Comparator.comparing((SlotState slot) -> SlotCategory.fromName(slot.getType()),
+                Comparator.nullsLast(Comparator.naturalOrder())).thenComparing(SlotState::getId));
+        for (SlotState slot : slots) {
+            SlotCategory category = SlotCategory.fromName(slot.getType());
+            if (category == null || parkingSlots.containsKey(slot.getId())) {
+                continue; // Unknown category or a duplicate slot ID
+            }
+            ParkingSlotInfo info = new ParkingSlotInfo("available", category, null);
+            if (slot.isBlocked()) {
+                info.status = "blocked"; // Still out of service from the last run
+            } else if (slot.isOccupied()) {
+                info.status = "occupied";
+                info.registration = slot.getRegistrationNumber();
+                info.ownerName = slot.getOwnerName();
+                info.parkedTimeMillis = slot.getParkedTimeMillis();
+                registrationIndex.put(Registration.encode(info.registration), slot.getId());
+            }
+            parkingSlots.put(slot.getId(), info);
+            slotStates.put(slot.getId(), slot);
+            slotMap.addSlot(slot.getId());
+            showSlot(slot.getId(), info);
+        }
+        // Published at the saved version, as there is nothing new to save
+        published = new CarParkSnapshot(changes, clock.millis(), new ArrayList<>(slotStates.values()));
     }
 
     /**
@@ -723,59 +1193,52 @@ public class ParkingSystemGUI extends JFrame {
         // Remove identified slots
         for (String slotId : slotsToRemove) {
             parkingSlots.remove(slotId);
-            JButton slotButton = findSlotButton(slotId);
-            if (slotButton != null) {
-                slotPanel.remove(slotButton);
-            }
+            slotChanged(slotId);
         }
-
-        // Refresh the slot panel
-        slotPanel.revalidate(); // Inform the layout manager that the component has changed
-        slotPanel.repaint(); // Request a repaint to reflect changes on the screen
+        slotMap.removeSlots(slotsToRemove); // Remove the slots from the map in one pass
 
         // Show message after deletion
         JOptionPane.showMessageDialog(null, "All unoccupied slots have been deleted.");
     }
 
     /**
-     * Refreshes the slot panel to reflect the current status of all parking slots.
-     * Updates the text and background color of each button based on its
-     * availability and type.
+     * Redraws the buttons of the slots changed since the last redraw. Changes
+     * made in a burst, such as many cars leaving at once, are drawn together
+     * instead of one at a time.
      */
-    private void refreshSlotPanel() {
-        for (String slotId : parkingSlots.keySet()) {
-            JButton slotButton = findSlotButton(slotId); // Get the button associated with the slot
-            ParkingSlotInfo info = parkingSlots.get(slotId); // Get the slot info from the map
-
-            if (slotButton != null && info != null) { // Ensure both the button and info exist
-                if ("occupied".equals(info.getStatus())) { // If the slot is occupied
-                    // Show slot ID, "Occupied", and the registration number
-                    slotButton.setText("<html>" + (slotId.startsWith("S") ? "Staff " : "Visitor ") + slotId +
-                            "<br>Occupied<br>Reg: " + info.getRegistration() + "</html>");
-
-                    // Set background color based on slot type
-                    if (slotId.startsWith("S")) {
-                        slotButton.setBackground(new Color(139, 0, 0)); // Dark red for occupied staff slots
-                    } else {
-                        slotButton.setBackground(new Color(0, 0, 139)); // Dark blue for occupied visitor slots
-                    }
-                } else { // If the slot is available
-                    // Show the slot type (Staff or Visitor) and the ID
-                    slotButton.setText((slotId.startsWith("S") ? "Staff " : "Visitor ") + slotId);
-
-                    // Set background color based on slot type
-                    if (slotId.startsWith("S")) {
-                        slotButton.setBackground(Color.RED); // Default red for available staff slots
-                    } else {
-                        slotButton.setBackground(Color.BLUE); // Default blue for available visitor slots
-                    }
-                }
-                slotButton.setForeground(Color.WHITE); // Ensure text color is white for contrast
-            } else {
-                // Log or handle case where slotButton or info is null (for debugging purposes)
-                System.out.println("Slot button not found for ID: " + slotId);
+    private void renderDirtySlots() {
+        for (String slotId : dirtySlots) {
+            ParkingSlotInfo info = parkingSlots.get(slotId);
+            if (info != null) { // Deleted slots are no longer on the map
+                showSlot(slotId, info);
             }
         }
+        dirtySlots.clear();
+        publishSlots();
+    }
+
+    /**
+     * Shows a slot on the slot map with text and a background colour telling
+     * whether it is occupied. The map only draws the slot again if this has
+     * changed.
+     *
+     * @param slotId The ID of the slot
+     * @param info   The slot's information
+     */
+    private void showSlot(String slotId, ParkingSlotInfo info) {
+        SlotCategory category = info.getCategory();
+        if ("blocked".equals(info.getStatus())) { // If the slot is blocked for maintenance
+            slotMap.setSlot(slotId, new String[] { category.getLabel() + " " + slotId, "Maintenance" },
+                    BLOCKED_COLOUR);
+        } else if ("occupied".equals(info.getStatus())) { // If the slot is occupied
+            // Show slot ID, "Occupied", and the registration number
+            slotMap.setSlot(slotId, new String[] { category.getLabel() + " " + slotId, "Occupied",
+                    "Reg: " + info.getRegistration() }, OCCUPIED_COLOURS[category.ordinal()]);
+        } else { // If the slot is available
+            // Show the slot category and the ID
+            slotMap.setSlot(slotId, new String[] { category.getLabel() + " " + slotId },
+                    AVAILABLE_COLOURS[category.ordinal()]);
+        }
     }
 
     /**
@@ -786,12 +1249,7 @@ public class ParkingSystemGUI extends JFrame {
      */
     private boolean isRegistrationUnique(String registration) {
         // Check if the registration number is already in use
-        for (ParkingSlotInfo info : parkingSlots.values()) {
-            if (info.registration != null && info.registration.equals(registration)) {
-                return false; // Registration is not unique
-            }
-        }
-        return true; // Registration is unique
+        return !registrationIndex.containsKey(Registration.encode(registration));
     }
 
     /**
@@ -809,35 +1267,10 @@ public class ParkingSystemGUI extends JFrame {
         if (parkingSlots.containsKey(slotId)) {
             ParkingSlotInfo info = parkingSlots.get(slotId);
 
-            // Determine the slot type based on the slot ID
-            String slotType = slotId.startsWith("S") ? "staff" : "visitor";
-
-            // If the slot is a staff slot, prompt for user type
-            String userTypeString = "staff"; // Default to staff
+            SlotCategory category = info.getCategory();
 
-            // Only prompt if the user is attempting to park in a staff slot
-            if (slotType.equals("staff")) {
-                String[] options = { "Staff", "Visitor" };
-                int userType = JOptionPane.showOptionDialog(null,
-                        "Are you a staff member or a visitor?", "User Type",
-                        JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
-
-                // If cancel is pressed, exit quietly
-                if (userType == JOptionPane.CLOSED_OPTION) {
-                    return;
-                }
-
-                // Map userType to string ("staff" or "visitor")
-                userTypeString = (userType == 0) ? "staff" : "visitor";
-            }
-
-            // Check if user is trying to park in a visitor slot
-            if (slotType.equals("visitor")) {
-                // Allow any user (staff or visitor) to park in visitor slots
-            } else if (!slotType.equals(userTypeString)) {
-                // Staff cannot park in visitor slots
-                JOptionPane.showMessageDialog(null,
-                        "Error: Visitors cannot park in staff slots.");
+            // Prompt for the driver's permit unless the slot accepts everyone
+            if (!checkPermit(slotId, category)) {
                 return; // Exit the method if the user tries to park in the wrong slot
             }
 
@@ -850,7 +1283,7 @@ public class ParkingSystemGUI extends JFrame {
             }
 
             // Validate registration number format (e.g., T2345)
-            if (!registration.matches("^[A-Za-z]\\d{4}$")) {
+            if (!Registration.isValid(registration)) {
                 JOptionPane.showMessageDialog(null,
                         "Invalid registration number format. It should be in the format 'Letter followed by 4 digits' (e.g., T2345).");
                 return; // Exit the method if the format is invalid
@@ -880,29 +1313,20 @@ public class ParkingSystemGUI extends JFrame {
             if (info.status.equals("available")) {
                 // Update parking slot information
                 info.status = "occupied"; // Update status
-                info.registration = registration; // Store registration
+                info.registration = registration.toUpperCase(); // Store registration
+                registrationIndex.put(Registration.encode(registration), slotId); // Index registration
                 info.ownerName = ownerName; // Store owner's name
-                info.parkedTime = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()); // Store current date
-                                                                                                  // and time
+                info.parkedTimeMillis = clock.millis(); // Store current date and time
+                slotChanged(slotId);
 
                 // Show confirmation message with details
                 String message = String.format("Car parked in slot: %s\nRegistration: %s\nOwner: %s\nDate and Time: %s",
-                        slotId, registration, ownerName, info.parkedTime);
+                        slotId, registration, ownerName, formatTime(info.parkedTimeMillis));
                 JOptionPane.showMessageDialog(null, message);
 
-                // Change the slot button color
-                JButton slotButton = findSlotButton(slotId);
-                if (slotButton != null) {
-                    if (slotType.equals("staff")) {
-                        slotButton.setBackground(new Color(139, 0, 0)); // Dark Red for occupied staff slots
-                    } else {
-                        slotButton.setBackground(new Color(0, 0, 139)); // Dark Blue for occupied visitor slots
-                    }
-                }
-
-                refreshSlotPanel(); // Refresh the panel to show updated status
             } else {
-                JOptionPane.showMessageDialog(null, "Slot " + slotId + " is already occupied.");
+                JOptionPane.showMessageDialog(null, "Slot " + slotId
+                        + ("blocked".equals(info.status) ? " is blocked for maintenance." : " is already occupied."));
             }
         } else {
             JOptionPane.showMessageDialog(null,
@@ -910,29 +1334,6 @@ public class ParkingSystemGUI extends JFrame {
         }
     }
 
-    /**
-     * Finds the JButton corresponding to a given slot ID.
-     *
-     * @param slotId ID of the parking slot to find.
-     * @return The JButton associated with the slot ID, or null if not found.
-     */
-    private JButton findSlotButton(String slotId) {
-        for (Component component : slotPanel.getComponents()) {
-            if (component instanceof JButton) {
-                JButton button = (JButton) component;
-                String buttonText = button.getText();
-
-                // Remove HTML tags for comparison
-                String cleanedText = buttonText.replaceAll("\\<.*?\\>", ""); // Remove HTML tags
-
-                if (cleanedText.contains(slotId)) {
-                    return button;
-                }
-            }
-        }
-        return null; // Button not found
-    }
-
     /**
      * Finds a car in the parking system by its registration number.
      */
@@ -945,34 +1346,26 @@ public class ParkingSystemGUI extends JFrame {
             return; // Exit quietly
         }
 
-        for (Map.Entry<String, ParkingSlotInfo> entry : parkingSlots.entrySet()) {
-            ParkingSlotInfo info = entry.getValue();
-            if (info.registration != null && info.registration.equals(registration)) {
-                // Calculate parked time
-                String parkedTime = info.parkedTime; // Assuming you have stored the parked time as a String
-                long parkedDurationInMillis;
-                try {
-                    parkedDurationInMillis = System.currentTimeMillis()
-                            - new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse(parkedTime).getTime();
-                } catch (java.text.ParseException ex) {
-                    JOptionPane.showMessageDialog(null, "Error parsing parked time.");
-                    return;
-                }
-                long parkedHours = parkedDurationInMillis / (1000 * 60 * 60);
-                long parkedMinutes = (parkedDurationInMillis / (1000 * 60)) % 60;
-                long parkedSeconds = (parkedDurationInMillis / 1000) % 60;
+        // Look up the slot through the registration index
+        String slotId = registrationIndex.get(Registration.encode(registration));
+        if (slotId != null) {
+            ParkingSlotInfo info = parkingSlots.get(slotId);
+            // Calculate parked time
+            long parkedDurationInMillis = clock.millis() - info.getParkedTimeMillis();
+            long parkedHours = parkedDurationInMillis / (1000 * 60 * 60);
+            long parkedMinutes = (parkedDurationInMillis / (1000 * 60)) % 60;
+            long parkedSeconds = (parkedDurationInMillis / 1000) % 60;
 
-                // Calculate parking fee
-                int parkingFee = 5 + (int) (parkedHours * 5); // $5 initial fee + $5 for every hour parked
+            // Calculate parking fee
+            int parkingFee = CarPark.calculateFee(parkedDurationInMillis); // $5 per whole hour, minimum 1 hour
 
-                JOptionPane.showMessageDialog(null,
-                        "Car with registration " + registration + " found in slot: " + entry.getKey() +
-                                "\nOwner: " + info.ownerName +
-                                "\nParked Time: " + parkedHours + " hours " + parkedMinutes + " minutes "
-                                + parkedSeconds + " seconds" +
-                                "\nParking Fee: $" + parkingFee);
-                return;
-            }
+            JOptionPane.showMessageDialog(null,
+                    "Car with registration " + registration + " found in slot: " + slotId +
+                            "\nOwner: " + info.ownerName +
+                            "\nParked Time: " + parkedHours + " hours " + parkedMinutes + " minutes "
+                            + parkedSeconds + " seconds" +
+                            "\nParking Fee: $" + parkingFee);
+            return;
         }
         JOptionPane.showMessageDialog(null,
                 "Car with registration " + registration + " not found. Please enter a valid format (e.g., T2345).");
@@ -994,27 +1387,22 @@ public class ParkingSystemGUI extends JFrame {
         if (!registrationToRemove.isEmpty()) {
             boolean found = false;
 
-            // Loop through parkingSlots to find the slot with the given registration
-            for (Map.Entry<String, ParkingSlotInfo> entry : parkingSlots.entrySet()) {
-                ParkingSlotInfo info = entry.getValue();
-
-                if (registrationToRemove.equals(info.getRegistration())) {
-                    found = true;
-                    // Reset the slot information
-                    info.setStatus("available");
-                    info.setRegistration(null); // Clear the registration
-                    info.setOwnerName(null); // Clear the owner name
-                    info.setParkedTime(null); // Clear the parked time
-                    info.parkedTimeMillis = 0; // Reset parked time millis
-
-                    // Refresh the slot panel to reflect the update
-                    refreshSlotPanel();
-
-                    JOptionPane.showMessageDialog(null,
-                            "Car with registration " + registrationToRemove + " has been removed from slot "
-                                    + entry.getKey() + ".");
-                    break;
-                }
+            // Look up the slot through the registration index
+            String slotId = registrationIndex.remove(Registration.encode(registrationToRemove));
+            if (slotId != null) {
+                ParkingSlotInfo info = parkingSlots.get(slotId);
+                found = true;
+                recordSession(slotId, info); // Keep the session before it is cleared
+                // Reset the slot information
+                info.setStatus("available");
+                info.setRegistration(null); // Clear the registration
+                info.setOwnerName(null); // Clear the owner name
+                info.setParkedTimeMillis(0); // Clear the parked time
+                slotChanged(slotId);
+
+                JOptionPane.showMessageDialog(null,
+                        "Car with registration " + registrationToRemove + " has been removed from slot "
+                                + slotId + ".");
             }
 
             // Show message if registration number was not found
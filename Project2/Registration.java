@@ -0,0 +1,132 @@
+/**
+ * A registration number in the standard format of one letter followed by four
+ * digits (e.g., T2345). There are 26 x 10,000 such plates, so each one is
+ * encoded as an int from 0 to 259,999, the letter index times 10,000 plus the
+ * number. The static methods encode and validate plates without allocating.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public final class Registration {
+    /** The value returned by encode for a plate that is not in the format. */
+    public static final int INVALID = -1;
+
+    /** The standard format, one letter followed by four digits. */
+    public static final RegistrationFormat STANDARD = new RegistrationFormat() {
+        public long encode(CharSequence plate) {
+            return Registration.encode(plate);
+        }
+
+        public String decode(long code) {
+            return Registration.decode((int) code);
+        }
+
+        public String example() {
+            return "T2345";
+        }
+    };
+
+    private final int code;
+
+    /**
+     * Constructs a Registration from its encoded form.
+     *
+     * @param code the encoded plate
+     */
+    private Registration(int code) {
+        this.code = code;
+    }
+
+    /**
+     * Parses a plate into a Registration.
+     *
+     * @param plate the plate to parse, in any letter case
+     * @return the registration
+     * @throws IllegalArgumentException if the plate is not one letter followed by
+     *                                  four digits
+     */
+    public static Registration parse(CharSequence plate) {
+        int code = encode(plate);
+        if (code == INVALID) {
+            throw new IllegalArgumentException("Invalid registration number: " + plate);
+        }
+        return new Registration(code);
+    }
+
+    /**
+     * Encodes a plate as an int.
+     *
+     * @param plate the plate to encode, in any letter case
+     * @return the encoded plate, or INVALID if the plate is not one letter
+     *         followed by four digits
+     */
+    public static int encode(CharSequence plate) {
+        if (plate == null || plate.length() != 5) {
+            return INVALID;
+        }
+        int letter = Character.toUpperCase(plate.charAt(0)) - 'A';
+        if (letter < 0 || letter >= 26) {
+            return INVALID;
+        }
+        int number = 0;
+        for (int i = 1; i < 5; i++) {
+            int digit = plate.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return INVALID;
+            }
+            number = number * 10 + digit;
+        }
+        return letter * 10_000 + number;
+    }
+
+    /**
+     * Decodes an encoded plate back into its text form.
+     *
+     * @param code the encoded plate
+     * @return the plate (e.g., "T2345")
+     */
+    public static String decode(int code) {
+        char[] plate = new char[5];
+        plate[0] = (char) ('A' + code / 10_000);
+        int number = code % 10_000;
+        for (int i = 4; i >= 1; i--) {
+            plate[i] = (char) ('0' + number % 10);
+            number /= 10;
+        }
+        return new String(plate);
+    }
+
+    /**
+     * Checks whether a plate is in the standard format.
+     *
+     * @param plate the plate to check, in any letter case
+     * @return true if the plate is one letter followed by four digits
+     */
+    public static boolean isValid(CharSequence plate) {
+        return encode(plate) != INVALID;
+    }
+
+    /**
+     * Returns the encoded form of this registration.
+     *
+     * @return the encoded plate
+     */
+    public int getCode() {
+        return code;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Registration && ((Registration) other).code == code;
+    }
+
+    @Override
+    public int hashCode() {
+        return code;
+    }
+
+    @Override
+    public String toString() {
+        return decode(code);
+    }
+}
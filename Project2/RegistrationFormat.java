@@ -0,0 +1,33 @@
+/**
+ * Describes a registration number scheme and how plates in that scheme are
+ * encoded as a primitive number. Encoded plates are used as keys by the car park
+ * indexes, so two plates must only encode to the same value if they are the same
+ * plate. Encodings must never be negative, as negative values mark invalid plates.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public interface RegistrationFormat {
+    /**
+     * Encodes a plate without allocating.
+     *
+     * @param plate the plate to encode, in any letter case
+     * @return the encoded plate, or -1 if the plate is not valid in this format
+     */
+    long encode(CharSequence plate);
+
+    /**
+     * Decodes an encoded plate back into its upper case text form.
+     *
+     * @param code the encoded plate
+     * @return the plate
+     */
+    String decode(long code);
+
+    /**
+     * Returns an example plate in this format, for use in prompts.
+     *
+     * @return an example plate
+     */
+    String example();
+}
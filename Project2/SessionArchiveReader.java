@@ -0,0 +1,345 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Reads an archive written by SessionArchiveWriter. Opening the archive reads
+ * only its footer. A scan for a time range skips every block whose earliest
+ * entry and latest exit show it holds no session in the range, and of the
+ * blocks it does need it reads only the requested columns, plus the entry and
+ * exit times when the block is only partly in the range.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class SessionArchiveReader implements AutoCloseable {
+    private static final int COLUMNS = SessionColumn.values().length;
+
+    private FileChannel channel;
+    private int blockCount;
+    private int[] rowCounts; // Rows in each block
+    private long[] minEntries; // Earliest entry time in each block
+    private long[] maxEntries; // Latest entry time in each block
+    private long[] minExits; // Earliest exit time in each block
+    private long[] maxExits; // Latest exit time in each block
+    private long[] offsets; // Start of column c of block b at index b * COLUMNS + c
+    private int[] lengths; // Length of each column of each block
+    private int[] checksums; // CRC32 of each column of each block
+    private long sessionCount;
+    private long blocksRead; // Blocks read by scans so far
+    private long bytesRead; // Column bytes read by scans so far
+    private CRC32 crc = new CRC32();
+
+    /**
+     * Constructs a reader for an open file. Use open() to create a reader.
+     *
+     * @param channel the archive file
+     */
+    private SessionArchiveReader(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Opens an archive and reads its footer.
+     *
+     * @param file the archive file
+     * @return the reader
+     * @throws IOException if the file cannot be read, is not a finished archive,
+     *                     or its footer is damaged
+     */
+    public static SessionArchiveReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        SessionArchiveReader reader = new SessionArchiveReader(channel);
+        try {
+            reader.readFooter();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e instanceof IOException ? (IOException) e
+                    : new IOException("The session archive footer is damaged.", e);
+        }
+        return reader;
+    }
+
+    /**
+     * Reads the header, trailer and footer.
+     *
+     * @throws IOException if the file is not a finished archive or the footer is
+     *                     damaged
+     */
+    private void readFooter() throws IOException {
+        long size = channel.size();
+        if (size < SessionArchiveWriter.HEADER_BYTES + SessionArchiveWriter.TRAILER_BYTES) {
+            throw new IOException("Not a finished session archive.");
+        }
+        ByteBuffer header = read(0, SessionArchiveWriter.HEADER_BYTES);
+        ByteBuffer trailer = read(size - SessionArchiveWriter.TRAILER_BYTES, SessionArchiveWriter.TRAILER_BYTES);
+        long footerOffset = trailer.getLong();
+        if (header.getInt() != SessionArchiveWriter.MAGIC || trailer.getInt() != SessionArchiveWriter.MAGIC) {
+            throw new IOException("Not a finished session archive.");
+        }
+        byte version = header.get();
+        if (version < 1 || version > SessionArchiveWriter.FORMAT_VERSION) {
+            throw new IOException("Session archive format version " + version + " is not supported.");
+        }
+        long footerLength = size - SessionArchiveWriter.TRAILER_BYTES - footerOffset;
+        if (footerOffset < SessionArchiveWriter.HEADER_BYTES || footerLength < 5 || footerLength > Integer.MAX_VALUE) {
+            throw new IOException("The session archive footer is damaged.");
+        }
+        ByteBuffer footer = read(footerOffset, (int) footerLength);
+        crc.reset();
+        crc.update(footer.array(), 0, footer.limit() - 4);
+        if (footer.getInt(footer.limit() - 4) != (int) crc.getValue()) {
+            throw new IOException("The session archive footer is damaged.");
+        }
+        blockCount = (int) getVarLong(footer);
+        rowCounts = new int[blockCount];
+        minEntries = new long[blockCount];
+        maxEntries = new long[blockCount];
+        minExits = new long[blockCount];
+        maxExits = new long[blockCount];
+        offsets = new long[blockCount * COLUMNS];
+        lengths = new int[blockCount * COLUMNS];
+        checksums = new int[blockCount * COLUMNS];
+        for (int block = 0; block < blockCount; block++) {
+            rowCounts[block] = (int) getVarLong(footer);
+            minEntries[block] = footer.getLong();
+            maxEntries[block] = footer.getLong();
+            minExits[block] = footer.getLong();
+            maxExits[block] = footer.getLong();
+            for (int column = 0; column < COLUMNS; column++) {
+                offsets[block * COLUMNS + column] = getVarLong(footer);
+                lengths[block * COLUMNS + column] = (int) getVarLong(footer);
+                checksums[block * COLUMNS + column] = footer.getInt();
+            }
+            sessionCount += rowCounts[block];
+        }
+    }
+
+    /**
+     * Returns the number of sessions in the archive.
+     *
+     * @return the number of sessions
+     */
+    public long getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * Returns the number of blocks in the archive.
+     *
+     * @return the number of blocks
+     */
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Returns the number of blocks scans have read from, counting a block once
+     * per scan.
+     *
+     * @return the number of blocks read
+     */
+    public long getBlocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * Returns the number of column bytes scans have read.
+     *
+     * @return the number of bytes read
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Reads every session in the archive with all of its columns.
+     *
+     * @param action called with each session in turn
+     * @return the number of sessions read
+     * @throws IOException if the archive cannot be read or is damaged
+     */
+    public long scan(Consumer<ParkingSession> action) throws IOException {
+        return scan(Long.MIN_VALUE, Long.MAX_VALUE, EnumSet.allOf(SessionColumn.class), action);
+    }
+
+    /**
+     * Reads the sessions that overlap a time range, meaning the car entered
+     * before the end of the range and left at or after its start. Columns that
+     * are not requested are left empty in the sessions passed on: null for the
+     * registration, slot ID and permit, an empty owner name, and 0 for times and
+     * the fee.
+     *
+     * @param fromMillis start of the range, epoch milliseconds
+     * @param toMillis   end of the range, epoch milliseconds, not included
+     * @param columns    the columns to read
+     * @param action     called with each matching session in turn
+     * @return the number of sessions passed to the action
+     * @throws IOException if the archive cannot be read or is damaged
+     */
+    public long scan(long fromMillis, long toMillis, Set<SessionColumn> columns, Consumer<ParkingSession> action)
+            throws IOException {
+        long matched = 0;
+        SlotCategory[] categories = SlotCategory.values();
+        boolean withEntry = columns.contains(SessionColumn.ENTRY_TIME);
+        boolean withExit = columns.contains(SessionColumn.EXIT_TIME);
+        for (int block = 0; block < blockCount; block++) {
+            if (minEntries[block] >= toMillis || maxExits[block] < fromMillis) {
+                continue; // No session in this block overlaps the range
+            }
+            blocksRead++;
+            int rows = rowCounts[block];
+            boolean whole = maxEntries[block] < toMillis && minExits[block] >= fromMillis;
+            long[] entryTimes = withEntry || !whole ? getTimes(block, SessionColumn.ENTRY_TIME) : null;
+            long[] exitTimes = withExit || !whole ? getTimes(block, SessionColumn.EXIT_TIME) : null;
+            String[] registrations = columns.contains(SessionColumn.REGISTRATION)
+                    ? getStrings(block, SessionColumn.REGISTRATION) : null;
+            String[] slotIds = columns.contains(SessionColumn.SLOT_ID)
+                    ? getStrings(block, SessionColumn.SLOT_ID) : null;
+            String[] ownerNames = columns.contains(SessionColumn.OWNER_NAME)
+                    ? getStrings(block, SessionColumn.OWNER_NAME) : null;
+            ByteBuffer permits = columns.contains(SessionColumn.PERMIT) ? getColumn(block, SessionColumn.PERMIT) : null;
+            ByteBuffer fees = columns.contains(SessionColumn.FEE) ? getColumn(block, SessionColumn.FEE) : null;
+            for (int i = 0; i < rows; i++) {
+                long fee = fees == null ? 0 : getVarLong(fees);
+                if (!whole && (entryTimes[i] >= toMillis || exitTimes[i] < fromMillis)) {
+                    continue;
+                }
+                int permit = permits == null ? 0 : permits.get(i);
+                if (permit < 0 || permit > categories.length) {
+                    throw new IOException("The session archive holds a damaged permit.");
+                }
+                action.accept(new ParkingSession(registrations == null ? null : registrations[i],
+                        slotIds == null ? null : slotIds[i], ownerNames == null ? null : ownerNames[i],
+                        permit == 0 ? null : categories[permit - 1], withEntry ? entryTimes[i] : 0,
+                        withExit ? exitTimes[i] : 0, (int) ((fee >>> 1) ^ -(fee & 1))));
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Reads one column of a block and checks its checksum.
+     *
+     * @param block  the block number
+     * @param column the column
+     * @return the column bytes, ready to be read
+     * @throws IOException if the column cannot be read or is damaged
+     */
+    private ByteBuffer getColumn(int block, SessionColumn column) throws IOException {
+        int index = block * COLUMNS + column.ordinal();
+        ByteBuffer bytes = read(offsets[index], lengths[index]);
+        crc.reset();
+        crc.update(bytes.array(), 0, bytes.limit());
+        if ((int) crc.getValue() != checksums[index]) {
+            throw new IOException("Block " + block + " of the session archive is damaged.");
+        }
+        bytesRead += bytes.limit();
+        return bytes;
+    }
+
+    /**
+     * Reads a time column of a block, undoing the difference encoding.
+     *
+     * @param block  the block number
+     * @param column ENTRY_TIME or EXIT_TIME
+     * @return the time of each row
+     * @throws IOException if the column cannot be read or is damaged
+     */
+    private long[] getTimes(int block, SessionColumn column) throws IOException {
+        ByteBuffer bytes = getColumn(block, column);
+        long[] times = new long[rowCounts[block]];
+        long previous = 0;
+        for (int i = 0; i < times.length; i++) {
+            long zigzag = getVarLong(bytes);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            times[i] = previous;
+        }
+        return times;
+    }
+
+    /**
+     * Reads a dictionary encoded column of a block.
+     *
+     * @param block  the block number
+     * @param column REGISTRATION, SLOT_ID or OWNER_NAME
+     * @return the value of each row, sharing one String per distinct value
+     * @throws IOException if the column cannot be read or is damaged
+     */
+    private String[] getStrings(int block, SessionColumn column) throws IOException {
+        ByteBuffer bytes = getColumn(block, column);
+        String[] dictionary = new String[(int) Math.min(getVarLong(bytes), bytes.remaining())];
+        for (int i = 0; i < dictionary.length; i++) {
+            int length = (int) getVarLong(bytes);
+            if (length < 0 || length > bytes.remaining()) {
+                throw new IOException("Block " + block + " of the session archive holds a damaged length.");
+            }
+            dictionary[i] = new String(bytes.array(), bytes.position(), length, StandardCharsets.UTF_8);
+            bytes.position(bytes.position() + length);
+        }
+        String[] values = new String[rowCounts[block]];
+        for (int i = 0; i < values.length; i++) {
+            long number = getVarLong(bytes);
+            if (number < 0 || number >= dictionary.length) {
+                throw new IOException("Block " + block + " of the session archive holds a damaged value.");
+            }
+            values[i] = dictionary[(int) number];
+        }
+        return values;
+    }
+
+    /**
+     * Reads bytes from a position in the file.
+     *
+     * @param position where the bytes start
+     * @param length   the number of bytes
+     * @return the bytes, ready to be read
+     * @throws IOException if the file cannot be read or ends first
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) {
+                throw new EOFException("The session archive is cut short.");
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * Reads a number written seven bits at a time.
+     *
+     * @param buffer the buffer to read from
+     * @return the number
+     * @throws IOException if the number is damaged or cut short
+     */
+    private static long getVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new EOFException("The session archive holds a number that is cut short.");
+            }
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("The session archive holds a damaged number.");
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,367 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Writes completed parking sessions to an archive file laid out by column, for
+ * month-end reports that scan millions of sessions. Sessions are collected
+ * into blocks, and each column of a block is written as its own run of bytes:
+ *
+ * <ul>
+ * <li>registrations, slot IDs and owner names as a dictionary of the distinct
+ * values in the block followed by each row's dictionary number</li>
+ * <li>entry and exit times as the first value followed by the difference from
+ * the row before, zigzag encoded</li>
+ * <li>permits as one byte per row and fees as zigzag numbers</li>
+ * </ul>
+ *
+ * Numbers are variable length, as in CarParkCodec. After the blocks comes a
+ * footer listing each block's row count, its earliest and latest entry and exit
+ * times, and where each of its columns starts along with the column's length
+ * and CRC32. SessionArchiveReader reads only the footer to decide which blocks
+ * a time range needs, then reads only the columns asked for.
+ *
+ * <pre>
+ * int     magic, "CPSA"
+ * byte    format version
+ * column data of every block
+ * footer:
+ *   varint  number of blocks, then for each block:
+ *     varint  number of rows
+ *     long    earliest entry, latest entry, earliest exit, latest exit
+ *     for each column: varlong offset, varint length, int CRC32
+ *   int     CRC32 of the footer
+ * long    offset of the footer
+ * int     magic, "CPSA"
+ * </pre>
+ *
+ * The file can only be read once the writer is closed, which writes the
+ * footer.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class SessionArchiveWriter implements AutoCloseable {
+    static final int MAGIC = 0x43505341; // "CPSA" at the start and end of every archive
+    static final byte FORMAT_VERSION = 1; // Bumped whenever the layout changes
+    static final int HEADER_BYTES = 5; // Magic and version
+    static final int TRAILER_BYTES = 12; // Footer offset and magic
+    public static final int DEFAULT_BLOCK_ROWS = 65536; // Sessions in each block
+
+    private FileChannel channel;
+    private int blockRows; // Sessions in each full block
+    private int rows; // Sessions in the block being collected
+    private String[] registrations;
+    private String[] slotIds;
+    private String[] ownerNames;
+    private byte[] permits; // Permit ordinal plus one, or 0 if unknown
+    private long[] entryTimes;
+    private long[] exitTimes;
+    private int[] fees;
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024); // Reused to encode each column
+    private ByteBuffer footer = ByteBuffer.allocate(4 * 1024);
+    private int blockCount;
+    private long sessionCount;
+    private CRC32 crc = new CRC32();
+
+    /**
+     * Constructs a writer for an open file. Use create() to create a writer.
+     *
+     * @param channel   the archive file, positioned after its header
+     * @param blockRows the number of sessions in each block
+     */
+    private SessionArchiveWriter(FileChannel channel, int blockRows) {
+        this.channel = channel;
+        this.blockRows = blockRows;
+        registrations = new String[blockRows];
+        slotIds = new String[blockRows];
+        ownerNames = new String[blockRows];
+        permits = new byte[blockRows];
+        entryTimes = new long[blockRows];
+        exitTimes = new long[blockRows];
+        fees = new int[blockRows];
+    }
+
+    /**
+     * Creates an archive file with the default block size.
+     *
+     * @param file the archive file, replaced if it already exists
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static SessionArchiveWriter create(Path file) throws IOException {
+        return create(file, DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * Creates an archive file. Smaller blocks let a query skip more of the file
+     * but take more room in the footer.
+     *
+     * @param file      the archive file, replaced if it already exists
+     * @param blockRows the number of sessions in each block
+     * @return the writer
+     * @throws IOException if the file cannot be created
+     */
+    public static SessionArchiveWriter create(Path file, int blockRows) throws IOException {
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("Blocks must hold at least one session.");
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(FORMAT_VERSION);
+        header.flip();
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new SessionArchiveWriter(channel, blockRows);
+    }
+
+    /**
+     * Writes every session in a session history directory to a new archive.
+     *
+     * @param historyDirectory the directory written by SessionHistory
+     * @param file             the archive file, replaced if it already exists
+     * @return the number of sessions archived
+     * @throws IOException if the history cannot be read or the archive written
+     */
+    public static long archive(Path historyDirectory, Path file) throws IOException {
+        try (SessionArchiveWriter writer = create(file)) {
+            try {
+                SessionHistory.read(historyDirectory, session -> {
+                    try {
+                        writer.append(session);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return writer.sessionCount;
+        }
+    }
+
+    /**
+     * Adds a session to the archive, writing out the current block once it is
+     * full.
+     *
+     * @param session the session to add
+     * @throws IOException if a full block cannot be written
+     */
+    public void append(ParkingSession session) throws IOException {
+        registrations[rows] = session.getRegistrationNumber();
+        slotIds[rows] = session.getSlotId();
+        ownerNames[rows] = session.getOwnerName();
+        permits[rows] = session.getPermit() == null ? 0 : (byte) (session.getPermit().ordinal() + 1);
+        entryTimes[rows] = session.getEntryTimeMillis();
+        exitTimes[rows] = session.getExitTimeMillis();
+        fees[rows] = session.getFee();
+        sessionCount++;
+        if (++rows == blockRows) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Returns the number of sessions added so far.
+     *
+     * @return the number of sessions
+     */
+    public long getSessionCount() {
+        return sessionCount;
+    }
+
+    /**
+     * Writes the block being collected, one column at a time, and adds its entry
+     * to the footer.
+     *
+     * @throws IOException if the block cannot be written
+     */
+    private void writeBlock() throws IOException {
+        footer = ensure(footer, 5 + 32 + SessionColumn.values().length * 19);
+        putVarLong(footer, rows);
+        long minEntry = Long.MAX_VALUE;
+        long maxEntry = Long.MIN_VALUE;
+        long minExit = Long.MAX_VALUE;
+        long maxExit = Long.MIN_VALUE;
+        for (int i = 0; i < rows; i++) {
+            minEntry = Math.min(minEntry, entryTimes[i]);
+            maxEntry = Math.max(maxEntry, entryTimes[i]);
+            minExit = Math.min(minExit, exitTimes[i]);
+            maxExit = Math.max(maxExit, exitTimes[i]);
+        }
+        footer.putLong(minEntry).putLong(maxEntry).putLong(minExit).putLong(maxExit);
+        for (SessionColumn column : SessionColumn.values()) {
+            buffer.clear();
+            switch (column) {
+                case REGISTRATION:
+                    putDictionary(registrations);
+                    break;
+                case SLOT_ID:
+                    putDictionary(slotIds);
+                    break;
+                case OWNER_NAME:
+                    putDictionary(ownerNames);
+                    break;
+                case PERMIT:
+                    buffer = ensure(buffer, rows);
+                    buffer.put(permits, 0, rows);
+                    break;
+                case ENTRY_TIME:
+                    putDeltas(entryTimes);
+                    break;
+                case EXIT_TIME:
+                    putDeltas(exitTimes);
+                    break;
+                default:
+                    buffer = ensure(buffer, rows * 5);
+                    for (int i = 0; i < rows; i++) {
+                        long fee = fees[i];
+                        putVarLong(buffer, (fee << 1) ^ (fee >> 63));
+                    }
+                    break;
+            }
+            buffer.flip();
+            crc.reset();
+            crc.update(buffer.duplicate());
+            putVarLong(footer, channel.position());
+            putVarLong(footer, buffer.remaining());
+            footer.putInt((int) crc.getValue());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Arrays.fill(registrations, 0, rows, null);
+        Arrays.fill(slotIds, 0, rows, null);
+        Arrays.fill(ownerNames, 0, rows, null);
+        blockCount++;
+        rows = 0;
+    }
+
+    /**
+     * Encodes a column of strings as the distinct values in the order they first
+     * appear, then the dictionary number of each row.
+     *
+     * @param values the column values
+     */
+    private void putDictionary(String[] values) {
+        Map<String, Integer> numbers = new HashMap<>();
+        List<byte[]> dictionary = new ArrayList<>();
+        int[] rowNumbers = new int[rows];
+        int dictionaryBytes = 0;
+        for (int i = 0; i < rows; i++) {
+            Integer number = numbers.get(values[i]);
+            if (number == null) {
+                number = dictionary.size();
+                numbers.put(values[i], number);
+                byte[] bytes = values[i].getBytes(StandardCharsets.UTF_8);
+                dictionary.add(bytes);
+                dictionaryBytes += 5 + bytes.length;
+            }
+            rowNumbers[i] = number;
+        }
+        buffer = ensure(buffer, 5 + dictionaryBytes + rows * 5);
+        putVarLong(buffer, dictionary.size());
+        for (byte[] bytes : dictionary) {
+            putVarLong(buffer, bytes.length);
+            buffer.put(bytes);
+        }
+        for (int i = 0; i < rows; i++) {
+            putVarLong(buffer, rowNumbers[i]);
+        }
+    }
+
+    /**
+     * Encodes a column of times as the first time followed by the difference
+     * from the row before, zigzag encoded so small steps back stay small.
+     *
+     * @param times the column values
+     */
+    private void putDeltas(long[] times) {
+        buffer = ensure(buffer, rows * 10);
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            long delta = times[i] - previous;
+            putVarLong(buffer, (delta << 1) ^ (delta >> 63));
+            previous = times[i];
+        }
+    }
+
+    /**
+     * Returns a buffer with room for some more bytes, copying it into a larger
+     * one if needed.
+     *
+     * @param buffer the buffer
+     * @param bytes  the number of bytes needed
+     * @return the buffer, or a larger copy of it
+     */
+    private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        return larger.put(buffer);
+    }
+
+    /**
+     * Writes a non-negative number seven bits at a time, lowest first, with the
+     * top bit of each byte set if more bytes follow.
+     *
+     * @param buffer the buffer to write to
+     * @param value  the number to write
+     */
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes the last block, the footer and the trailer, and closes the file.
+     *
+     * @throws IOException if the archive cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                writeBlock();
+            }
+            long footerOffset = channel.position();
+            ByteBuffer count = ByteBuffer.allocate(5);
+            putVarLong(count, blockCount);
+            count.flip();
+            footer.flip();
+            ByteBuffer whole = ByteBuffer.allocate(count.remaining() + footer.remaining() + 4 + TRAILER_BYTES);
+            whole.put(count).put(footer);
+            crc.reset();
+            crc.update(whole.array(), 0, whole.position());
+            whole.putInt((int) crc.getValue()).putLong(footerOffset).putInt(MAGIC);
+            whole.flip();
+            while (whole.hasRemaining()) {
+                channel.write(whole);
+            }
+            channel.force(true);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * The columns of a session archive. Each column of each block is stored
+ * separately, so a query only reads the columns it asks for.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public enum SessionColumn {
+    REGISTRATION,
+    SLOT_ID,
+    OWNER_NAME,
+    PERMIT,
+    ENTRY_TIME,
+    EXIT_TIME,
+    FEE
+}
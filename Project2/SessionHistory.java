@@ -0,0 +1,633 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the history of completed parking sessions, for settling billing
+ * disputes and for reports on how the car park is used.
+ *
+ * The most recent sessions are held in a fixed-size ring in memory, so
+ * recording a session only stores a reference and the latest sessions can be
+ * looked at without touching the disk. A background thread copies sessions out
+ * of the ring and appends them to segment files in a directory, forcing each
+ * batch to disk in one go. Once a segment file reaches its size limit the next
+ * one is started, so memory stays the same size however many sessions a day
+ * brings. If sessions arrive faster than the disk can take them, recording
+ * waits for room in the ring rather than dropping any.
+ *
+ * Segment files are named sessions-00000001.log, sessions-00000002.log and so
+ * on. Each session is a record holding its length, a CRC32 checksum and the
+ * session itself, as in the car park journal, so a record left half written by
+ * a crash is skipped when the history is read and cut off when it is reopened.
+ * Strings longer than 16 KB of UTF-8 are cut short so every record fits.
+ *
+ * Only one history can be open on a directory at a time. Opening takes a lock
+ * on a sessions.lock file in the directory, so a second program writing the
+ * same segments fails to open rather than interleaving its records.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class SessionHistory implements CarParkListener, AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 4096; // Sessions kept in memory
+    public static final long DEFAULT_SEGMENT_BYTES = 16 << 20; // Size at which a new segment file is started
+    public static final Path DEFAULT_DIRECTORY = Paths.get("carpark-sessions"); // Shared by the console and GUI
+
+    private static final int MAGIC = 0x43505348; // "CPSH" at the start of every segment file
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_HEADER_BYTES = 8; // Body length and checksum
+    private static final int MAX_BODY_BYTES = 1 << 16; // Larger lengths mean a damaged record
+    private static final int MAX_STRING_BYTES = 16 * 1024; // Three strings and the fixed fields stay under the above
+    private static final String LOCK_FILE = "sessions.lock";
+    private static final String PREFIX = "sessions-";
+    private static final String SUFFIX = ".log";
+
+    private Path directory;
+    private FileChannel lockChannel; // Open on the lock file for as long as the history is open
+    private FileLock directoryLock; // Held so no other history writes to the directory
+    private long segmentBytes; // Size at which a new segment file is started
+    private int segmentNumber; // Number of the segment being written
+    private FileChannel channel; // Segment being written, only touched by the writer once started
+    private CarPark carPark; // null unless attached
+    private Object lock = new Object(); // Guards everything below
+    private ParkingSession[] ring; // The most recent sessions, session n at index n % ring.length
+    private long recorded; // Number of sessions recorded
+    private long taken; // Number of sessions the writer has taken from the ring
+    private long spilled; // Number of sessions on disk
+    private boolean closed;
+    private IOException failure; // Set if the writer could not write a segment
+    private Thread writer;
+
+    /**
+     * Constructs a SessionHistory. Use open() to create a history.
+     *
+     * @param directory    the directory holding the segment files
+     * @param capacity     the number of sessions kept in memory
+     * @param segmentBytes the size at which a new segment file is started
+     */
+    private SessionHistory(Path directory, int capacity, long segmentBytes) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        ring = new ParkingSession[capacity];
+    }
+
+    /**
+     * Opens the session history in a directory with the default capacity and
+     * segment size.
+     *
+     * @param directory the directory holding the segment files, created if it
+     *                  does not exist
+     * @return the open history
+     * @throws IOException if the directory or its last segment cannot be used
+     */
+    public static SessionHistory open(Path directory) throws IOException {
+        return open(directory, DEFAULT_CAPACITY, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Opens the session history in a directory. New sessions are appended to the
+     * last segment file, after cutting off any record a crash left half written.
+     *
+     * @param directory    the directory holding the segment files, created if it
+     *                     does not exist
+     * @param capacity     the number of sessions kept in memory
+     * @param segmentBytes the size at which a new segment file is started
+     * @return the open history
+     * @throws IOException if the directory or its last segment cannot be used, or
+     *                     another history already has the directory open
+     */
+    public static SessionHistory open(Path directory, int capacity, long segmentBytes) throws IOException {
+        if (capacity < 1 || segmentBytes < HEADER_BYTES + RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Capacity and segment size must be positive.");
+        }
+        Files.createDirectories(directory);
+        SessionHistory history = new SessionHistory(directory, capacity, segmentBytes);
+        history.lockDirectory();
+        try {
+            List<Path> segments = segments(directory);
+            if (segments.isEmpty()) {
+                history.startSegment(1);
+            } else {
+                Path last = segments.get(segments.size() - 1);
+                history.segmentNumber = segmentNumber(last);
+                history.channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                long end = history.channel.size() < HEADER_BYTES ? -1 : scan(history.channel, null);
+                if (end < 0) {
+                    history.channel.truncate(0); // A crash cut the header short
+                    writeHeader(history.channel);
+                    end = HEADER_BYTES;
+                }
+                history.channel.truncate(end);
+                history.channel.position(end);
+            }
+        } catch (IOException | RuntimeException e) {
+            if (history.channel != null) {
+                history.channel.close();
+            }
+            history.unlockDirectory();
+            throw e;
+        }
+        history.writer = new Thread(history::writeLoop, "session-history");
+        history.writer.setDaemon(true);
+        history.writer.start();
+        return history;
+    }
+
+    /**
+     * Locks the directory so no other history can write to it while this one is
+     * open. The lock is released by the operating system if the program dies.
+     *
+     * @throws IOException if the lock file cannot be opened or another history
+     *                     holds the lock
+     */
+    private void lockDirectory() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        try {
+            directoryLock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            directoryLock = null; // Held by another history in this program
+        } catch (IOException e) {
+            lockChannel.close();
+            throw e;
+        }
+        if (directoryLock == null) {
+            lockChannel.close();
+            throw new IOException("The session history in " + directory
+                    + " is already open in another program or window.");
+        }
+    }
+
+    /**
+     * Releases the directory lock taken by lockDirectory.
+     *
+     * @throws IOException if the lock file cannot be closed
+     */
+    private void unlockDirectory() throws IOException {
+        lockChannel.close(); // Closing the channel releases the lock
+    }
+
+    /**
+     * Starts recording a session every time a car is removed from a car park.
+     * The exit time is read from the car park's clock and the fee is worked out
+     * with CarPark.calculateFee.
+     *
+     * @param carPark the car park to record
+     */
+    public void attach(CarPark carPark) {
+        this.carPark = carPark;
+        carPark.addListener(this);
+    }
+
+    /**
+     * Does nothing, adding a slot does not end a session.
+     */
+    @Override
+    public void slotAdded(ParkingSlot slot) {
+    }
+
+    /**
+     * Does nothing, only unoccupied slots can be deleted.
+     */
+    @Override
+    public void slotDeleted(String slotId) {
+    }
+
+    /**
+     * Does nothing, a session is recorded when it ends.
+     */
+    @Override
+    public void carParked(String slotId, Car car) {
+    }
+
+    @Override
+    public void carRemoved(String slotId, Car car) {
+        long exitTimeMillis = carPark.getClock().millis();
+        long parkedMillis = exitTimeMillis - car.getParkedTimeMillis();
+        record(new ParkingSession(car.getRegistrationNumber(), slotId, car.getOwnerName(), car.getPermit(),
+                car.getParkedTimeMillis(), exitTimeMillis, CarPark.calculateFee(parkedMillis)));
+    }
+
+    /**
+     * Records a completed session. If the ring is full of sessions still waiting
+     * to be written, this waits for the writer. Sessions are dropped once the
+     * history is closed or has failed. The fee must be worked out with
+     * CarPark.calculateFee, so a stay is billed the same whichever application
+     * recorded it.
+     *
+     * @param session the session to record
+     */
+    public void record(ParkingSession session) {
+        synchronized (lock) {
+            while (recorded - taken >= ring.length && !closed && failure == null) {
+                try {
+                    lock.wait(); // The writer takes the waiting sessions soon
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (closed || failure != null) {
+                return;
+            }
+            ring[(int) (recorded % ring.length)] = session;
+            if (recorded++ == taken) {
+                lock.notifyAll(); // The writer may be waiting for sessions
+            }
+        }
+    }
+
+    /**
+     * Returns the number of sessions recorded since the history was opened.
+     *
+     * @return the number of sessions recorded
+     */
+    public long getRecordedSessions() {
+        synchronized (lock) {
+            return recorded;
+        }
+    }
+
+    /**
+     * Returns the most recent sessions still held in memory, oldest first.
+     *
+     * @param max the largest number of sessions to return
+     * @return up to max of the latest sessions
+     */
+    public List<ParkingSession> getRecent(int max) {
+        synchronized (lock) {
+            int count = (int) Math.min(Math.min(max, ring.length), recorded);
+            List<ParkingSession> sessions = new ArrayList<>(Math.max(count, 0));
+            for (long n = recorded - count; n < recorded; n++) {
+                sessions.add(ring[(int) (n % ring.length)]);
+            }
+            return sessions;
+        }
+    }
+
+    /**
+     * Reads every session in a history directory, oldest first, without opening
+     * the history. Records a crash left half written are skipped.
+     *
+     * @param directory the directory holding the segment files
+     * @param action    called with each session in turn
+     * @throws IOException if a segment file cannot be read
+     */
+    public static void read(Path directory, Consumer<ParkingSession> action) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        for (Path segment : segments(directory)) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                if (channel.size() >= HEADER_BYTES) {
+                    scan(channel, action);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the segment files in a directory in the order they were written.
+     *
+     * @param directory the directory holding the segment files
+     * @return the segment files, oldest first
+     * @throws IOException if the directory cannot be read
+     */
+    public static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (segmentNumber(file) > 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        Collections.sort(segments); // Numbers are zero padded, so names sort in order
+        return segments;
+    }
+
+    /**
+     * Returns the number in a segment file's name.
+     *
+     * @param file the segment file
+     * @return the segment number, or 0 if the name is not a segment name
+     */
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Reads every complete record in a segment file from the start.
+     *
+     * @param channel the segment file
+     * @param action  called with each session, or null to only find the end
+     * @return the file position just after the last complete record, or -1 if
+     *         the file does not start with a segment header
+     * @throws IOException if the file cannot be read
+     */
+    private static long scan(FileChannel channel, Consumer<ParkingSession> action) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel.position(0)), 64 * 1024));
+        if (in.readInt() != MAGIC) {
+            return -1;
+        }
+        long end = HEADER_BYTES;
+        byte[] body = new byte[256];
+        CRC32 check = new CRC32();
+        while (true) {
+            int length;
+            int checksum;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length <= 0 || length > MAX_BODY_BYTES) {
+                    break;
+                }
+                if (body.length < length) {
+                    body = new byte[length];
+                }
+                in.readFully(body, 0, length);
+            } catch (EOFException e) {
+                break; // The last record was cut short
+            }
+            check.reset();
+            check.update(body, 0, length);
+            if ((int) check.getValue() != checksum) {
+                break;
+            }
+            if (action != null) {
+                action.accept(decode(ByteBuffer.wrap(body, 0, length)));
+            }
+            end += RECORD_HEADER_BYTES + length;
+        }
+        return end;
+    }
+
+    /**
+     * Reads a session from a record body.
+     *
+     * @param body the record body
+     * @return the session
+     */
+    private static ParkingSession decode(ByteBuffer body) {
+        String registrationNumber = getString(body);
+        String slotId = getString(body);
+        String ownerName = getString(body);
+        int permit = body.get();
+        long entryTimeMillis = body.getLong();
+        long exitTimeMillis = body.getLong();
+        int fee = body.getInt();
+        return new ParkingSession(registrationNumber, slotId, ownerName,
+                permit < 0 || permit >= SlotCategory.values().length ? null : SlotCategory.values()[permit],
+                entryTimeMillis, exitTimeMillis, fee);
+    }
+
+    /**
+     * Appends a session's record to a buffer, growing the buffer if needed.
+     *
+     * @param buffer  the buffer to append to
+     * @param session the session
+     * @param crc     used to work out the record checksum
+     * @return the buffer, or a larger copy of it
+     */
+    private static ByteBuffer encode(ByteBuffer buffer, ParkingSession session, CRC32 crc) {
+        byte[] registration = utf8(session.getRegistrationNumber());
+        byte[] slotId = utf8(session.getSlotId());
+        byte[] owner = utf8(session.getOwnerName());
+        int length = 2 + registration.length + 2 + slotId.length + 2 + owner.length + 1 + 8 + 8 + 4;
+        if (buffer.remaining() < RECORD_HEADER_BYTES + length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, RECORD_HEADER_BYTES + length));
+            buffer.flip();
+            buffer = larger.put(buffer);
+        }
+        int start = buffer.position();
+        buffer.position(start + RECORD_HEADER_BYTES);
+        putString(buffer, registration);
+        putString(buffer, slotId);
+        putString(buffer, owner);
+        buffer.put(session.getPermit() == null ? -1 : (byte) session.getPermit().ordinal());
+        buffer.putLong(session.getEntryTimeMillis()).putLong(session.getExitTimeMillis()).putInt(session.getFee());
+        crc.reset();
+        crc.update(buffer.array(), start + RECORD_HEADER_BYTES, length);
+        buffer.putInt(start, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        return buffer;
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a string, cut short at a character boundary if
+     * there are more than MAX_STRING_BYTES, so the record body stays under
+     * MAX_BODY_BYTES and scan() does not take it for a damaged record.
+     *
+     * @param text the string
+     * @return the UTF-8 bytes, at most MAX_STRING_BYTES of them
+     */
+    private static byte[] utf8(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_STRING_BYTES) {
+            return bytes;
+        }
+        int end = MAX_STRING_BYTES;
+        while ((bytes[end] & 0xC0) == 0x80) {
+            end--; // Back up to the first byte of the character
+        }
+        return Arrays.copyOf(bytes, end);
+    }
+
+    /**
+     * Writes a string as its length followed by its UTF-8 bytes.
+     *
+     * @param buffer the buffer to write to
+     * @param bytes  the UTF-8 bytes of the string, at most MAX_STRING_BYTES
+     */
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * Reads a string written by putString.
+     *
+     * @param buffer the buffer to read from
+     * @return the string
+     */
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the segment header to the start of an empty file.
+     *
+     * @param channel the file
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC);
+        header.flip();
+        channel.write(header);
+    }
+
+    /**
+     * Closes the current segment file, if any, and starts a new one.
+     *
+     * @param number the number of the new segment
+     * @throws IOException if the new segment cannot be created
+     */
+    private void startSegment(int number) throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        segmentNumber = number;
+        channel = FileChannel.open(directory.resolve(String.format("%s%08d%s", PREFIX, number, SUFFIX)),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        writeHeader(channel);
+    }
+
+    /**
+     * Runs on the writer thread, taking whatever sessions are waiting in the ring
+     * and appending them to the segment files, until the history is closed.
+     */
+    private void writeLoop() {
+        ParkingSession[] batch = new ParkingSession[ring.length];
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        CRC32 crc = new CRC32();
+        while (true) {
+            int count;
+            synchronized (lock) {
+                while (recorded == taken && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        closed = true;
+                    }
+                }
+                if (recorded == taken) {
+                    return; // Closed with nothing left to write
+                }
+                count = (int) (recorded - taken);
+                for (int i = 0; i < count; i++) {
+                    batch[i] = ring[(int) ((taken + i) % ring.length)];
+                }
+                taken = recorded;
+                lock.notifyAll(); // Sessions waiting for room can carry on
+            }
+            try {
+                for (int i = 0; i < count; i++) {
+                    int before = buffer.position();
+                    buffer = encode(buffer, batch[i], crc);
+                    long segmentEnd = channel.position() + buffer.position();
+                    if (segmentEnd > segmentBytes && channel.position() + before > HEADER_BYTES) {
+                        // This session starts the next segment
+                        writeAll(buffer, before);
+                        startSegment(segmentNumber + 1);
+                    }
+                    batch[i] = null;
+                }
+                writeAll(buffer, buffer.position());
+            } catch (IOException e) {
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                spilled += count;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes the first bytes of a buffer to the current segment and forces them
+     * to disk, keeping any bytes after them at the start of the buffer.
+     *
+     * @param buffer the encoded records, written from the start
+     * @param end    the number of bytes to write
+     * @throws IOException if the segment cannot be written
+     */
+    private void writeAll(ByteBuffer buffer, int end) throws IOException {
+        int next = buffer.position();
+        buffer.flip();
+        buffer.limit(end);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        buffer.limit(next);
+        buffer.compact();
+    }
+
+    /**
+     * Waits until every session recorded so far is on disk.
+     *
+     * @throws IOException if the history could not be written
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            long target = recorded;
+            while (spilled < target && failure == null && writer.isAlive()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the session history.", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Stops recording sessions, writes any waiting sessions to disk and closes the
+     * current segment file.
+     *
+     * @throws IOException if the history could not be written
+     */
+    @Override
+    public void close() throws IOException {
+        if (carPark != null) {
+            carPark.removeListener(this);
+        }
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        unlockDirectory();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A clock that only moves when it is told to. Giving it to a car park lets
+ * simulations and benchmarks run a day of parking in moments, and makes parked
+ * times and fees repeatable.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class SimulationClock extends Clock {
+    private final AtomicLong millis; // Current time in epoch milliseconds
+    private final ZoneId zone;
+
+    /**
+     * Constructs a SimulationClock starting at the given instant in the system
+     * time zone.
+     *
+     * @param start the starting instant
+     */
+    public SimulationClock(Instant start) {
+        this(new AtomicLong(start.toEpochMilli()), ZoneId.systemDefault());
+    }
+
+    /**
+     * Constructs a SimulationClock sharing its time with another.
+     *
+     * @param millis the shared time in epoch milliseconds
+     * @param zone   the time zone
+     */
+    private SimulationClock(AtomicLong millis, ZoneId zone) {
+        this.millis = millis;
+        this.zone = zone;
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param duration how far to move the clock
+     */
+    public void advance(Duration duration) {
+        millis.addAndGet(duration.toMillis());
+    }
+
+    @Override
+    public long millis() {
+        return millis.get();
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis.get());
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new SimulationClock(millis, zone);
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * The categories of parking slot in a car park. Each category has a one letter
+ * slot ID prefix (e.g., S01 is a staff slot) and a name used in prompts and
+ * listings. The same categories describe the permit a car holds, and whether a
+ * car may park in a slot is a lookup in a fixed eligibility table indexed by the
+ * car's permit and the slot's category.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public enum SlotCategory {
+    STAFF('S', "staff", "Staff"),
+    VISITOR('V', "visitor", "Visitor"),
+    ACCESSIBLE('A', "accessible", "Accessible"),
+    EV('E', "ev", "EV"),
+    MOTORCYCLE('M', "motorcycle", "Motorcycle"),
+    RESERVED('R', "reserved", "Reserved");
+
+    private static final SlotCategory[] VALUES = values();
+    private static final SlotCategory[] BY_PREFIX = new SlotCategory[26];
+
+    // ELIGIBLE[permit][slot] is true if a car with the permit may park in the slot
+    private static final boolean[][] ELIGIBLE = new boolean[VALUES.length][VALUES.length];
+
+    // Slot categories to try for each permit, best match first
+    private static final SlotCategory[][] PREFERENCES = new SlotCategory[VALUES.length][];
+
+    static {
+        for (SlotCategory category : VALUES) {
+            BY_PREFIX[category.prefix - 'A'] = category;
+        }
+        allow(STAFF, STAFF);
+        allow(VISITOR, VISITOR);
+        allow(ACCESSIBLE, ACCESSIBLE, VISITOR);
+        allow(EV, EV, VISITOR);
+        allow(MOTORCYCLE, MOTORCYCLE);
+        allow(RESERVED, RESERVED);
+    }
+
+    private final char prefix;
+    private final String name;
+    private final String label;
+
+    /**
+     * Constructs a SlotCategory.
+     *
+     * @param prefix the slot ID prefix
+     * @param name   the lower case name
+     * @param label  the name shown on screen
+     */
+    SlotCategory(char prefix, String name, String label) {
+        this.prefix = prefix;
+        this.name = name;
+        this.label = label;
+    }
+
+    /**
+     * Fills in the eligibility table for a permit.
+     *
+     * @param permit the permit
+     * @param slots  the slot categories the permit may use, best match first
+     */
+    private static void allow(SlotCategory permit, SlotCategory... slots) {
+        for (SlotCategory slot : slots) {
+            ELIGIBLE[permit.ordinal()][slot.ordinal()] = true;
+        }
+        PREFERENCES[permit.ordinal()] = slots;
+    }
+
+    /**
+     * Returns the slot ID prefix of this category.
+     *
+     * @return the slot ID prefix (e.g., 'S' for staff)
+     */
+    public char getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Returns the lower case name of this category.
+     *
+     * @return the name (e.g., "staff")
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of this category as shown on screen.
+     *
+     * @return the label (e.g., "Staff")
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Checks whether a car holding a permit may park in a slot of this category.
+     *
+     * @param permit the car's permit
+     * @return true if the car may park in the slot, false otherwise
+     */
+    public boolean accepts(SlotCategory permit) {
+        return ELIGIBLE[permit.ordinal()][ordinal()];
+    }
+
+    /**
+     * Returns the slot categories a car holding this permit may park in, best
+     * match first.
+     *
+     * @return the eligible slot categories, which must not be modified
+     */
+    SlotCategory[] eligibleSlots() {
+        return PREFERENCES[ordinal()];
+    }
+
+    /**
+     * Finds a category by name, ignoring case.
+     *
+     * @param name the category name (e.g., "staff")
+     * @return the category, or null if there is no category with that name
+     */
+    public static SlotCategory fromName(String name) {
+        if (name != null) {
+            for (SlotCategory category : VALUES) {
+                if (category.name.equalsIgnoreCase(name.trim())) {
+                    return category;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the category of a slot from the prefix of its ID.
+     *
+     * @param slotId the slot ID (e.g., "S01")
+     * @return the category, or null if the prefix is not a category prefix
+     */
+    public static SlotCategory fromSlotId(String slotId) {
+        if (slotId == null || slotId.isEmpty()) {
+            return null;
+        }
+        int index = Character.toUpperCase(slotId.charAt(0)) - 'A';
+        return index < 0 || index >= 26 ? null : BY_PREFIX[index];
+    }
+
+    /**
+     * Returns a list of every category name for prompts.
+     *
+     * @return the names separated by slashes (e.g., "staff/visitor/...")
+     */
+    public static String names() {
+        StringBuilder names = new StringBuilder();
+        for (SlotCategory category : VALUES) {
+            if (names.length() > 0) {
+                names.append('/');
+            }
+            names.append(category.name);
+        }
+        return names.toString();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,544 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Draws every parking slot of a car park as a cell in one grid, in place of a
+ * button for each slot, so sites with tens of thousands of slots stay quick to
+ * lay out and draw.
+ *
+ * The grid is drawn in square tiles that are kept as images, so repainting the
+ * panel only copies the tiles that can be seen. Changing a slot throws away just
+ * the tile or tiles its cell is in, and panning never throws any away. Zooming
+ * starts again with new tiles. When zoomed out far enough that text could not be
+ * read, cells are drawn as blocks of colour only.
+ *
+ * The grid is panned by dragging and zoomed with the mouse wheel around the
+ * pointer. Clicking a cell sends an ActionEvent to every ActionListener, with
+ * the slot's ID as the action command. Control-clicking a cell adds it to or
+ * takes it out of the selection, and shift-clicking selects every cell from the
+ * last one clicked, so operations can be applied to many slots at once.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public class SlotMapPanel extends JComponent {
+    private static final long serialVersionUID = 1L;
+    private static final int CELL_WIDTH = 96; // Width of a cell at full size
+    private static final int CELL_HEIGHT = 54; // Height of a cell at full size
+    private static final int GAP = 2; // Space around each cell at full size
+    private static final int TILE_SIZE = 256; // Width and height of each cached tile in pixels
+    private static final int MAX_TILES = 256; // Tiles kept before the least recently drawn is dropped
+    private static final double MIN_ZOOM = 0.02;
+    private static final double MAX_ZOOM = 4;
+    private static final int MIN_TEXT_HEIGHT = 36; // Cell height in pixels below which text is not drawn
+    private static final Font CELL_FONT = new Font(Font.DIALOG, Font.PLAIN, 11);
+    private static final Color GRID_BACKGROUND = Color.DARK_GRAY;
+    private static final Color SELECTION_COLOUR = Color.YELLOW;
+
+    private int columns = 1; // Cells in each row of the grid
+    private List<Cell> cells = new ArrayList<>(); // Cells in grid order
+    private Map<String, Cell> cellsById = new HashMap<>();
+    private double zoom = 1; // Pixels per unit of the full-size grid
+    private int offsetX; // Pixels of the zoomed grid scrolled off the left edge
+    private int offsetY; // Pixels of the zoomed grid scrolled off the top edge
+    private int anchor = -1; // Index of the cell last clicked, where shift-click selections start
+    private Map<Long, BufferedImage> tiles = new LinkedHashMap<>(64, 0.75f, true) { // Least recently drawn first
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+            return size() > MAX_TILES;
+        }
+    };
+
+    /**
+     * One slot's place in the grid and what it shows.
+     */
+    private static class Cell {
+        private String slotId;
+        private int index; // Position in grid order
+        private String[] lines = new String[0]; // Text shown in the cell, one line each
+        private Color colour = Color.GRAY;
+        private boolean selected;
+
+        private Cell(String slotId, int index) {
+            this.slotId = slotId;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Constructs an empty SlotMapPanel.
+     */
+    public SlotMapPanel() {
+        setOpaque(true);
+        MouseAdapter mouse = new MouseAdapter() {
+            private Point dragStart; // Where the current drag last was, null if not dragging
+            private boolean dragged; // true once the mouse moved while pressed
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+                dragged = false;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart != null) {
+                    panBy(dragStart.x - e.getX(), dragStart.y - e.getY());
+                    dragStart = e.getPoint();
+                    dragged = true;
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragStart = null;
+                if (!dragged && SwingUtilities.isLeftMouseButton(e)) {
+                    String slotId = slotAt(e.getX(), e.getY());
+                    if (slotId == null) {
+                        return;
+                    }
+                    Cell cell = cellsById.get(slotId);
+                    if (e.isShiftDown() && anchor >= 0) {
+                        selectRange(anchor, cell.index);
+                    } else if (e.isControlDown() || e.isMetaDown()) {
+                        cell.selected = !cell.selected;
+                        cellChanged(cell);
+                        anchor = cell.index;
+                    } else {
+                        clearSelection();
+                        anchor = cell.index;
+                        fireSlotClicked(slotId);
+                    }
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoomAt(zoom * Math.pow(1.1, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Adds a listener told when a slot is clicked.
+     *
+     * @param listener the listener, given the slot ID as the action command
+     */
+    public void addActionListener(ActionListener listener) {
+        listenerList.add(ActionListener.class, listener);
+    }
+
+    /**
+     * Removes a listener added with addActionListener.
+     *
+     * @param listener the listener
+     */
+    public void removeActionListener(ActionListener listener) {
+        listenerList.remove(ActionListener.class, listener);
+    }
+
+    /**
+     * Sets the number of cells in each row.
+     *
+     * @param columns the number of columns, at least one
+     */
+    public void setColumns(int columns) {
+        this.columns = Math.max(columns, 1);
+        layoutChanged();
+    }
+
+    /**
+     * Adds a slot at the end of the grid, showing nothing until setSlot is
+     * called for it.
+     *
+     * @param slotId the ID of the slot
+     */
+    public void addSlot(String slotId) {
+        if (!cellsById.containsKey(slotId)) {
+            Cell cell = new Cell(slotId, cells.size());
+            cells.add(cell);
+            cellsById.put(slotId, cell);
+            cellChanged(cell);
+        }
+    }
+
+    /**
+     * Puts the slots in a new order. Slots not in the list are removed and new
+     * ones added, keeping what the existing slots show.
+     *
+     * @param slotIds the slot IDs in grid order
+     */
+    public void setSlotOrder(List<String> slotIds) {
+        List<Cell> ordered = new ArrayList<>(slotIds.size());
+        Map<String, Cell> byId = new HashMap<>(slotIds.size() * 2);
+        for (String slotId : slotIds) {
+            Cell cell = cellsById.get(slotId);
+            if (cell == null) {
+                cell = new Cell(slotId, 0);
+            }
+            cell.index = ordered.size();
+            ordered.add(cell);
+            byId.put(slotId, cell);
+        }
+        cells = ordered;
+        cellsById = byId;
+        anchor = -1;
+        layoutChanged();
+    }
+
+    /**
+     * Removes slots from the grid, moving the slots after them up to fill the
+     * gaps.
+     *
+     * @param slotIds the IDs of the slots to remove
+     */
+    public void removeSlots(Collection<String> slotIds) {
+        Set<String> removing = new HashSet<>(slotIds);
+        List<Cell> kept = new ArrayList<>(cells.size());
+        for (Cell cell : cells) {
+            if (removing.contains(cell.slotId)) {
+                cellsById.remove(cell.slotId);
+            } else {
+                cell.index = kept.size();
+                kept.add(cell);
+            }
+        }
+        cells = kept;
+        anchor = -1;
+        layoutChanged();
+    }
+
+    /**
+     * Sets what a slot's cell shows. Only the tiles holding the cell are drawn
+     * again, and nothing is drawn again if the cell already shows the same.
+     *
+     * @param slotId the ID of the slot
+     * @param lines  the lines of text to show in the cell
+     * @param colour the background colour of the cell
+     */
+    public void setSlot(String slotId, String[] lines, Color colour) {
+        Cell cell = cellsById.get(slotId);
+        if (cell != null && !(Arrays.equals(cell.lines, lines) && cell.colour.equals(colour))) {
+            cell.lines = lines.clone();
+            cell.colour = colour;
+            cellChanged(cell);
+        }
+    }
+
+    /**
+     * Returns the slots that are selected.
+     *
+     * @return the selected slot IDs in grid order
+     */
+    public List<String> getSelectedSlots() {
+        List<String> selected = new ArrayList<>();
+        for (Cell cell : cells) {
+            if (cell.selected) {
+                selected.add(cell.slotId);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Selects every slot.
+     */
+    public void selectAll() {
+        selectRange(0, cells.size() - 1);
+    }
+
+    /**
+     * Clears the selection.
+     */
+    public void clearSelection() {
+        boolean changed = false;
+        for (Cell cell : cells) {
+            changed |= cell.selected;
+            cell.selected = false;
+        }
+        if (changed) {
+            layoutChanged();
+        }
+    }
+
+    /**
+     * Adds the cells between two positions in grid order to the selection and
+     * draws the grid again once.
+     *
+     * @param from the position of one end of the range
+     * @param to   the position of the other end of the range
+     */
+    private void selectRange(int from, int to) {
+        for (int i = Math.max(0, Math.min(from, to)); i <= Math.max(from, to) && i < cells.size(); i++) {
+            cells.get(i).selected = true;
+        }
+        layoutChanged();
+    }
+
+    /**
+     * Returns the slot whose cell is at a point of the panel.
+     *
+     * @param x the x coordinate in the panel
+     * @param y the y coordinate in the panel
+     * @return the slot ID, or null if there is no cell at that point
+     */
+    public String slotAt(int x, int y) {
+        double gridX = (x + offsetX) / zoom;
+        double gridY = (y + offsetY) / zoom;
+        if (gridX < 0 || gridY < 0) {
+            return null;
+        }
+        int column = (int) (gridX / CELL_WIDTH);
+        int row = (int) (gridY / CELL_HEIGHT);
+        double insideX = gridX - column * CELL_WIDTH;
+        double insideY = gridY - row * CELL_HEIGHT;
+        if (column >= columns || insideX < GAP || insideX >= CELL_WIDTH - GAP || insideY < GAP
+                || insideY >= CELL_HEIGHT - GAP) {
+            return null; // Outside the grid or in the gap between cells
+        }
+        long index = (long) row * columns + column;
+        return index < cells.size() ? cells.get((int) index).slotId : null;
+    }
+
+    /**
+     * Returns the zoom, in pixels per unit of the full-size grid.
+     *
+     * @return the zoom
+     */
+    public double getZoom() {
+        return zoom;
+    }
+
+    /**
+     * Zooms in or out, keeping the part of the grid under a point of the panel
+     * in place.
+     *
+     * @param newZoom the new zoom, kept between the smallest and largest allowed
+     * @param x       the x coordinate in the panel to zoom around
+     * @param y       the y coordinate in the panel to zoom around
+     */
+    public void zoomAt(double newZoom, int x, int y) {
+        newZoom = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+        if (newZoom == zoom) {
+            return;
+        }
+        double gridX = (x + offsetX) / zoom;
+        double gridY = (y + offsetY) / zoom;
+        zoom = newZoom;
+        offsetX = (int) Math.round(gridX * zoom) - x;
+        offsetY = (int) Math.round(gridY * zoom) - y;
+        layoutChanged();
+    }
+
+    /**
+     * Moves the view of the grid by a number of pixels.
+     *
+     * @param dx pixels to move right
+     * @param dy pixels to move down
+     */
+    public void panBy(int dx, int dy) {
+        offsetX += dx;
+        offsetY += dy;
+        keepGridInView();
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(GRID_BACKGROUND);
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        // Only the tiles inside the clip are drawn
+        int gridWidth = (int) Math.ceil(columns * CELL_WIDTH * zoom);
+        int gridHeight = (int) Math.ceil(rows() * CELL_HEIGHT * zoom);
+        int firstColumn = Math.max(0, Math.floorDiv(clip.x + offsetX, TILE_SIZE));
+        int lastColumn = Math.min(Math.floorDiv(clip.x + clip.width - 1 + offsetX, TILE_SIZE),
+                (gridWidth - 1) / TILE_SIZE);
+        int firstRow = Math.max(0, Math.floorDiv(clip.y + offsetY, TILE_SIZE));
+        int lastRow = Math.min(Math.floorDiv(clip.y + clip.height - 1 + offsetY, TILE_SIZE),
+                (gridHeight - 1) / TILE_SIZE);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                g.drawImage(tile(column, row), column * TILE_SIZE - offsetX, row * TILE_SIZE - offsetY, null);
+            }
+        }
+    }
+
+    /**
+     * Returns a tile of the zoomed grid, drawing it if it is not cached.
+     *
+     * @param column the tile's column
+     * @param row    the tile's row
+     * @return the tile image
+     */
+    private BufferedImage tile(int column, int row) {
+        long key = (long) row << 32 | column;
+        BufferedImage image = tiles.get(key);
+        if (image == null) {
+            image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+            drawTile(image, column, row);
+            tiles.put(key, image);
+        }
+        return image;
+    }
+
+    /**
+     * Draws the cells that fall inside a tile.
+     *
+     * @param image  the tile image
+     * @param column the tile's column
+     * @param row    the tile's row
+     */
+    private void drawTile(BufferedImage image, int column, int row) {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(GRID_BACKGROUND);
+            g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+            g.translate(-column * TILE_SIZE, -row * TILE_SIZE);
+            g.scale(zoom, zoom);
+
+            // The part of the full-size grid this tile covers
+            double left = column * TILE_SIZE / zoom;
+            double top = row * TILE_SIZE / zoom;
+            double size = TILE_SIZE / zoom;
+            int firstColumn = (int) (left / CELL_WIDTH);
+            int lastColumn = Math.min((int) ((left + size) / CELL_WIDTH), columns - 1);
+            int firstRow = (int) (top / CELL_HEIGHT);
+            int lastRow = (int) ((top + size) / CELL_HEIGHT);
+
+            boolean text = CELL_HEIGHT * zoom >= MIN_TEXT_HEIGHT;
+            if (text) {
+                g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g.setFont(CELL_FONT);
+            }
+            FontMetrics metrics = g.getFontMetrics(CELL_FONT);
+            for (int cellRow = firstRow; cellRow <= lastRow; cellRow++) {
+                for (int cellColumn = firstColumn; cellColumn <= lastColumn; cellColumn++) {
+                    long index = (long) cellRow * columns + cellColumn;
+                    if (index >= cells.size()) {
+                        return; // No cells after this one
+                    }
+                    Cell cell = cells.get((int) index);
+                    int x = cellColumn * CELL_WIDTH;
+                    int y = cellRow * CELL_HEIGHT;
+                    g.setColor(cell.colour);
+                    g.fillRect(x + GAP, y + GAP, CELL_WIDTH - 2 * GAP, CELL_HEIGHT - 2 * GAP);
+                    if (text) {
+                        drawLines(g, metrics, cell.lines, x, y);
+                    }
+                    if (cell.selected && !text) {
+                        g.setColor(SELECTION_COLOUR); // Too small for a border to show
+                        g.fillRect(x + GAP, y + GAP, CELL_WIDTH - 2 * GAP, CELL_HEIGHT - 2 * GAP);
+                    } else if (cell.selected) {
+                        g.setColor(SELECTION_COLOUR);
+                        g.fillRect(x, y, CELL_WIDTH, GAP * 2);
+                        g.fillRect(x, y + CELL_HEIGHT - GAP * 2, CELL_WIDTH, GAP * 2);
+                        g.fillRect(x, y, GAP * 2, CELL_HEIGHT);
+                        g.fillRect(x + CELL_WIDTH - GAP * 2, y, GAP * 2, CELL_HEIGHT);
+                    }
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    /**
+     * Draws the lines of a cell's text centred in the cell.
+     *
+     * @param g       the graphics of the tile, scaled to the full-size grid
+     * @param metrics the metrics of the cell font
+     * @param lines   the lines of text
+     * @param x       the left of the cell in the full-size grid
+     * @param y       the top of the cell in the full-size grid
+     */
+    private static void drawLines(Graphics2D g, FontMetrics metrics, String[] lines, int x, int y) {
+        g.setColor(Color.WHITE);
+        int lineHeight = metrics.getHeight();
+        int baseline = y + (CELL_HEIGHT - lines.length * lineHeight) / 2 + metrics.getAscent();
+        for (String line : lines) {
+            g.drawString(line, x + (CELL_WIDTH - metrics.stringWidth(line)) / 2, baseline);
+            baseline += lineHeight;
+        }
+    }
+
+    /**
+     * Throws away the tiles holding a cell and repaints the part of the panel
+     * where the cell is.
+     *
+     * @param cell the cell that changed
+     */
+    private void cellChanged(Cell cell) {
+        int x = (int) Math.floor((cell.index % columns) * CELL_WIDTH * zoom);
+        int y = (int) Math.floor((cell.index / columns) * CELL_HEIGHT * zoom);
+        int right = (int) Math.ceil(((cell.index % columns) + 1) * CELL_WIDTH * zoom);
+        int bottom = (int) Math.ceil(((cell.index / columns) + 1) * CELL_HEIGHT * zoom);
+        for (int row = y / TILE_SIZE; row <= (bottom - 1) / TILE_SIZE; row++) {
+            for (int column = x / TILE_SIZE; column <= (right - 1) / TILE_SIZE; column++) {
+                tiles.remove((long) row << 32 | column);
+            }
+        }
+        repaint(x - offsetX, y - offsetY, right - x, bottom - y);
+    }
+
+    /**
+     * Throws away every tile and repaints the whole panel, after the cells have
+     * moved or the zoom has changed.
+     */
+    private void layoutChanged() {
+        tiles.clear();
+        keepGridInView();
+        repaint();
+    }
+
+    /**
+     * Stops the view from being panned past the edges of the grid.
+     */
+    private void keepGridInView() {
+        int gridWidth = (int) Math.ceil(columns * CELL_WIDTH * zoom);
+        int gridHeight = (int) Math.ceil(rows() * CELL_HEIGHT * zoom);
+        offsetX = Math.max(0, Math.min(offsetX, gridWidth - getWidth()));
+        offsetY = Math.max(0, Math.min(offsetY, gridHeight - getHeight()));
+    }
+
+    /**
+     * Returns the number of rows of cells.
+     */
+    private int rows() {
+        return (cells.size() + columns - 1) / columns;
+    }
+
+    /**
+     * Tells every listener that a slot was clicked.
+     *
+     * @param slotId the ID of the slot
+     */
+    private void fireSlotClicked(String slotId) {
+        ActionEvent event = new ActionEvent(this, ActionEvent.ACTION_PERFORMED, slotId);
+        for (ActionListener listener : listenerList.getListeners(ActionListener.class)) {
+            listener.actionPerformed(event);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds all parking slots of one type and tracks which of them are free, so the
+ * car park can hand out the lowest free slot of a type without scanning. Each
+ * slot in the pool is given a position, and positions left behind by deleted
+ * slots are reused by slots added later.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+class SlotPool {
+    private List<ParkingSlot> bays; // Slots by position, null where a slot was deleted
+    private FreeSlotBitmap free; // Positions holding an unoccupied slot
+    private FreeSlotBitmap vacant; // Positions left behind by deleted slots
+
+    /**
+     * Constructs an empty pool sized for the given number of slots.
+     *
+     * @param capacity the expected number of slots
+     */
+    public SlotPool(int capacity) {
+        bays = new ArrayList<>(capacity);
+        free = new FreeSlotBitmap(capacity);
+        vacant = new FreeSlotBitmap(0);
+    }
+
+    /**
+     * Adds a slot to the pool, reusing the lowest vacant position if there is one.
+     *
+     * @param slot the slot to add
+     */
+    public void add(ParkingSlot slot) {
+        int position = vacant.nextSetBit();
+        if (position < 0) {
+            position = bays.size();
+            bays.add(slot);
+        } else {
+            vacant.clear(position);
+            bays.set(position, slot);
+        }
+        slot.setPosition(position);
+        if (!slot.isOccupied()) {
+            free.set(position);
+        }
+    }
+
+    /**
+     * Removes a slot from the pool and marks its position as vacant.
+     *
+     * @param slot the slot to remove
+     */
+    public void remove(ParkingSlot slot) {
+        int position = slot.getPosition();
+        bays.set(position, null);
+        free.clear(position);
+        vacant.set(position);
+    }
+
+    /**
+     * Marks a slot in the pool as occupied.
+     *
+     * @param slot the slot that has been occupied
+     */
+    public void markOccupied(ParkingSlot slot) {
+        free.clear(slot.getPosition());
+    }
+
+    /**
+     * Marks a slot in the pool as free.
+     *
+     * @param slot the slot that has been freed
+     */
+    public void markFree(ParkingSlot slot) {
+        free.set(slot.getPosition());
+    }
+
+    /**
+     * Returns the free slot with the lowest position.
+     *
+     * @return the lowest free slot, or null if every slot is occupied
+     */
+    public ParkingSlot firstFree() {
+        int position = free.nextSetBit();
+        return position < 0 ? null : bays.get(position);
+    }
+
+    /**
+     * Removes every unoccupied slot and packs the remaining slots into the lowest
+     * positions.
+     */
+    public void removeUnoccupied() {
+        List<ParkingSlot> remaining = new ArrayList<>();
+        for (ParkingSlot slot : bays) {
+            if (slot != null && slot.isOccupied()) {
+                remaining.add(slot);
+            }
+        }
+        bays.clear();
+        free.clearAll();
+        vacant.clearAll();
+        for (ParkingSlot slot : remaining) {
+            add(slot);
+        }
+    }
+}
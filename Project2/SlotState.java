@@ -0,0 +1,122 @@
+/**
+ * The state of one parking slot at a point in time: its ID and type and, if it
+ * is occupied, the car parked in it. Instances never change once created, so
+ * they can be handed to report readers on any thread.
+ *
+ * @author Harrison Stefanidis, 105260443
+ * @version 1.0, 18/10/2026
+ */
+public final class SlotState {
+    private final String id;
+    private final String type;
+    private final String registrationNumber; // null if unoccupied
+    private final String ownerName; // null if unoccupied
+    private final SlotCategory permit; // null if unoccupied
+    private final long parkedTimeMillis; // 0 if unoccupied
+    private final boolean blocked; // Closed for maintenance, only ever set on unoccupied slots
+
+    /**
+     * Constructs the state of an unoccupied slot.
+     *
+     * @param id   the slot ID
+     * @param type the slot type
+     */
+    public SlotState(String id, String type) {
+        this(id, type, false);
+    }
+
+    /**
+     * Constructs the state of an unoccupied slot that may be blocked for
+     * maintenance.
+     *
+     * @param id      the slot ID
+     * @param type    the slot type
+     * @param blocked true if no car may be parked in the slot
+     */
+    public SlotState(String id, String type, boolean blocked) {
+        this(id, type, null, null, null, 0L, blocked);
+    }
+
+    /**
+     * Constructs the state of a slot.
+     *
+     * @param id                 the slot ID
+     * @param type               the slot type
+     * @param registrationNumber the registration number of the parked car, or
+     *                           null if unoccupied
+     * @param ownerName          the name of the car owner, or null if unoccupied
+     * @param permit             the permit of the car owner, or null if
+     *                           unoccupied
+     * @param parkedTimeMillis   the time the car was parked in epoch milliseconds
+     */
+    public SlotState(String id, String type, String registrationNumber, String ownerName, SlotCategory permit,
+            long parkedTimeMillis) {
+        this(id, type, registrationNumber, ownerName, permit, parkedTimeMillis, false);
+    }
+
+    /**
+     * Constructs the state of a slot with every field given.
+     */
+    private SlotState(String id, String type, String registrationNumber, String ownerName, SlotCategory permit,
+            long parkedTimeMillis, boolean blocked) {
+        this.id = id;
+        this.type = type;
+        this.registrationNumber = registrationNumber;
+        this.ownerName = ownerName;
+        this.permit = permit;
+        this.parkedTimeMillis = parkedTimeMillis;
+        this.blocked = blocked;
+    }
+
+    /**
+     * Captures the current state of a parking slot.
+     *
+     * @param slot the slot to capture
+     * @return the state of the slot
+     */
+    public static SlotState of(ParkingSlot slot) {
+        Car car = slot.getParkedCar(); // Read once so the occupant cannot change part way through
+        if (car == null) {
+            return new SlotState(slot.getId(), slot.getType());
+        }
+        return new SlotState(slot.getId(), slot.getType(), car.getRegistrationNumber(), car.getOwnerName(),
+                car.getPermit(), car.getParkedTimeMillis());
+    }
+
+    // Getters
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isOccupied() {
+        return registrationNumber != null;
+    }
+
+    public String getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    public String getOwnerName() {
+        return ownerName;
+    }
+
+    public boolean isStaff() {
+        return permit == SlotCategory.STAFF;
+    }
+
+    public SlotCategory getPermit() {
+        return permit;
+    }
+
+    public long getParkedTimeMillis() {
+        return parkedTimeMillis;
+    }
+
+    public boolean isBlocked() {
+        return blocked;
+    }
+}